@@ -0,0 +1,96 @@
+package com.openclassrooms.safetynet.benchmark;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.Dataset;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import com.openclassrooms.safetynet.repository.PersonRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the write methods of the person repository, on synthetic data of 10k, 100k and 1M people
+ * laid out as in PersonServiceBenchmark. A write copies a chunk of the list of people and the table of its chunks,
+ * so its cost and its allocation grow with the square root of the number of people, plus a scan of the list
+ * to find the person to replace or delete.
+ * Run with mvn -P jmh test-compile exec:exec -Djmh.args="-prof gc PersonRepositoryWriteBenchmark".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class PersonRepositoryWriteBenchmark {
+
+    private static final int HOUSEHOLD_SIZE = 4;
+    private static final int CITIES = 10;
+    private static final int STATIONS = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    private int persons;
+
+    private PersonRepository personRepository;
+    private Person person;
+    private Person movedPerson;
+    private Person newPerson;
+    private boolean moved;
+
+
+    @Setup
+    public void setUp() {
+        List<Person> personList = new ArrayList<>(persons);
+        List<FireStation> fireStationList = new ArrayList<>();
+        int addresses = persons / HOUSEHOLD_SIZE;
+
+        for (int a = 0; a < addresses; a++) {
+            String street = a + " Culver St";
+            String lastName = "Last" + a;
+            fireStationList.add(new FireStation(street, a % STATIONS + 1));
+            for (int m = 0; m < HOUSEHOLD_SIZE; m++) {
+                String firstName = "First" + m;
+                personList.add(new Person(firstName, lastName, street, "City" + a % CITIES, 97451,
+                        "841-874-" + a, firstName + "." + lastName + "@email.com"));
+            }
+        }
+
+        DatasetHolder datasetHolder = new DatasetHolder();
+        datasetHolder.replace(Dataset.of(personList, fireStationList, new ArrayList<MedicalRecord>()));
+        personRepository = new PersonRepository(datasetHolder);
+
+        person = personList.get(personList.size() / 2);
+        movedPerson = new Person(person.getFirstName(), person.getLastName(), "0 Culver St", person.getCity(), person.getZip(),
+                person.getPhone(), person.getEmail());
+        newPerson = new Person("New", "Person", "0 Culver St", "City0", 97451, "841-874-0", "new.person@email.com");
+    }
+
+
+    @Benchmark
+    public Person updatePerson() {
+        moved = !moved;
+        return personRepository.updatePerson(moved ? movedPerson : person);
+    }
+
+
+    @Benchmark
+    public Person addAndDeletePerson() {
+        personRepository.addPerson(newPerson);
+        personRepository.deletePerson(newPerson);
+        return newPerson;
+    }
+
+}
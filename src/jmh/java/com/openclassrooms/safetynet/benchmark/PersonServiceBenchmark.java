@@ -0,0 +1,148 @@
+package com.openclassrooms.safetynet.benchmark;
+
+import com.openclassrooms.safetynet.dto.FireDTO;
+import com.openclassrooms.safetynet.dto.PersonInfoDTO;
+import com.openclassrooms.safetynet.dto.PersonWithAgeAndFamilyMembersDTO;
+import com.openclassrooms.safetynet.dto.PersonWithMedicalRecordDTO;
+import com.openclassrooms.safetynet.dto.PersonsConcernedByFireStationDTO;
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.AgeGroupRepository;
+import com.openclassrooms.safetynet.repository.Dataset;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import com.openclassrooms.safetynet.repository.FireStationRepository;
+import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.PersonRepository;
+import com.openclassrooms.safetynet.service.FireStationServiceImpl;
+import com.openclassrooms.safetynet.service.MedicalRecordServiceImpl;
+import com.openclassrooms.safetynet.service.PersonServiceImpl;
+import com.openclassrooms.safetynet.service.Mapper.PersonMapperImpl;
+import com.openclassrooms.safetynet.utils.AgeEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the read methods of the person service, on synthetic data of 10k, 100k and 1M people.
+ * The data has 4 people per address (2 adults and 2 children), 10 cities and 1000 fire stations,
+ * so a station covers persons / 1000 people whatever the size of the data.
+ * Run with mvn -P jmh test-compile exec:exec, the gc profiler reporting the allocation rate of each method,
+ * or select some benchmarks with -Djmh.args="-prof gc -p persons=10000 getMailsByCity".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class PersonServiceBenchmark {
+
+    private static final int HOUSEHOLD_SIZE = 4;
+    private static final int CITIES = 10;
+    private static final int STATIONS = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    private int persons;
+
+    private PersonServiceImpl personService;
+    private String address;
+    private int station;
+    private List<Integer> floodStations;
+    private String city;
+    private Person person;
+
+
+    @Setup
+    public void setUp() {
+        List<Person> personList = new ArrayList<>(persons);
+        List<MedicalRecord> medicalRecordList = new ArrayList<>(persons);
+        List<FireStation> fireStationList = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        int addresses = persons / HOUSEHOLD_SIZE;
+
+        for (int a = 0; a < addresses; a++) {
+            String street = a + " Culver St";
+            String lastName = "Last" + a;
+            fireStationList.add(new FireStation(street, a % STATIONS + 1));
+            for (int m = 0; m < HOUSEHOLD_SIZE; m++) {
+                String firstName = "First" + m;
+                personList.add(new Person(firstName, lastName, street, "City" + a % CITIES, 97451,
+                        "841-874-" + a, firstName + "." + lastName + "@email.com"));
+                LocalDate birthdate = m < 2 ? today.minusYears(40 + m) : today.minusYears(5 + m);
+                medicalRecordList.add(new MedicalRecord(firstName, lastName, birthdate, List.of("aznol:350mg"), List.of("peanut")));
+            }
+        }
+
+        DatasetHolder datasetHolder = new DatasetHolder();
+        datasetHolder.replace(Dataset.of(personList, fireStationList, medicalRecordList));
+        PersonRepository personRepository = new PersonRepository(datasetHolder);
+        MedicalRecordServiceImpl medicalRecordService = new MedicalRecordServiceImpl(new MedicalRecordRepository(datasetHolder));
+        FireStationServiceImpl fireStationService = new FireStationServiceImpl(new FireStationRepository(datasetHolder));
+        personService = new PersonServiceImpl(personRepository, medicalRecordService, fireStationService, new PersonMapperImpl(),
+                new AgeGroupRepository(datasetHolder, new AgeEngine()));
+
+        person = personList.get(personList.size() / 2);
+        address = person.getAddress();
+        station = fireStationService.getAllFireStation().get(addresses / 2).getStation();
+        floodStations = List.of(station, station % STATIONS + 1, (station + 1) % STATIONS + 1);
+        city = person.getCity();
+    }
+
+
+    @Benchmark
+    public PersonsConcernedByFireStationDTO findPeopleConcernedByFireStation() throws Exception {
+        return personService.findPeopleConcernedByFireStation(station);
+    }
+
+
+    @Benchmark
+    public List<PersonWithAgeAndFamilyMembersDTO> findChildrenByAddress() throws Exception {
+        return personService.findChildrenByAddress(address);
+    }
+
+
+    @Benchmark
+    public List<String> findPhoneNumberByFireStationNumber() throws Exception {
+        return personService.findPhoneNumberByFireStationNumber(station);
+    }
+
+
+    @Benchmark
+    public FireDTO findAllPeopleInFireCase() throws Exception {
+        return personService.findAllPeopleInFireCase(address);
+    }
+
+
+    @Benchmark
+    public Map<String, List<PersonWithMedicalRecordDTO>> findAllPeopleInFloodCase() throws Exception {
+        return personService.findAllPeopleInFloodCase(floodStations);
+    }
+
+
+    @Benchmark
+    public List<PersonInfoDTO> getPersonInfo() throws Exception {
+        return personService.getPersonInfo(person.getFirstName(), person.getLastName());
+    }
+
+
+    @Benchmark
+    public List<String> getMailsByCity() throws Exception {
+        return personService.getMailsByCity(city);
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.openclassrooms.safetynet.configuration;
+
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Filter pinning the latest version of the data for the whole of a GET request,
+ * so an endpoint reading several repositories never mixes the data of two versions,
+ * for example a person and the medical record of a person deleted in the meantime.
+ * The other requests change the data and always read the latest version.
+ */
+@Component
+public class ConsistentReadFilter extends OncePerRequestFilter {
+
+    private final ObjectProvider<DatasetHolder> datasetHolder;
+
+    public ConsistentReadFilter(ObjectProvider<DatasetHolder> datasetHolder) {
+        this.datasetHolder = datasetHolder;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        DatasetHolder holder = datasetHolder.getIfAvailable();
+        if (holder == null || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        holder.pin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            holder.unpin();
+        }
+    }
+
+}
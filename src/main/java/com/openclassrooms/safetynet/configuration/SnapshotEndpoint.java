@@ -0,0 +1,35 @@
+package com.openclassrooms.safetynet.configuration;
+
+import com.openclassrooms.safetynet.utils.DataSnapshot;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Actuator endpoint saving a binary snapshot of the data on demand, with POST /actuator/snapshot.
+ * The endpoint writes on the disk of the server and isn't secured, so it is disabled unless
+ * management.endpoint.snapshot.enabled is true and snapshot is added to management.endpoints.web.exposure.include.
+ */
+@Component
+@Endpoint(id = "snapshot", enableByDefault = false)
+public class SnapshotEndpoint {
+
+    private final DataSnapshot dataSnapshot;
+
+    public SnapshotEndpoint(DataSnapshot dataSnapshot) {
+        this.dataSnapshot = dataSnapshot;
+    }
+
+    @WriteOperation
+    public Map<String, Object> save() throws IOException {
+        if (!dataSnapshot.isEnabled()) {
+            throw new IllegalStateException("No snapshot file is configured");
+        }
+        long size = dataSnapshot.save();
+        return Map.of("file", dataSnapshot.getPath().getFileName().toString(), "size", size);
+    }
+
+}
@@ -7,13 +7,17 @@ import com.openclassrooms.safetynet.dto.PersonWithAgeAndFamilyMembersDTO;
 import com.openclassrooms.safetynet.exception.FireStationNotFoundException;
 import com.openclassrooms.safetynet.exception.MedicalRecordNotFoundException;
 import com.openclassrooms.safetynet.exception.PersonNotFoundException;
+import com.openclassrooms.safetynet.repository.QueryVersionRepository;
 import com.openclassrooms.safetynet.service.PersonService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -21,27 +25,49 @@ public class AlertController {
 
     private Logger logger = LoggerFactory.getLogger(AlertController.class);
     private final PersonService personService;
+    private final QueryVersionRepository queryVersionRepository;
+    private final ResponseCache responseCache;
     private final ObjectMapper mapper;
 
 
-    public AlertController(PersonService personService, ObjectMapper mapper) {
+    public AlertController(PersonService personService, QueryVersionRepository queryVersionRepository, ResponseCache responseCache,
+                           ObjectMapper mapper) {
         this.personService = personService;
+        this.queryVersionRepository = queryVersionRepository;
+        this.responseCache = responseCache;
         this.mapper = mapper.enable(SerializationFeature.INDENT_OUTPUT);
     }
 
 
     @GetMapping("/childAlert")
-    public List<PersonWithAgeAndFamilyMembersDTO> getchildrenList(@RequestParam String address) throws MedicalRecordNotFoundException, PersonNotFoundException, JsonProcessingException {
+    public ResponseEntity<byte[]> getchildrenList(@RequestParam String address, WebRequest request) throws MedicalRecordNotFoundException, PersonNotFoundException, JsonProcessingException {
         logger.info("GET /childAlert called to collect children at {}", address);
+        String version = this.queryVersionRepository.getAddressVersion(address);
+        if (request.checkNotModified(version)) {
+            logger.info("Not modified since the version {} of the client", version);
+            return null;
+        }
+        byte[] cached = this.responseCache.get("/childAlert?address=" + address, version);
+        if (cached != null) {
+            logger.info("Process end successfully with the cached response of version {}", version);
+            return ResponseCache.ok(cached);
+        }
         List<PersonWithAgeAndFamilyMembersDTO> childrenListResult = this.personService.findChildrenByAddress(address);
-        logger.info("Process end successfully with response: {}", mapper.writeValueAsString(childrenListResult));
-        return childrenListResult;
+        byte[] response = mapper.writeValueAsBytes(childrenListResult);
+        logger.info("Process end successfully with response: {}", new String(response, StandardCharsets.UTF_8));
+        this.responseCache.put("/childAlert?address=" + address, version, response);
+        return ResponseCache.ok(response);
     }
 
 
     @GetMapping("/phoneAlert")
-    public List<String> getPeoplePhoneNumberByFIreStationNumber(@RequestParam(name = "firestation") int station) throws FireStationNotFoundException, JsonProcessingException {
+    public List<String> getPeoplePhoneNumberByFIreStationNumber(@RequestParam(name = "firestation") int station, WebRequest request) throws FireStationNotFoundException, JsonProcessingException {
         logger.info("GET /phoneAlert to collect the telephone number of the people concerned by fire station number {}", station);
+        String version = this.queryVersionRepository.getStationPhonesVersion(station);
+        if (request.checkNotModified(version)) {
+            logger.info("Not modified since the version {} of the client", version);
+            return null;
+        }
         List<String> phoneNumberList = this.personService.findPhoneNumberByFireStationNumber(station);
         logger.info("Process end successfully with response: {}", mapper.writeValueAsString(phoneNumberList));
         return phoneNumberList;
@@ -0,0 +1,36 @@
+package com.openclassrooms.safetynet.controller;
+
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
+import com.openclassrooms.safetynet.repository.Changes;
+import com.openclassrooms.safetynet.service.ChangeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class ChangeController {
+
+    private final Logger logger = LoggerFactory.getLogger(ChangeController.class);
+    private final ChangeService changeService;
+
+
+    public ChangeController(ChangeService changeService) {
+        this.changeService = changeService;
+    }
+
+
+    /**
+     * Get the changes made after the last sequence known by the client, to pass with the epoch to the next request
+     */
+    @GetMapping("/changes")
+    public Changes getChanges(@RequestParam long since, @RequestParam(required = false) String epoch) throws InvalidListingRequestException {
+        logger.info("GET /changes called to retrieve the changes after {}", since);
+        Changes changes = this.changeService.getChangesSince(since, epoch);
+        logger.info("Process end successfully with {} changes up to {}{}", changes.getChanges().size(), changes.getLastSequence(),
+                changes.isResync() ? ", resync required" : "");
+        return changes;
+    }
+
+}
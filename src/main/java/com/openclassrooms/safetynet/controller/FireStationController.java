@@ -3,17 +3,23 @@ package com.openclassrooms.safetynet.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
 import com.openclassrooms.safetynet.exception.FireStationAlreadyExistException;
 import com.openclassrooms.safetynet.exception.FireStationNotFoundException;
 import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.repository.Page;
 import com.openclassrooms.safetynet.service.FireStationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/firestation")
@@ -31,12 +37,29 @@ public class FireStationController {
     }
 
 
+    /**
+     * Stream all the fire stations, as a JSON array or as newline-delimited JSON if application/x-ndjson is accepted.
+     * Given a cursor or a limit, stream a page of the fire stations in their order of registration, with the cursor
+     * of the next page in the X-Next-Cursor header, and given fields, only write these fields of each element.
+     */
     @GetMapping("/all")
-    public List<FireStation> getAllFireStations() throws JsonProcessingException {
+    public void getAllFireStations(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                   @RequestParam(required = false) String cursor,
+                                   @RequestParam(required = false) Integer limit,
+                                   @RequestParam(required = false) String fields,
+                                   HttpServletResponse response) throws IOException, InvalidListingRequestException {
         logger.info("GET /firestation/all called");
-        List<FireStation> response = this.fireStationService.getAllFireStation();
-        logger.info("Process end successfully with response: {}", mapper.writeValueAsString(response));
-        return response;
+        Set<String> projection = ListStreamer.projection(mapper, FireStation.class, fields);
+        List<FireStation> fireStations;
+        if (cursor == null && limit == null) {
+            fireStations = this.fireStationService.getAllFireStation();
+        } else {
+            Page<FireStation> page = this.fireStationService.getFireStationsPage(cursor, limit);
+            ListStreamer.writePageHeaders(response, page);
+            fireStations = page.getElements();
+        }
+        ListStreamer.write(accept, response, mapper, fireStations, projection);
+        logger.info("Process end successfully with {} fire stations", fireStations.size());
     }
 
 
@@ -0,0 +1,171 @@
+package com.openclassrooms.safetynet.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
+import com.openclassrooms.safetynet.repository.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a list in the response one element at a time with a JsonGenerator, instead of letting the message converter
+ * serialize the whole list in memory first: the memory used by a request doesn't depend on the size of the list,
+ * and the first bytes are sent as soon as the response buffer is full.
+ * The list is written as a JSON array, or as newline-delimited JSON if the client accepts application/x-ndjson.
+ * The lists of the repositories are immutable versions of the data, so a list is written as it was read
+ * whatever the changes made while it is written.
+ * The elements can be projected on some of their fields, and a page of a listing gives the cursor of the next page
+ * in the X-Next-Cursor header.
+ */
+final class ListStreamer {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private ListStreamer() {
+    }
+
+
+    /**
+     * Method that takes the Accept header of a request and returns whether the client asks for newline-delimited JSON
+     *
+     * @param accept the Accept header, null if the request has none
+     * @return true if application/x-ndjson is accepted
+     */
+    static boolean acceptsNdjson(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Method that writes a list in the response, as a JSON array or as newline-delimited JSON
+     *
+     * @param accept   the Accept header of the request
+     * @param response
+     * @param mapper   the object mapper of the application, indenting the JSON array if INDENT_OUTPUT is enabled
+     * @param list
+     * @throws IOException if the response can't be written
+     */
+    static void write(String accept, HttpServletResponse response, ObjectMapper mapper, List<?> list) throws IOException {
+        write(accept, response, mapper, list, null);
+    }
+
+
+    /**
+     * Method that writes a list in the response, each element being reduced to the given fields
+     *
+     * @param accept   the Accept header of the request
+     * @param response
+     * @param mapper   the object mapper of the application, indenting the JSON array if INDENT_OUTPUT is enabled
+     * @param list
+     * @param fields   the fields to write, given by projection, null to write the whole elements
+     * @throws IOException if the response can't be written
+     */
+    static void write(String accept, HttpServletResponse response, ObjectMapper mapper, List<?> list, Set<String> fields) throws IOException {
+        boolean ndjson = acceptsNdjson(accept);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (ndjson) {
+                generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                writer = writer.without(SerializationFeature.INDENT_OUTPUT);
+                for (Object element : list) {
+                    writer.writeValue(generator, project(mapper, element, fields));
+                }
+                if (!list.isEmpty()) {
+                    generator.writeRaw('\n');
+                }
+            } else {
+                if (mapper.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+                    generator.useDefaultPrettyPrinter();
+                }
+                generator.writeStartArray();
+                for (Object element : list) {
+                    writer.writeValue(generator, project(mapper, element, fields));
+                }
+                generator.writeEndArray();
+            }
+        }
+    }
+
+
+    private static Object project(ObjectMapper mapper, Object element, Set<String> fields) {
+        if (fields == null) {
+            return element;
+        }
+        ObjectNode node = mapper.valueToTree(element);
+        return node.retain(fields);
+    }
+
+
+    /**
+     * Method that takes the fields parameter of a request and returns the fields to write
+     *
+     * @param mapper
+     * @param type   the class of the elements of the list
+     * @param fields comma-separated names of JSON properties of the class, null to write the whole elements
+     * @return the names of the fields, or null to write the whole elements
+     * @throws InvalidListingRequestException if a name is not a property of the class
+     */
+    static Set<String> projection(ObjectMapper mapper, Class<?> type, String fields) throws InvalidListingRequestException {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> properties = mapper.getSerializationConfig().introspect(mapper.constructType(type)).findProperties().stream()
+                .map(BeanPropertyDefinition::getName)
+                .collect(Collectors.toSet());
+        Set<String> projection = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!properties.contains(name)) {
+                throw new InvalidListingRequestException("Unknown field " + name + ", the fields are " + properties);
+            }
+            projection.add(name);
+        }
+        return projection;
+    }
+
+
+    /**
+     * Method that gives the cursor of the next page in the X-Next-Cursor header, and in a Link header
+     * if more elements were already registered when the page was read
+     *
+     * @param response
+     * @param page
+     */
+    static void writePageHeaders(HttpServletResponse response, Page<?> page) {
+        String next = page.getNext().encode();
+        response.setHeader(NEXT_CURSOR_HEADER, next);
+        if (page.hasMore()) {
+            String uri = ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("cursor", next).toUriString();
+            response.setHeader(HttpHeaders.LINK, "<" + uri + ">; rel=\"next\"");
+        }
+    }
+
+}
@@ -3,18 +3,24 @@ package com.openclassrooms.safetynet.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
 import com.openclassrooms.safetynet.exception.MedicalRecordAlreadyExistException;
 import com.openclassrooms.safetynet.exception.MedicalRecordNotFoundException;
 import com.openclassrooms.safetynet.model.MedicalRecord;
 import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.Page;
 import com.openclassrooms.safetynet.service.MedicalRecordService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/medicalRecord")
@@ -31,12 +37,29 @@ public class MedicalRecordController {
     }
 
 
+    /**
+     * Stream all the medical records, as a JSON array or as newline-delimited JSON if application/x-ndjson is accepted.
+     * Given a cursor or a limit, stream a page of the medical records in their order of registration, with the cursor
+     * of the next page in the X-Next-Cursor header, and given fields, only write these fields of each element.
+     */
     @GetMapping("/all")
-    public List<MedicalRecord> getMedicalRecords() throws JsonProcessingException {
+    public void getMedicalRecords(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(required = false) Integer limit,
+                                  @RequestParam(required = false) String fields,
+                                  HttpServletResponse response) throws IOException, InvalidListingRequestException {
         logger.info("GET /medicalRecord/all called");
-        List<MedicalRecord> response = this.medicalRecordService.getAllMedicalRecords();
-        logger.info("Process end successfully with response: {}", mapper.writeValueAsString(response));
-        return response;
+        Set<String> projection = ListStreamer.projection(mapper, MedicalRecord.class, fields);
+        List<MedicalRecord> medicalRecords;
+        if (cursor == null && limit == null) {
+            medicalRecords = this.medicalRecordService.getAllMedicalRecords();
+        } else {
+            Page<MedicalRecord> page = this.medicalRecordService.getMedicalRecordsPage(cursor, limit);
+            ListStreamer.writePageHeaders(response, page);
+            medicalRecords = page.getElements();
+        }
+        ListStreamer.write(accept, response, mapper, medicalRecords, projection);
+        logger.info("Process end successfully with {} medical records", medicalRecords.size());
     }
 
 
@@ -3,17 +3,23 @@ package com.openclassrooms.safetynet.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
 import com.openclassrooms.safetynet.exception.PersonAlreadyExistException;
 import com.openclassrooms.safetynet.exception.PersonNotFoundException;
 import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.Page;
 import com.openclassrooms.safetynet.service.PersonService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 
 @RestController
@@ -30,12 +36,29 @@ public class PersonController {
     }
 
 
+    /**
+     * Stream all the people, as a JSON array or as newline-delimited JSON if application/x-ndjson is accepted.
+     * Given a cursor or a limit, stream a page of the people in their order of registration, with the cursor
+     * of the next page in the X-Next-Cursor header, and given fields, only write these fields of each element.
+     */
     @GetMapping("/person/all")
-    public List<Person> getPersons() throws JsonProcessingException {
+    public void getPersons(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                           @RequestParam(required = false) String cursor,
+                           @RequestParam(required = false) Integer limit,
+                           @RequestParam(required = false) String fields,
+                           HttpServletResponse response) throws IOException, InvalidListingRequestException {
         logger.info("GET /person/all called");
-        List<Person> response = this.personService.getAllPerson();
-        logger.info("Process end successfully with response: {}", mapper.writeValueAsString(response));
-        return response;
+        Set<String> projection = ListStreamer.projection(mapper, Person.class, fields);
+        List<Person> persons;
+        if (cursor == null && limit == null) {
+            persons = this.personService.getAllPerson();
+        } else {
+            Page<Person> page = this.personService.getPersonsPage(cursor, limit);
+            ListStreamer.writePageHeaders(response, page);
+            persons = page.getElements();
+        }
+        ListStreamer.write(accept, response, mapper, persons, projection);
+        logger.info("Process end successfully with {} people", persons.size());
     }
 
 
@@ -0,0 +1,187 @@
+package com.openclassrooms.safetynet.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of the serialized answers of the queries, kept with the version of the data they were computed from,
+ * so a hit skips both the service and the serialization.
+ * The versions are the ones given by the query version repository, which only change with the people,
+ * medical records and fire stations a query reads: an answer is invalid as soon as one of them changes,
+ * and is dropped the next time it is asked for, or earlier when it is the least recently used answer
+ * of its segment and the size of the segment exceeds its share of the capacity.
+ * The answers are split by key into segments with their own lock, so the requests reading different answers
+ * don't wait for each other, each segment keeping its answers in their order of use.
+ */
+@Component
+public class ResponseCache {
+
+    private static final int SEGMENTS = 16;
+    // estimate of the memory used by an entry besides its key, its version and its body
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static final class Entry {
+
+        private final String version;
+        private final byte[] body;
+        private final long size;
+
+        private Entry(String key, String version, byte[] body) {
+            this.version = version;
+            this.body = body;
+            this.size = 2L * (key.length() + version.length()) + body.length + ENTRY_OVERHEAD;
+        }
+
+    }
+
+    @Autowired
+    public ResponseCache(@Value("${safetynet.cache.capacity:16777216}") long capacity) {
+        this(capacity, SEGMENTS);
+    }
+
+    /**
+     * @param capacity the total estimated size of the cached answers, in bytes, shared equally by the segments
+     * @param segments the number of segments, a power of two
+     */
+    ResponseCache(long capacity, int segments) {
+        if (Integer.bitCount(segments) != 1) {
+            throw new IllegalArgumentException("The number of segments must be a power of two: " + segments);
+        }
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment(capacity / segments);
+        }
+    }
+
+
+    /**
+     * Method that takes the key of a query and the current version of its answer, and returns the cached answer
+     *
+     * @param key     the endpoint and the parameters of the query
+     * @param version the version of the answer in the data read by the request
+     * @return the serialized answer, or null if it isn't cached or if it was computed from another version
+     */
+    public byte[] get(String key, String version) {
+        byte[] body = this.segmentOf(key).get(key, version);
+        (body == null ? this.misses : this.hits).increment();
+        return body;
+    }
+
+
+    /**
+     * Method that caches the answer of a query, and evicts the least recently used answers of its segment
+     * beyond the capacity of the segment. An answer larger than the capacity of a segment is not cached.
+     *
+     * @param key     the endpoint and the parameters of the query
+     * @param version the version of the data the answer was computed from
+     * @param body    the serialized answer, which must not be modified once cached
+     */
+    public void put(String key, String version, byte[] body) {
+        if (version == null) {
+            return;
+        }
+        this.segmentOf(key).put(key, new Entry(key, version, body));
+    }
+
+
+    /**
+     * Method that takes a serialized answer and returns the response writing it as it is
+     *
+     * @param body the answer serialized in JSON
+     * @return the response, its body not being serialized again
+     */
+    static ResponseEntity<byte[]> ok(byte[] body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+
+    private Segment segmentOf(String key) {
+        int hash = key.hashCode();
+        return this.segments[(hash ^ (hash >>> 16)) & (this.segments.length - 1)];
+    }
+
+
+    /**
+     * @return the total estimated size of the cached answers, in bytes
+     */
+    public long getSize() {
+        long size = 0;
+        for (Segment segment : this.segments) {
+            size += segment.getSize();
+        }
+        return size;
+    }
+
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+
+    /**
+     * Answers of a part of the keys, in their order of use, guarded by the lock of the segment
+     */
+    private static final class Segment {
+
+        private final long capacity;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long size;
+
+        private Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        private synchronized byte[] get(String key, String version) {
+            Entry entry = this.entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.version.equals(version)) {
+                this.entries.remove(key);
+                this.size -= entry.size;
+                return null;
+            }
+            return entry.body;
+        }
+
+        private synchronized void put(String key, Entry entry) {
+            Entry previous = this.entries.remove(key);
+            if (previous != null) {
+                this.size -= previous.size;
+            }
+            if (entry.size > this.capacity) {
+                return;
+            }
+            this.entries.put(key, entry);
+            this.size += entry.size;
+            Iterator<Map.Entry<String, Entry>> eldest = this.entries.entrySet().iterator();
+            while (this.size > this.capacity) {
+                this.size -= eldest.next().getValue().size;
+                eldest.remove();
+            }
+        }
+
+        private synchronized long getSize() {
+            return this.size;
+        }
+
+    }
+
+}
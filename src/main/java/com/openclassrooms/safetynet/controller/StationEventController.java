@@ -0,0 +1,34 @@
+package com.openclassrooms.safetynet.controller;
+
+import com.openclassrooms.safetynet.service.StationEventBroadcaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+public class StationEventController {
+
+    private final Logger logger = LoggerFactory.getLogger(StationEventController.class);
+    private final StationEventBroadcaster stationEventBroadcaster;
+
+
+    public StationEventController(StationEventBroadcaster stationEventBroadcaster) {
+        this.stationEventBroadcaster = stationEventBroadcaster;
+    }
+
+
+    /**
+     * Subscribe to the server-sent events of a fire station: a snapshot of the people it covers,
+     * then the people removed and added and the new counts at each change
+     */
+    @GetMapping(value = "/firestation/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam int stationNumber) {
+        logger.info("GET /firestation/events called to subscribe to the changes of the fire station number {}", stationNumber);
+        return this.stationEventBroadcaster.subscribe(stationNumber);
+    }
+
+}
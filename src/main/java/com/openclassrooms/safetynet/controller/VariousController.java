@@ -10,13 +10,17 @@ import com.openclassrooms.safetynet.dto.PersonsConcernedByFireStationDTO;
 import com.openclassrooms.safetynet.exception.FireStationNotFoundException;
 import com.openclassrooms.safetynet.exception.MailsNotFoundException;
 import com.openclassrooms.safetynet.exception.PersonNotFoundException;
+import com.openclassrooms.safetynet.repository.QueryVersionRepository;
 import com.openclassrooms.safetynet.service.PersonService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -25,18 +29,28 @@ public class VariousController {
 
     private final Logger logger = LoggerFactory.getLogger(VariousController.class);
     private final PersonService personService;
+    private final QueryVersionRepository queryVersionRepository;
+    private final ResponseCache responseCache;
     private final ObjectMapper mapper;
 
 
-    public VariousController(PersonService personService, ObjectMapper mapper) {
+    public VariousController(PersonService personService, QueryVersionRepository queryVersionRepository, ResponseCache responseCache,
+                             ObjectMapper mapper) {
         this.personService = personService;
+        this.queryVersionRepository = queryVersionRepository;
+        this.responseCache = responseCache;
         this.mapper = mapper.enable(SerializationFeature.INDENT_OUTPUT);
     }
 
 
     @GetMapping("/firestation")
-    public PersonsConcernedByFireStationDTO getPeopleConcernedByFiresStation(@RequestParam int stationNumber) throws FireStationNotFoundException, JsonProcessingException {
+    public PersonsConcernedByFireStationDTO getPeopleConcernedByFiresStation(@RequestParam int stationNumber, WebRequest request) throws FireStationNotFoundException, JsonProcessingException {
         logger.info("GET /firestation called to get people concerned by the fire station number {} ", stationNumber);
+        String version = this.queryVersionRepository.getStationVersion(stationNumber);
+        if (request.checkNotModified(version)) {
+            logger.info("Not modified since the version {} of the client", version);
+            return null;
+        }
         PersonsConcernedByFireStationDTO personsConcernedByFireStation = this.personService.findPeopleConcernedByFireStation(stationNumber);
         logger.info("Process end successfully with response: {}", mapper.writeValueAsString(personsConcernedByFireStation));
         return personsConcernedByFireStation;
@@ -44,26 +58,55 @@ public class VariousController {
 
 
     @GetMapping("/fire")
-    public FireDTO getPeopleListInFireCase(@RequestParam String address) throws PersonNotFoundException, FireStationNotFoundException, JsonProcessingException {
+    public ResponseEntity<byte[]> getPeopleListInFireCase(@RequestParam String address, WebRequest request) throws PersonNotFoundException, FireStationNotFoundException, JsonProcessingException {
         logger.info("GET /fire called to retrieve people at {} in the event of fire", address);
+        String version = this.queryVersionRepository.getAddressVersion(address);
+        if (request.checkNotModified(version)) {
+            logger.info("Not modified since the version {} of the client", version);
+            return null;
+        }
+        byte[] cached = this.responseCache.get("/fire?address=" + address, version);
+        if (cached != null) {
+            logger.info("Process end successfully with the cached response of version {}", version);
+            return ResponseCache.ok(cached);
+        }
         FireDTO peopleList = this.personService.findAllPeopleInFireCase(address);
-        logger.info("Process end successfully with response: {}", mapper.writeValueAsString(peopleList));
-        return peopleList;
+        byte[] response = mapper.writeValueAsBytes(peopleList);
+        logger.info("Process end successfully with response: {}", new String(response, StandardCharsets.UTF_8));
+        this.responseCache.put("/fire?address=" + address, version, response);
+        return ResponseCache.ok(response);
     }
 
 
     @GetMapping("/flood/stations")
-    public Map<String, List<PersonWithMedicalRecordDTO>> getPeopleListInFloodCase(@RequestParam List<Integer> stations) throws PersonNotFoundException, FireStationNotFoundException, JsonProcessingException {
+    public ResponseEntity<byte[]> getPeopleListInFloodCase(@RequestParam List<Integer> stations, WebRequest request) throws PersonNotFoundException, FireStationNotFoundException, JsonProcessingException {
         stations.forEach(station -> logger.info("GET /flood/stations called to find people concerned by the fire station number {} in the event of flooding", station));
+        String version = this.queryVersionRepository.getStationsVersion(stations);
+        if (request.checkNotModified(version)) {
+            logger.info("Not modified since the version {} of the client", version);
+            return null;
+        }
+        byte[] cached = this.responseCache.get("/flood/stations?stations=" + stations, version);
+        if (cached != null) {
+            logger.info("Process end successfully with the cached response of version {}", version);
+            return ResponseCache.ok(cached);
+        }
         Map<String, List<PersonWithMedicalRecordDTO>> peopleList = this.personService.findAllPeopleInFloodCase(stations);
-        logger.info("Process end successfully with response: {}", mapper.writeValueAsString(peopleList));
-        return peopleList;
+        byte[] response = mapper.writeValueAsBytes(peopleList);
+        logger.info("Process end successfully with response: {}", new String(response, StandardCharsets.UTF_8));
+        this.responseCache.put("/flood/stations?stations=" + stations, version, response);
+        return ResponseCache.ok(response);
     }
 
 
     @GetMapping("/personInfo")
-    public List<PersonInfoDTO> getPersonInfo(@RequestParam String firstName, @RequestParam String lastName) throws PersonNotFoundException, JsonProcessingException {
+    public List<PersonInfoDTO> getPersonInfo(@RequestParam String firstName, @RequestParam String lastName, WebRequest request) throws PersonNotFoundException, JsonProcessingException {
         logger.info("GET /personInfo called to retrieve {} {}'s information", firstName, lastName);
+        String version = this.queryVersionRepository.getLastNameVersion(lastName);
+        if (request.checkNotModified(version)) {
+            logger.info("Not modified since the version {} of the client", version);
+            return null;
+        }
         List<PersonInfoDTO> personInfoList = this.personService.getPersonInfo(firstName, lastName);
         logger.info("Process end successfully with response: {}", mapper.writeValueAsString(personInfoList));
         return personInfoList;
@@ -71,8 +114,13 @@ public class VariousController {
 
 
     @GetMapping("/communityEmail")
-    public List<String> getCommunityEmail(@RequestParam String city) throws MailsNotFoundException, JsonProcessingException {
+    public List<String> getCommunityEmail(@RequestParam String city, WebRequest request) throws MailsNotFoundException, JsonProcessingException {
         logger.info("GET /communityEmail called to collect all people's emails for the city {}", city);
+        String version = this.queryVersionRepository.getCityVersion(city);
+        if (request.checkNotModified(version)) {
+            logger.info("Not modified since the version {} of the client", version);
+            return null;
+        }
         List<String> response = this.personService.getMailsByCity(city);
         logger.info("Process end successfully with response: {}", mapper.writeValueAsString(response));
         return response;
@@ -0,0 +1,22 @@
+package com.openclassrooms.safetynet.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class StationEventDTO {
+    private int station;
+    // version of the data the event brings the subscriber to
+    private long version;
+    private List<PersonWithAddressAndPhoneDTO> added;
+    private List<PersonWithAddressAndPhoneDTO> removed;
+    private int children;
+    private int adults;
+}
@@ -98,4 +98,15 @@ public class ApiExceptionHandler {
     }
 
 
+    @ExceptionHandler(value = {InvalidListingRequestException.class})
+    public ResponseEntity<Object> handleInvalidListingRequestException(InvalidListingRequestException e) {
+        ApiException apiException = new ApiException(
+                e.getMessage(),
+                HttpStatus.BAD_REQUEST,
+                LocalDateTime.now()
+        );
+        return new ResponseEntity<>(apiException, HttpStatus.BAD_REQUEST);
+    }
+
+
 }
@@ -0,0 +1,7 @@
+package com.openclassrooms.safetynet.exception;
+
+public class InvalidListingRequestException extends Exception {
+    public InvalidListingRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,325 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable classification of the residents of each address and of each fire station as children or adults.
+ * The residents of an address are kept with their medical records, in the order of the address index of the people.
+ * The residents of a station are kept as a list of members, in the order they joined the station, grouped by address
+ * when the index is built in bulk, and as the sorted keys of the days they become adults: the adults of a station
+ * are the keys up to today's key, found by a binary search. Nothing depends on today's date, so the index
+ * stays right across midnight, and a change of a person, a medical record or a fire station only updates
+ * the address and the stations it concerns.
+ */
+public final class AgeGroupIndex {
+
+    static final AgeGroupIndex EMPTY = new AgeGroupIndex(ShardedMap.empty(), ShardedMap.empty(), ShardedMap.empty());
+
+    private static final int[] NO_KEYS = new int[0];
+
+    private final ShardedMap<String, List<Resident>> residentsByAddress;
+    private final ShardedMap<Integer, List<Resident>> residentsByStation;
+    // keys of the days the residents with a medical record become adults, in ascending order
+    private final ShardedMap<Integer, int[]> adultFromByStation;
+
+    private AgeGroupIndex(ShardedMap<String, List<Resident>> residentsByAddress, ShardedMap<Integer, List<Resident>> residentsByStation,
+                          ShardedMap<Integer, int[]> adultFromByStation) {
+        this.residentsByAddress = residentsByAddress;
+        this.residentsByStation = residentsByStation;
+        this.adultFromByStation = adultFromByStation;
+    }
+
+    static AgeGroupIndex of(PersonStore personStore, FireStationStore fireStationStore, MedicalRecordStore medicalRecordStore) {
+        ShardedMap.Builder<String, List<Resident>> residentsByAddress = new ShardedMap.Builder<>();
+        for (Person person : personStore.getPersons()) {
+            MedicalRecord medicalRecord = medicalRecordStore.findMedicalRecordByFirstNameAndLastName(person.getFirstName(), person.getLastName());
+            ImmutableLists.addToBucket(residentsByAddress, person.getAddress(), new Resident(person, medicalRecord));
+        }
+
+        Map<Integer, List<Resident>> residentsByStation = new HashMap<>();
+        for (FireStation fireStation : new LinkedHashSet<>(fireStationStore.getFireStations())) {
+            List<Resident> residents = residentsByAddress.get(fireStation.getAddress());
+            if (residents != null) {
+                residentsByStation.computeIfAbsent(fireStation.getStation(), station -> new ArrayList<>()).addAll(residents);
+            }
+        }
+        ShardedMap.Builder<Integer, List<Resident>> stationIndex = new ShardedMap.Builder<>();
+        ShardedMap.Builder<Integer, int[]> adultFromByStation = new ShardedMap.Builder<>();
+        residentsByStation.forEach((station, residents) -> {
+            int[] keys = residents.stream()
+                    .filter(Resident::hasMedicalRecord)
+                    .mapToInt(Resident::getAdultFrom)
+                    .sorted()
+                    .toArray();
+            stationIndex.put(station, residents);
+            adultFromByStation.put(station, keys);
+        });
+        return new AgeGroupIndex(residentsByAddress.build(), stationIndex.build(), adultFromByStation.build());
+    }
+
+
+    /**
+     * Method that takes an address and returns the people living at this address
+     *
+     * @param address
+     * @return an unmodifiable list of residents, in the order of the address index of the people
+     */
+    public List<Resident> getResidentsByAddress(String address) {
+        List<Resident> residents = this.residentsByAddress.get(address);
+        return residents == null ? List.of() : ImmutableLists.freeze(residents);
+    }
+
+
+    /**
+     * Method that takes a station number and returns the people covered by the station
+     *
+     * @param stationNumber
+     * @return an unmodifiable list of residents, in the order they joined the station
+     */
+    public List<Resident> getResidentsByStation(int stationNumber) {
+        List<Resident> residents = this.residentsByStation.get(stationNumber);
+        return residents == null ? List.of() : ImmutableLists.freeze(residents);
+    }
+
+
+    /**
+     * Method that takes a station number and today's key and returns the number of children and adults
+     * with a medical record covered by the station
+     *
+     * @param stationNumber
+     * @param todayKey
+     * @return the number of children and adults
+     */
+    public AgeGroups countAgeGroupsByStation(int stationNumber, int todayKey) {
+        int[] keys = this.adultFromByStation.get(stationNumber);
+        if (keys == null) {
+            return new AgeGroups(0, 0);
+        }
+        int adults = upperBound(keys, todayKey);
+        return new AgeGroups(keys.length - adults, adults);
+    }
+
+
+    /**
+     * Method that takes the previous and the current version of a person and returns the index updated
+     * with this change, the person being moved to the end of the residents of the current address
+     * as in the address index of the people
+     *
+     * @param previous         the previous version, null if the person is added
+     * @param current          the current version, null if the person is deleted
+     * @param fireStationStore
+     * @param medicalRecordStore
+     * @return the new index
+     */
+    AgeGroupIndex withPersonChange(Person previous, Person current, FireStationStore fireStationStore, MedicalRecordStore medicalRecordStore) {
+        ShardedMap<String, List<Resident>> residentsByAddress = this.residentsByAddress;
+        ShardedMap<Integer, List<Resident>> residentsByStation = this.residentsByStation;
+        ShardedMap<Integer, int[]> adultFromByStation = this.adultFromByStation;
+        Resident previousResident = previous == null ? null : find(residentsByAddress.get(previous.getAddress()), previous);
+        boolean sameStations = previousResident != null && current != null && Objects.equals(previous.getAddress(), current.getAddress());
+
+        if (previousResident != null) {
+            residentsByAddress = ImmutableLists.removeFromBucket(residentsByAddress, previous.getAddress(), previousResident);
+            if (!sameStations) {
+                for (Integer station : fireStationStore.getStationNumbersByAddress(previous.getAddress())) {
+                    residentsByStation = ImmutableLists.removeFromBucket(residentsByStation, station, previousResident);
+                    if (previousResident.hasMedicalRecord()) {
+                        adultFromByStation = withoutKeys(adultFromByStation, station, new int[]{previousResident.getAdultFrom()});
+                    }
+                }
+            }
+        }
+        if (current != null) {
+            Resident resident = sameStations
+                    ? new Resident(current, previousResident.getMedicalRecord())
+                    : new Resident(current, medicalRecordStore.findMedicalRecordByFirstNameAndLastName(current.getFirstName(), current.getLastName()));
+            residentsByAddress = ImmutableLists.appendToBucket(residentsByAddress, current.getAddress(), resident);
+            for (Integer station : fireStationStore.getStationNumbersByAddress(current.getAddress())) {
+                if (sameStations) {
+                    residentsByStation = replaceInBucket(residentsByStation, station, previousResident, resident);
+                } else {
+                    residentsByStation = ImmutableLists.appendToBucket(residentsByStation, station, resident);
+                    if (resident.hasMedicalRecord()) {
+                        adultFromByStation = withKeys(adultFromByStation, station, new int[]{resident.getAdultFrom()});
+                    }
+                }
+            }
+        }
+        return new AgeGroupIndex(residentsByAddress, residentsByStation, adultFromByStation);
+    }
+
+
+    /**
+     * Method that takes the previous and the current version of a medical record and returns the index
+     * updated with this change
+     *
+     * @param previous         the previous version, null if the medical record is added
+     * @param current          the current version, null if the medical record is deleted
+     * @param personStore
+     * @param fireStationStore
+     * @return the new index, or this index if nobody has the name of the medical record
+     */
+    AgeGroupIndex withMedicalRecordChange(MedicalRecord previous, MedicalRecord current, PersonStore personStore, FireStationStore fireStationStore) {
+        MedicalRecord medicalRecord = current != null ? current : previous;
+        Person person = personStore.findPersonByFirstNameAndLastName(medicalRecord.getFirstName(), medicalRecord.getLastName());
+        if (person == null) {
+            return this;
+        }
+        List<Resident> residents = this.residentsByAddress.get(person.getAddress());
+        Resident previousResident = find(residents, person);
+        if (previousResident == null) {
+            return this;
+        }
+        Resident resident = new Resident(previousResident.getPerson(), current);
+        boolean keyChanged = previousResident.hasMedicalRecord() != resident.hasMedicalRecord() || previousResident.getAdultFrom() != resident.getAdultFrom();
+        ShardedMap<Integer, List<Resident>> residentsByStation = this.residentsByStation;
+        ShardedMap<Integer, int[]> adultFromByStation = this.adultFromByStation;
+        for (Integer station : fireStationStore.getStationNumbersByAddress(person.getAddress())) {
+            residentsByStation = replaceInBucket(residentsByStation, station, previousResident, resident);
+            if (keyChanged && previousResident.hasMedicalRecord()) {
+                adultFromByStation = withoutKeys(adultFromByStation, station, new int[]{previousResident.getAdultFrom()});
+            }
+            if (keyChanged && resident.hasMedicalRecord()) {
+                adultFromByStation = withKeys(adultFromByStation, station, new int[]{resident.getAdultFrom()});
+            }
+        }
+        return new AgeGroupIndex(this.residentsByAddress.with(person.getAddress(), ImmutableLists.replace(residents, previousResident, resident)),
+                residentsByStation, adultFromByStation);
+    }
+
+
+    /**
+     * Method that takes the previous and the current version of a fire station and returns the index
+     * updated with this change. An address mapped several times to the same station is counted once,
+     * so the residents are only removed from a station when its last mapping to the address is removed.
+     *
+     * @param previous         the previous version, null if the fire station is added
+     * @param current          the current version, null if the fire station is deleted
+     * @param fireStationStore the fire station store including the change
+     * @return the new index
+     */
+    AgeGroupIndex withFireStationChange(FireStation previous, FireStation current, FireStationStore fireStationStore) {
+        if (previous != null && previous.equals(current)) {
+            return this;
+        }
+        ShardedMap<Integer, List<Resident>> residentsByStation = this.residentsByStation;
+        ShardedMap<Integer, int[]> adultFromByStation = this.adultFromByStation;
+        if (previous != null && fireStationStore.countFireStations(previous) == 0) {
+            for (Resident resident : this.getResidentsByAddress(previous.getAddress())) {
+                residentsByStation = ImmutableLists.removeFromBucket(residentsByStation, previous.getStation(), resident);
+            }
+            adultFromByStation = withoutKeys(adultFromByStation, previous.getStation(), this.adultFromByAddress(previous.getAddress()));
+        }
+        if (current != null && fireStationStore.countFireStations(current) == 1) {
+            for (Resident resident : this.getResidentsByAddress(current.getAddress())) {
+                residentsByStation = ImmutableLists.appendToBucket(residentsByStation, current.getStation(), resident);
+            }
+            adultFromByStation = withKeys(adultFromByStation, current.getStation(), this.adultFromByAddress(current.getAddress()));
+        }
+        return new AgeGroupIndex(this.residentsByAddress, residentsByStation, adultFromByStation);
+    }
+
+
+    private int[] adultFromByAddress(String address) {
+        List<Resident> residents = this.residentsByAddress.get(address);
+        if (residents == null) {
+            return NO_KEYS;
+        }
+        return residents.stream().filter(Resident::hasMedicalRecord).mapToInt(Resident::getAdultFrom).sorted().toArray();
+    }
+
+
+    private static Resident find(List<Resident> residents, Person person) {
+        if (residents != null) {
+            NameKey name = NameKey.of(person);
+            for (Resident resident : residents) {
+                if (NameKey.of(resident.getPerson()).equals(name)) {
+                    return resident;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    private static ShardedMap<Integer, List<Resident>> replaceInBucket(ShardedMap<Integer, List<Resident>> index, int station,
+                                                                     Resident previous, Resident resident) {
+        List<Resident> residents = index.get(station);
+        return residents == null ? index : index.with(station, ImmutableLists.replace(residents, previous, resident));
+    }
+
+
+    /**
+     * Method that merges sorted keys into the sorted keys of a station
+     */
+    private static ShardedMap<Integer, int[]> withKeys(ShardedMap<Integer, int[]> index, int station, int[] added) {
+        if (added.length == 0) {
+            return index;
+        }
+        int[] keys = index.get(station);
+        if (keys == null) {
+            return index.with(station, added.clone());
+        }
+        int[] merged = new int[keys.length + added.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            merged[k] = j == added.length || (i < keys.length && keys[i] <= added[j]) ? keys[i++] : added[j++];
+        }
+        return index.with(station, merged);
+    }
+
+
+    /**
+     * Method that removes sorted keys, one occurrence each, from the sorted keys of a station
+     */
+    private static ShardedMap<Integer, int[]> withoutKeys(ShardedMap<Integer, int[]> index, int station, int[] removed) {
+        int[] keys = index.get(station);
+        if (keys == null || removed.length == 0) {
+            return index;
+        }
+        int[] remaining = new int[keys.length];
+        int count = 0;
+        int j = 0;
+        for (int key : keys) {
+            while (j < removed.length && removed[j] < key) {
+                j++;
+            }
+            if (j < removed.length && removed[j] == key) {
+                j++;
+            } else {
+                remaining[count++] = key;
+            }
+        }
+        return count == 0 ? index.without(station) : index.with(station, Arrays.copyOf(remaining, count));
+    }
+
+
+    /**
+     * Method that returns the number of keys lower than or equal to the given key
+     */
+    private static int upperBound(int[] keys, int key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
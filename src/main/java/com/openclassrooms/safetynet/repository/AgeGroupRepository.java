@@ -0,0 +1,87 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.utils.AgeEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The residents of the addresses and the fire stations, classified as children or adults, are read
+ * from the version of the data given by the dataset holder, without any lock.
+ * The classification is maintained by the changes of the other repositories and compared with today's key,
+ * so no birthdate is read to answer.
+ */
+@Repository
+public class AgeGroupRepository {
+
+    private final DatasetHolder datasetHolder;
+    private final AgeEngine ageEngine;
+
+    public AgeGroupRepository() {
+        this(new DatasetHolder(), new AgeEngine());
+    }
+
+    @Autowired
+    public AgeGroupRepository(DatasetHolder datasetHolder, AgeEngine ageEngine) {
+        this.datasetHolder = datasetHolder;
+        this.ageEngine = ageEngine;
+    }
+
+    private AgeGroupIndex index() {
+        return this.datasetHolder.read().getAgeGroupIndex();
+    }
+
+
+    /**
+     * Method that takes an address and returns the people living at this address with their medical records
+     *
+     * @param address
+     * @return an unmodifiable list of residents, empty if nobody lives at this address
+     */
+    public List<Resident> findResidentsByAddress(String address) {
+        return this.index().getResidentsByAddress(address);
+    }
+
+
+    /**
+     * Method that takes an address and returns the children living at this address
+     *
+     * @param address
+     * @return the residents who are 18 years old or less today
+     */
+    public List<Resident> findChildrenByAddress(String address) {
+        int todayKey = this.ageEngine.todayKey();
+        List<Resident> children = new ArrayList<>();
+        for (Resident resident : this.index().getResidentsByAddress(address)) {
+            if (resident.isChild(todayKey)) {
+                children.add(resident);
+            }
+        }
+        return children;
+    }
+
+
+    /**
+     * Method that takes a station number and returns the people covered by the station with their medical records
+     *
+     * @param stationNumber
+     * @return an unmodifiable list of residents, empty if the station covers nobody
+     */
+    public List<Resident> findResidentsByStation(int stationNumber) {
+        return this.index().getResidentsByStation(stationNumber);
+    }
+
+
+    /**
+     * Method that takes a station number and returns the number of children and adults covered by the station
+     *
+     * @param stationNumber
+     * @return the number of children and adults with a medical record
+     */
+    public AgeGroups countAgeGroupsByStation(int stationNumber) {
+        return this.index().countAgeGroupsByStation(stationNumber, this.ageEngine.todayKey());
+    }
+
+}
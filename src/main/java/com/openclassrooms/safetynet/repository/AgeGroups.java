@@ -0,0 +1,26 @@
+package com.openclassrooms.safetynet.repository;
+
+/**
+ * Number of children and of adults among the people covered by a fire station
+ */
+public final class AgeGroups {
+
+    private final int children;
+    private final int adults;
+
+    public AgeGroups(int children, int adults) {
+        this.children = children;
+        this.adults = adults;
+    }
+
+
+    public int getChildren() {
+        return this.children;
+    }
+
+
+    public int getAdults() {
+        return this.adults;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.openclassrooms.safetynet.repository;
+
+/**
+ * A mutation of a repository stamped with its sequence, the version of the data it has published
+ */
+public final class Change {
+
+    private final long sequence;
+    private final String entity;
+    private final Mutation.Type type;
+    private final Object previous;
+    private final Object current;
+
+    public Change(long sequence, String entity, Mutation<?> mutation) {
+        this.sequence = sequence;
+        this.entity = entity;
+        this.type = mutation.getType();
+        this.previous = mutation.getPrevious();
+        this.current = mutation.getCurrent();
+    }
+
+
+    public long getSequence() {
+        return this.sequence;
+    }
+
+
+    /**
+     * @return the kind of the changed record: person, fireStation or medicalRecord
+     */
+    public String getEntity() {
+        return this.entity;
+    }
+
+
+    public Mutation.Type getType() {
+        return this.type;
+    }
+
+
+    /**
+     * @return the record before the change, null for an add
+     */
+    public Object getPrevious() {
+        return this.previous;
+    }
+
+
+    /**
+     * @return the record after the change, null for a delete
+     */
+    public Object getCurrent() {
+        return this.current;
+    }
+
+}
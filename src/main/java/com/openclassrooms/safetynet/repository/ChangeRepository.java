@@ -0,0 +1,140 @@
+package com.openclassrooms.safetynet.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last changes made to the repositories, kept in a ring of bounded capacity.
+ * Each change is stamped with the version of the data it has published, so the sequences are increasing
+ * and follow the order in which the changes became visible. The changes are recorded by the listeners
+ * of the repositories, which are called by the writer holding the lock of the dataset holder.
+ * The ring only holds changes made since the data were last loaded: a reload changes the epoch of the data,
+ * and the clients knowing an older epoch, or a sequence older than the oldest change of the ring, are asked to resync.
+ */
+@Repository
+public class ChangeRepository {
+
+    static final String PERSON = "person";
+    static final String FIRE_STATION = "fireStation";
+    static final String MEDICAL_RECORD = "medicalRecord";
+
+    private final DatasetHolder datasetHolder;
+    private final Object lock = new Object();
+    private final Change[] ring;
+    // index of the oldest change in the ring
+    private int start;
+    private int size;
+    // epoch of the data the changes of the ring apply to
+    private long epoch;
+    // sequence after which every change is in the ring
+    private long floor;
+
+    @Autowired
+    public ChangeRepository(DatasetHolder datasetHolder, PersonRepository personRepository, FireStationRepository fireStationRepository,
+                            MedicalRecordRepository medicalRecordRepository, @Value("${safetynet.changes.capacity:10000}") int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity of the changes must be positive");
+        }
+        this.datasetHolder = datasetHolder;
+        this.ring = new Change[capacity];
+        Dataset dataset = datasetHolder.latest();
+        this.epoch = dataset.getEpoch();
+        this.floor = dataset.getVersion();
+        personRepository.addMutationListener(mutation -> this.record(PERSON, mutation));
+        fireStationRepository.addMutationListener(mutation -> this.record(FIRE_STATION, mutation));
+        medicalRecordRepository.addMutationListener(mutation -> this.record(MEDICAL_RECORD, mutation));
+    }
+
+
+    /**
+     * Method that records a change, called by the writer holding the lock of the dataset holder
+     * once the change is visible, so the latest version is the one published by this change
+     *
+     * @param entity
+     * @param mutation
+     */
+    private void record(String entity, Mutation<?> mutation) {
+        Dataset dataset = this.datasetHolder.latest();
+        synchronized (this.lock) {
+            if (dataset.getEpoch() != this.epoch) {
+                this.clear(dataset.getEpoch(), dataset.getVersion() - 1);
+            }
+            if (this.size == this.ring.length) {
+                this.floor = this.ring[this.start].getSequence();
+                this.ring[this.start] = null;
+                this.start = (this.start + 1) % this.ring.length;
+                this.size--;
+            }
+            this.ring[(this.start + this.size) % this.ring.length] = new Change(dataset.getVersion(), entity, mutation);
+            this.size++;
+        }
+    }
+
+
+    private void clear(long epoch, long floor) {
+        for (int i = 0; i < this.size; i++) {
+            this.ring[(this.start + i) % this.ring.length] = null;
+        }
+        this.start = 0;
+        this.size = 0;
+        this.epoch = epoch;
+        this.floor = floor;
+    }
+
+
+    /**
+     * Method that takes the last sequence and epoch known by a client, and returns the changes made since,
+     * up to the version of the data read by the current thread
+     *
+     * @param since the sequence of the last change applied by the client, or the last sequence given with a resync
+     * @param epoch the epoch given with this sequence, null to only check the sequence
+     * @return the changes after the sequence, or a resync if they are no longer known
+     */
+    public Changes findChangesSince(long since, Long epoch) {
+        Dataset dataset = this.datasetHolder.read();
+        Changes resync = new Changes(dataset.getEpoch(), dataset.getVersion(), true, List.of());
+        if ((epoch != null && epoch != dataset.getEpoch()) || since > dataset.getVersion()) {
+            return resync;
+        }
+        synchronized (this.lock) {
+            if (this.epoch != dataset.getEpoch()) {
+                // no change recorded since the data were reloaded, a client knowing the new epoch is up to date
+                return epoch == null && since != dataset.getVersion() ? resync : new Changes(dataset.getEpoch(), since, false, List.of());
+            }
+            if (since < this.floor) {
+                return resync;
+            }
+            List<Change> changes = new ArrayList<>();
+            long lastSequence = since;
+            for (int i = this.firstAfter(since); i < this.size; i++) {
+                Change change = this.ring[(this.start + i) % this.ring.length];
+                if (change.getSequence() > dataset.getVersion()) {
+                    break;
+                }
+                changes.add(change);
+                lastSequence = change.getSequence();
+            }
+            return new Changes(dataset.getEpoch(), lastSequence, false, changes);
+        }
+    }
+
+
+    private int firstAfter(long sequence) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.ring[(this.start + middle) % this.ring.length].getSequence() <= sequence) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.openclassrooms.safetynet.repository;
+
+import java.util.List;
+
+/**
+ * Answer to a request for the changes made after a sequence. The client gives the last sequence
+ * and the epoch of this answer with its next request. When resync is true, the changes the client asked for
+ * are no longer known: it has to read the whole data again, then ask for the changes after the last sequence.
+ */
+public final class Changes {
+
+    private final long epoch;
+    private final long lastSequence;
+    private final boolean resync;
+    private final List<Change> changes;
+
+    public Changes(long epoch, long lastSequence, boolean resync, List<Change> changes) {
+        this.epoch = epoch;
+        this.lastSequence = lastSequence;
+        this.resync = resync;
+        this.changes = changes;
+    }
+
+
+    /**
+     * @return the epoch in hexadecimal, read as a string by the clients which can't hold a 64-bit integer
+     */
+    public String getEpoch() {
+        return Long.toHexString(this.epoch);
+    }
+
+
+    public long getLastSequence() {
+        return this.lastSequence;
+    }
+
+
+    public boolean isResync() {
+        return this.resync;
+    }
+
+
+    public List<Change> getChanges() {
+        return this.changes;
+    }
+
+}
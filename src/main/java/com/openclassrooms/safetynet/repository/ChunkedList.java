@@ -0,0 +1,303 @@
+package com.openclassrooms.safetynet.repository;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Persistent unmodifiable list stored in chunks of at most CHUNK_SIZE elements.
+ * A change copies the chunk it touches and the table of the chunks, which are shared with the previous list,
+ * so a change of a list of n elements copies about CHUNK_SIZE + n / CHUNK_SIZE references instead of n.
+ * Each element can carry a long key, kept in a parallel chunk, the keys being null when the list has none.
+ */
+final class ChunkedList<T> extends AbstractList<T> implements RandomAccess {
+
+    static final int CHUNK_SIZE = 512;
+
+    private final Object[][] chunks;
+    private final long[][] keys;
+    private final int[] offsets;
+    private final int size;
+
+    private ChunkedList(Object[][] chunks, long[][] keys, int[] offsets, int size) {
+        this.chunks = chunks;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    static <T> ChunkedList<T> of(List<T> list) {
+        return of(list, null);
+    }
+
+
+    /**
+     * Method that takes a list and its first key, and returns the list where the elements have consecutive keys
+     *
+     * @param list
+     * @param firstKey the key of the first element, null for a list without keys
+     * @return the chunked list
+     */
+    static <T> ChunkedList<T> of(List<T> list, Long firstKey) {
+        Object[] elements = list.toArray();
+        int chunkCount = (elements.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Object[][] chunks = new Object[chunkCount][];
+        long[][] keys = firstKey == null ? null : new long[chunkCount][];
+        int[] offsets = new int[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            int from = c * CHUNK_SIZE;
+            int to = Math.min(elements.length, from + CHUNK_SIZE);
+            chunks[c] = Arrays.copyOfRange(elements, from, to);
+            offsets[c] = from;
+            if (keys != null) {
+                keys[c] = new long[to - from];
+                for (int i = 0; i < keys[c].length; i++) {
+                    keys[c][i] = firstKey + from + i;
+                }
+            }
+        }
+        return new ChunkedList<>(chunks, keys, offsets, elements.length);
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        this.checkIndex(index);
+        int c = this.chunkOf(index);
+        return (T) this.chunks[c][index - this.offsets[c]];
+    }
+
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+
+    @Override
+    public int indexOf(Object value) {
+        for (int c = 0; c < this.chunks.length; c++) {
+            Object[] chunk = this.chunks[c];
+            for (int i = 0; i < chunk.length; i++) {
+                if (Objects.equals(chunk[i], value)) {
+                    return this.offsets[c] + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Method that takes an instance and returns the index of the first element which is this same instance
+     *
+     * @param instance
+     * @return the index, or -1 if the list doesn't contain the instance
+     */
+    int indexOfInstance(Object instance) {
+        for (int c = 0; c < this.chunks.length; c++) {
+            Object[] chunk = this.chunks[c];
+            for (int i = 0; i < chunk.length; i++) {
+                if (chunk[i] == instance) {
+                    return this.offsets[c] + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+
+    long keyAt(int index) {
+        this.checkIndex(index);
+        int c = this.chunkOf(index);
+        return this.keys[c][index - this.offsets[c]];
+    }
+
+
+    /**
+     * Method that takes a key and returns the index of the first element whose key is greater,
+     * the keys being increasing along the list
+     *
+     * @param key
+     * @return the index, or the size of the list if no key is greater
+     */
+    int upperBound(long key) {
+        int low = 0;
+        int high = this.chunks.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long[] chunkKeys = this.keys[middle];
+            if (chunkKeys[chunkKeys.length - 1] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == this.chunks.length) {
+            return this.size;
+        }
+        long[] chunkKeys = this.keys[low];
+        int from = 0;
+        int to = chunkKeys.length;
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (chunkKeys[middle] <= key) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return this.offsets[low] + from;
+    }
+
+
+    ChunkedList<T> append(T value) {
+        return this.append(value, 0);
+    }
+
+
+    /**
+     * Method that returns a copy of the list with the value added at the end, filling the last chunk
+     * before starting a new one
+     *
+     * @param value
+     * @param key   the key of the value, ignored if the list has no keys
+     * @return the new list
+     */
+    ChunkedList<T> append(T value, long key) {
+        int last = this.chunks.length - 1;
+        if (last >= 0 && this.chunks[last].length < CHUNK_SIZE) {
+            Object[][] chunks = this.chunks.clone();
+            chunks[last] = Arrays.copyOf(this.chunks[last], this.chunks[last].length + 1);
+            chunks[last][chunks[last].length - 1] = value;
+            long[][] keys = null;
+            if (this.keys != null) {
+                keys = this.keys.clone();
+                keys[last] = Arrays.copyOf(this.keys[last], this.keys[last].length + 1);
+                keys[last][keys[last].length - 1] = key;
+            }
+            return new ChunkedList<>(chunks, keys, this.offsets, this.size + 1);
+        }
+        Object[][] chunks = Arrays.copyOf(this.chunks, last + 2);
+        chunks[last + 1] = new Object[]{value};
+        long[][] keys = null;
+        if (this.keys != null) {
+            keys = Arrays.copyOf(this.keys, last + 2);
+            keys[last + 1] = new long[]{key};
+        }
+        int[] offsets = Arrays.copyOf(this.offsets, last + 2);
+        offsets[last + 1] = this.size;
+        return new ChunkedList<>(chunks, keys, offsets, this.size + 1);
+    }
+
+
+    /**
+     * Method that returns a copy of the list where the element at the index is replaced by the value,
+     * the value keeping the key of the element
+     *
+     * @param index
+     * @param value
+     * @return the new list
+     */
+    ChunkedList<T> with(int index, T value) {
+        this.checkIndex(index);
+        int c = this.chunkOf(index);
+        Object[][] chunks = this.chunks.clone();
+        chunks[c] = this.chunks[c].clone();
+        chunks[c][index - this.offsets[c]] = value;
+        return new ChunkedList<>(chunks, this.keys, this.offsets, this.size);
+    }
+
+
+    /**
+     * Method that returns a copy of the list without the element at the index.
+     * A chunk left less than half full is merged with the next one when they fit in a chunk,
+     * so that the deletions don't leave a table of small chunks.
+     *
+     * @param index
+     * @return the new list
+     */
+    ChunkedList<T> without(int index) {
+        this.checkIndex(index);
+        int c = this.chunkOf(index);
+        int position = index - this.offsets[c];
+        Object[] chunk = removeAt(this.chunks[c], position);
+        long[] chunkKeys = this.keys == null ? null : removeAt(this.keys[c], position);
+
+        boolean merge = c + 1 < this.chunks.length && chunk.length < CHUNK_SIZE / 2
+                && chunk.length + this.chunks[c + 1].length <= CHUNK_SIZE;
+        if (merge) {
+            Object[] next = this.chunks[c + 1];
+            Object[] merged = Arrays.copyOf(chunk, chunk.length + next.length);
+            System.arraycopy(next, 0, merged, chunk.length, next.length);
+            chunk = merged;
+            if (chunkKeys != null) {
+                long[] nextKeys = this.keys[c + 1];
+                long[] mergedKeys = Arrays.copyOf(chunkKeys, chunkKeys.length + nextKeys.length);
+                System.arraycopy(nextKeys, 0, mergedKeys, chunkKeys.length, nextKeys.length);
+                chunkKeys = mergedKeys;
+            }
+        }
+
+        // the chunks removed from the table: the next one when merged, this one when left empty
+        int removed = merge ? c + 1 : chunk.length == 0 ? c : -1;
+        int chunkCount = removed < 0 ? this.chunks.length : this.chunks.length - 1;
+        Object[][] chunks = new Object[chunkCount][];
+        long[][] keys = this.keys == null ? null : new long[chunkCount][];
+        int[] offsets = new int[chunkCount];
+        for (int from = 0, to = 0; from < this.chunks.length; from++) {
+            if (from == removed) {
+                continue;
+            }
+            chunks[to] = from == c ? chunk : this.chunks[from];
+            if (keys != null) {
+                keys[to] = from == c ? chunkKeys : this.keys[from];
+            }
+            offsets[to] = from > c ? this.offsets[from] - 1 : this.offsets[from];
+            to++;
+        }
+        return new ChunkedList<>(chunks, keys, offsets, this.size - 1);
+    }
+
+
+    private int chunkOf(int index) {
+        int low = 0;
+        int high = this.offsets.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (this.offsets[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+    }
+
+
+    private static Object[] removeAt(Object[] array, int index) {
+        Object[] copy = new Object[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, index);
+        System.arraycopy(array, index + 1, copy, index, copy.length - index);
+        return copy;
+    }
+
+
+    private static long[] removeAt(long[] array, int index) {
+        long[] copy = new long[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, index);
+        System.arraycopy(array, index + 1, copy, index, copy.length - index);
+        return copy;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.openclassrooms.safetynet.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable multiset keeping each distinct value with the number of times it has been added,
+ * and the distinct values, in the order they first appeared, as a prebuilt unmodifiable list.
+ * Adding or removing an occurrence of a value which is still counted only copies a shard of the counts,
+ * the list being changed only when a value appears or disappears, by the copy-on-write operations of ImmutableLists.
+ */
+final class CountedSet<T> {
+
+    private final List<T> values;
+    private final ShardedMap<T, Integer> counts;
+
+    private CountedSet(List<T> values, ShardedMap<T, Integer> counts) {
+        this.values = values;
+        this.counts = counts;
+    }
+
+    static <T> CountedSet<T> empty() {
+        return new CountedSet<>(List.of(), ShardedMap.empty());
+    }
+
+
+    /**
+     * @return the distinct values, in the order they first appeared
+     */
+    List<T> getValues() {
+        return this.values;
+    }
+
+
+    int count(T value) {
+        Integer count = this.counts.get(value);
+        return count == null ? 0 : count;
+    }
+
+
+    CountedSet<T> with(T value) {
+        int count = this.count(value);
+        return new CountedSet<>(count == 0 ? ImmutableLists.append(this.values, value) : this.values,
+                this.counts.with(value, count + 1));
+    }
+
+
+    /**
+     * Method that takes a value and returns this set with one occurrence of the value less
+     *
+     * @param value
+     * @return the new set, or this set if the value is not counted
+     */
+    CountedSet<T> without(T value) {
+        int count = this.count(value);
+        if (count == 0) {
+            return this;
+        }
+        if (count == 1) {
+            return new CountedSet<>(ImmutableLists.remove(this.values, value), this.counts.without(value));
+        }
+        return new CountedSet<>(this.values, this.counts.with(value, count - 1));
+    }
+
+
+    /**
+     * Method that takes an index of counted sets, a key and a value, and returns the index
+     * where the set of the key has one more occurrence of the value
+     *
+     * @param index
+     * @param key
+     * @param value
+     * @return the new index, or the same index if the key or the value is null
+     */
+    static <K, T> ShardedMap<K, CountedSet<T>> addToIndex(ShardedMap<K, CountedSet<T>> index, K key, T value) {
+        if (key == null || value == null) {
+            return index;
+        }
+        CountedSet<T> set = index.get(key);
+        return index.with(key, (set == null ? CountedSet.<T>empty() : set).with(value));
+    }
+
+
+    /**
+     * Method that takes an index of counted sets, a key and a value, and returns the index
+     * where the set of the key has one occurrence of the value less, the set being removed once empty
+     *
+     * @param index
+     * @param key
+     * @param value
+     * @return the new index, or the same index if the value is not counted for the key
+     */
+    static <K, T> ShardedMap<K, CountedSet<T>> removeFromIndex(ShardedMap<K, CountedSet<T>> index, K key, T value) {
+        if (key == null || value == null) {
+            return index;
+        }
+        CountedSet<T> set = index.get(key);
+        if (set == null) {
+            return index;
+        }
+        CountedSet<T> remaining = set.without(value);
+        if (remaining == set) {
+            return index;
+        }
+        return remaining.values.isEmpty() ? index.without(key) : index.with(key, remaining);
+    }
+
+
+    /**
+     * Mutable builder used to count values in bulk without copying any list or shard
+     */
+    static final class Builder<T> {
+
+        private final List<T> values = new ArrayList<>();
+        private final ShardedMap.Builder<T, Integer> counts = new ShardedMap.Builder<>();
+
+        Builder<T> add(T value) {
+            if (value != null) {
+                Integer count = this.counts.get(value);
+                if (count == null) {
+                    this.values.add(value);
+                    count = 0;
+                }
+                this.counts.put(value, count + 1);
+            }
+            return this;
+        }
+
+        CountedSet<T> build() {
+            return new CountedSet<>(ImmutableLists.freeze(this.values), this.counts.build());
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.openclassrooms.safetynet.repository;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position in a listing, after the element registered with the sequence, given to the clients as an opaque string.
+ * The epoch identifies the version of the list the sequence belongs to, so that a cursor given before the data
+ * was reloaded is rejected instead of skipping or repeating elements.
+ */
+public final class Cursor {
+
+    private static final int LENGTH = 2 * Long.BYTES;
+
+    private final long epoch;
+    private final long sequence;
+
+    Cursor(long epoch, long sequence) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+    }
+
+
+    long getEpoch() {
+        return this.epoch;
+    }
+
+
+    long getSequence() {
+        return this.sequence;
+    }
+
+
+    /**
+     * @return the opaque string given to the clients, made of URL-safe characters
+     */
+    public String encode() {
+        byte[] bytes = ByteBuffer.allocate(LENGTH).putLong(this.epoch).putLong(this.sequence).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+
+    /**
+     * Method that takes a string given by encode and returns the cursor
+     *
+     * @param cursor
+     * @return the cursor
+     * @throws IllegalArgumentException if the string is not a cursor
+     */
+    public static Cursor decode(String cursor) {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long epoch = buffer.getLong();
+        long sequence = buffer.getLong();
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new Cursor(epoch, sequence);
+    }
+
+
+    @Override
+    public String toString() {
+        return this.encode();
+    }
+
+}
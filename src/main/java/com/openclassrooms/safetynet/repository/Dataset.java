@@ -0,0 +1,158 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Immutable version of the whole data: the people, the fire stations and the medical records,
+ * with the classification of the residents of each address and station as children or adults
+ * the phone numbers of the people covered by each station, and the counters of the changes read by each query.
+ * Each change publishes a new version, so everything read from one version is consistent.
+ */
+public final class Dataset {
+
+    static final Dataset EMPTY = new Dataset(0, PersonStore.EMPTY, FireStationStore.EMPTY, MedicalRecordStore.EMPTY, AgeGroupIndex.EMPTY,
+            PhoneIndex.EMPTY, QueryVersions.EMPTY);
+
+    private final long version;
+    private final PersonStore personStore;
+    private final FireStationStore fireStationStore;
+    private final MedicalRecordStore medicalRecordStore;
+    private final AgeGroupIndex ageGroupIndex;
+    private final PhoneIndex phoneIndex;
+    private final QueryVersions queryVersions;
+
+    private Dataset(long version, PersonStore personStore, FireStationStore fireStationStore, MedicalRecordStore medicalRecordStore,
+                    AgeGroupIndex ageGroupIndex, PhoneIndex phoneIndex, QueryVersions queryVersions) {
+        this.version = version;
+        this.personStore = personStore;
+        this.fireStationStore = fireStationStore;
+        this.medicalRecordStore = medicalRecordStore;
+        this.ageGroupIndex = ageGroupIndex;
+        this.phoneIndex = phoneIndex;
+        this.queryVersions = queryVersions;
+    }
+
+    private Dataset(long version, PersonStore personStore, FireStationStore fireStationStore, MedicalRecordStore medicalRecordStore) {
+        this(version, personStore, fireStationStore, medicalRecordStore, AgeGroupIndex.of(personStore, fireStationStore, medicalRecordStore),
+                PhoneIndex.of(personStore, fireStationStore), QueryVersions.EMPTY);
+    }
+
+    /**
+     * Method that takes the whole data and returns a dataset indexing it.
+     * The indexes of the medical records and of the fire stations are built while the people are indexed.
+     *
+     * @param persons
+     * @param fireStations
+     * @param medicalRecords
+     * @return the dataset, to be published by the dataset holder
+     */
+    public static Dataset of(List<Person> persons, List<FireStation> fireStations, List<MedicalRecord> medicalRecords) {
+        CompletableFuture<MedicalRecordStore> medicalRecordStore = CompletableFuture.supplyAsync(() -> MedicalRecordStore.of(medicalRecords));
+        CompletableFuture<FireStationStore> fireStationStore = CompletableFuture.supplyAsync(() -> FireStationStore.of(fireStations));
+        PersonStore personStore = PersonStore.of(persons);
+        return new Dataset(0, personStore, fireStationStore.join(), medicalRecordStore.join());
+    }
+
+
+    public long getVersion() {
+        return this.version;
+    }
+
+
+    /**
+     * @return an identifier of the stores, which changes when a store is rebuilt in bulk, but not with the changes of the records
+     */
+    public long getEpoch() {
+        return this.personStore.getEpoch() ^ Long.rotateLeft(this.fireStationStore.getEpoch(), 21)
+                ^ Long.rotateLeft(this.medicalRecordStore.getEpoch(), 42);
+    }
+
+
+    public PersonStore getPersonStore() {
+        return this.personStore;
+    }
+
+
+    public FireStationStore getFireStationStore() {
+        return this.fireStationStore;
+    }
+
+
+    public MedicalRecordStore getMedicalRecordStore() {
+        return this.medicalRecordStore;
+    }
+
+
+    public AgeGroupIndex getAgeGroupIndex() {
+        return this.ageGroupIndex;
+    }
+
+
+    public PhoneIndex getPhoneIndex() {
+        return this.phoneIndex;
+    }
+
+
+    public QueryVersions getQueryVersions() {
+        return this.queryVersions;
+    }
+
+
+    Dataset withVersion(long version) {
+        return new Dataset(version, this.personStore, this.fireStationStore, this.medicalRecordStore, this.ageGroupIndex, this.phoneIndex,
+                this.queryVersions);
+    }
+
+
+    Dataset withPersonStore(PersonStore personStore) {
+        return new Dataset(this.version, personStore, this.fireStationStore, this.medicalRecordStore);
+    }
+
+
+    Dataset withFireStationStore(FireStationStore fireStationStore) {
+        return new Dataset(this.version, this.personStore, fireStationStore, this.medicalRecordStore);
+    }
+
+
+    Dataset withMedicalRecordStore(MedicalRecordStore medicalRecordStore) {
+        return new Dataset(this.version, this.personStore, this.fireStationStore, medicalRecordStore);
+    }
+
+
+    /**
+     * Method that takes the person store including a change of a person and returns the dataset
+     * with this store, the classification of the residents and the phone numbers being updated with the change only
+     *
+     * @param personStore
+     * @param previous    the previous version of the person, null if the person is added
+     * @param current     the current version of the person, null if the person is deleted
+     * @return the new dataset
+     */
+    Dataset withPersonChange(PersonStore personStore, Person previous, Person current) {
+        return new Dataset(this.version, personStore, this.fireStationStore, this.medicalRecordStore,
+                this.ageGroupIndex.withPersonChange(previous, current, this.fireStationStore, this.medicalRecordStore),
+                this.phoneIndex.withPersonChange(previous, current, this.fireStationStore),
+                this.queryVersions.withPersonChange(previous, current));
+    }
+
+
+    Dataset withFireStationChange(FireStationStore fireStationStore, FireStation previous, FireStation current) {
+        return new Dataset(this.version, this.personStore, fireStationStore, this.medicalRecordStore,
+                this.ageGroupIndex.withFireStationChange(previous, current, fireStationStore),
+                this.phoneIndex.withFireStationChange(previous, current, this.personStore, fireStationStore),
+                this.queryVersions.withFireStationChange(previous, current));
+    }
+
+
+    Dataset withMedicalRecordChange(MedicalRecordStore medicalRecordStore, MedicalRecord previous, MedicalRecord current) {
+        return new Dataset(this.version, this.personStore, this.fireStationStore, medicalRecordStore,
+                this.ageGroupIndex.withMedicalRecordChange(previous, current, this.personStore, this.fireStationStore),
+                this.phoneIndex, this.queryVersions.withMedicalRecordChange(previous, current, this.personStore));
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.openclassrooms.safetynet.repository;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds the current version of the data, shared by the three repositories.
+ * Readers get the whole data in a single read of an atomic reference and never take a lock.
+ * A thread can pin the version it reads, so that all its reads see the same version even if
+ * changes are published in the meantime. Writers are serialized by the lock of this holder
+ * and each of them publishes a new version.
+ */
+@Component
+public class DatasetHolder {
+
+    private final AtomicReference<Dataset> current = new AtomicReference<>(Dataset.EMPTY);
+    private final ThreadLocal<Dataset> pinned = new ThreadLocal<>();
+
+
+    /**
+     * Method that returns the version pinned by the current thread, or the latest version
+     *
+     * @return the version to read
+     */
+    public Dataset read() {
+        Dataset dataset = this.pinned.get();
+        return dataset != null ? dataset : this.current.get();
+    }
+
+
+    /**
+     * Method that returns the latest published version, ignoring the pinned version
+     *
+     * @return the latest version
+     */
+    public Dataset latest() {
+        return this.current.get();
+    }
+
+
+    /**
+     * Method that pins the latest version for the reads of the current thread, until unpin is called
+     *
+     * @return the pinned version
+     */
+    public Dataset pin() {
+        Dataset dataset = this.current.get();
+        this.pinned.set(dataset);
+        return dataset;
+    }
+
+
+    public void unpin() {
+        this.pinned.remove();
+    }
+
+
+    /**
+     * Method that applies a change to the latest version and publishes the result as the next version.
+     * A writer reading the latest version before changing it must hold the lock of this holder.
+     *
+     * @param change
+     * @return the published version
+     */
+    public synchronized Dataset update(UnaryOperator<Dataset> change) {
+        Dataset latest = this.current.get();
+        Dataset next = change.apply(latest).withVersion(latest.getVersion() + 1);
+        this.current.set(next);
+        return next;
+    }
+
+
+    /**
+     * Method that runs a change of the repositories while holding the lock of this holder,
+     * then waits for the change to be durable once the lock is released
+     *
+     * @param change the change, applied to the repositories and written to their journals
+     */
+    public void write(Supplier<MutationJournal.Commit> change) {
+        MutationJournal.Commit commit;
+        synchronized (this) {
+            commit = change.get();
+        }
+        commit.await();
+    }
+
+
+    /**
+     * Method that replaces the whole data with a new version
+     *
+     * @param dataset
+     * @return the published version
+     */
+    public Dataset replace(Dataset dataset) {
+        return this.update(latest -> dataset);
+    }
+
+}
@@ -1,79 +1,139 @@
 package com.openclassrooms.safetynet.repository;
 
 import com.openclassrooms.safetynet.model.FireStation;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The fire stations are read from the version of the data given by the dataset holder, without any lock.
+ * A change builds a new fire station store and publishes it in a new version of the data.
+ */
 @Repository
 public class FireStationRepository {
 
-    private List<FireStation> firestations = new ArrayList<>();
+    private final DatasetHolder datasetHolder;
+    private final MutationListeners<FireStation> mutationListeners = new MutationListeners<>();
+
+    public FireStationRepository() {
+        this(new DatasetHolder());
+    }
+
+    @Autowired
+    public FireStationRepository(DatasetHolder datasetHolder) {
+        this.datasetHolder = datasetHolder;
+    }
+
+    private FireStationStore store() {
+        return this.datasetHolder.read().getFireStationStore();
+    }
 
     public List<FireStation> getFireStations() {
-        return firestations;
+        return this.store().getFireStations();
+    }
+
+    public Page<FireStation> getFireStationsPage(Cursor after, int limit) {
+        return this.store().getFireStationsPage(after, limit);
     }
 
     public void setFireStations(List<FireStation> fireStations) {
-        this.firestations = fireStations;
+        FireStationStore store = FireStationStore.of(fireStations);
+        this.datasetHolder.update(dataset -> dataset.withFireStationStore(store));
+    }
+
+    public void addMutationListener(MutationListener<FireStation> listener) {
+        this.mutationListeners.add(listener);
+    }
+
+    public void setMutationJournal(MutationJournal<FireStation> journal) {
+        this.mutationListeners.setJournal(journal);
     }
 
     public FireStation addFireStation(FireStation fireStation) {
-        this.firestations.add(fireStation);
+        this.datasetHolder.write(() -> this.add(fireStation));
         return fireStation;
     }
 
 
+    private MutationJournal.Commit add(FireStation fireStation) {
+        FireStationStore store = this.datasetHolder.latest().getFireStationStore();
+        return this.mutationListeners.apply(Mutation.Type.ADD, null, fireStation,
+                () -> this.datasetHolder.update(dataset -> dataset.withFireStationChange(store.withAdded(fireStation), null, fireStation)));
+    }
+
+
     public List<FireStation> getFireStationsByNumber(int stationNumber) {
-        List<FireStation> fireStationsResult = new ArrayList<>();
-        for (FireStation fireStation : this.firestations) {
-            if (fireStation.getStation() == stationNumber) {
-                fireStationsResult.add(fireStation);
-            }
-        }
-        return fireStationsResult;
+        return this.store().getFireStationsByNumber(stationNumber);
     }
 
 
     public FireStation getFireStationByAddress(String stationAddress) {
-        FireStation fireStationResult = null;
-        for (FireStation fireStation : this.firestations) {
-            if (fireStation.getAddress().equals(stationAddress)) {
-                fireStationResult = fireStation;
-            }
-        }
-        return fireStationResult;
+        return this.store().getFireStationByAddress(stationAddress);
     }
 
 
     public void deleteStation(FireStation fireStation) {
-        this.firestations.remove(fireStation);
+        this.datasetHolder.write(() -> this.delete(fireStation));
     }
 
 
+    /**
+     * Delete the fire stations together, the deletes being synced to the disk together
+     *
+     * @param fireStations
+     */
     public void deleteStations(List<FireStation> fireStations) {
-        for (FireStation firestation : fireStations) {
-            this.firestations.remove(firestation);
+        this.datasetHolder.write(() -> {
+            MutationJournal.Commit commit = MutationJournal.Commit.DONE;
+            for (FireStation firestation : fireStations) {
+                MutationJournal.Commit deleted = this.delete(firestation);
+                if (deleted != MutationJournal.Commit.DONE) {
+                    commit = deleted;
+                }
+            }
+            // the changes are synced in order, so the last change is durable once all the others are
+            return commit;
+        });
+    }
+
+
+    /**
+     * Delete the fire station unless a concurrent request has already deleted it,
+     * so that the indexes counting the mappings of an address are only decremented once
+     */
+    private MutationJournal.Commit delete(FireStation fireStation) {
+        FireStationStore store = this.datasetHolder.latest().getFireStationStore();
+        if (!store.contains(fireStation)) {
+            return MutationJournal.Commit.DONE;
         }
+        return this.mutationListeners.apply(Mutation.Type.DELETE, fireStation, null,
+                () -> this.datasetHolder.update(dataset -> dataset.withFireStationChange(store.withDeleted(fireStation), fireStation, null)));
     }
 
 
+    /**
+     * Replace the registered fire station having the same address
+     *
+     * @param updatedFireStation
+     * @return the updated fire station
+     */
     public FireStation updateStationNumber(FireStation updatedFireStation) {
-        int index = this.firestations.indexOf(this.getFireStationByAddress(updatedFireStation.getAddress()));
-        this.firestations.set(index, updatedFireStation);
+        this.datasetHolder.write(() -> {
+            FireStationStore store = this.datasetHolder.latest().getFireStationStore();
+            FireStation previousFireStation = store.getFireStationByAddress(updatedFireStation.getAddress());
+            if (previousFireStation == null) {
+                return this.add(updatedFireStation);
+            }
+            return this.mutationListeners.apply(Mutation.Type.UPDATE, previousFireStation, updatedFireStation,
+                    () -> this.datasetHolder.update(dataset -> dataset.withFireStationChange(store.withUpdated(previousFireStation, updatedFireStation), previousFireStation, updatedFireStation)));
+        });
         return updatedFireStation;
     }
 
 
     public FireStation getFireStationByNumberAndAddress(FireStation fireStationToRetrieve) {
-        FireStation result = null;
-        for (FireStation fireStation : this.firestations) {
-            if (fireStation.getStation() == fireStationToRetrieve.getStation() && fireStation.getAddress().toLowerCase().equals(fireStationToRetrieve.getAddress().toLowerCase())) {
-                result = fireStation;
-            }
-        }
-        return result;
+        return this.store().getFireStationByNumberAndAddress(fireStationToRetrieve);
     }
 
 
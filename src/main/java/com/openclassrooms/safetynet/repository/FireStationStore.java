@@ -0,0 +1,179 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable content of the fire station repository: the fire stations in their order of registration,
+ * indexed by station number and by address. A change returns a new store sharing most of its indexes with this one.
+ */
+public final class FireStationStore {
+
+    static final FireStationStore EMPTY = new FireStationStore(SequencedList.of(List.of()), ShardedMap.empty(), ShardedMap.empty());
+
+    private final SequencedList<FireStation> fireStations;
+    private final ShardedMap<Integer, List<FireStation>> fireStationsByNumber;
+    // keyed by the lowercase address so that exact and case-insensitive lookups share the same buckets
+    private final ShardedMap<String, List<FireStation>> fireStationsByAddress;
+
+    private FireStationStore(SequencedList<FireStation> fireStations, ShardedMap<Integer, List<FireStation>> fireStationsByNumber,
+                             ShardedMap<String, List<FireStation>> fireStationsByAddress) {
+        this.fireStations = fireStations;
+        this.fireStationsByNumber = fireStationsByNumber;
+        this.fireStationsByAddress = fireStationsByAddress;
+    }
+
+    static FireStationStore of(List<FireStation> fireStations) {
+        ShardedMap.Builder<Integer, List<FireStation>> fireStationsByNumber = new ShardedMap.Builder<>();
+        ShardedMap.Builder<String, List<FireStation>> fireStationsByAddress = new ShardedMap.Builder<>();
+        for (FireStation fireStation : fireStations) {
+            ImmutableLists.addToBucket(fireStationsByNumber, fireStation.getStation(), fireStation);
+            ImmutableLists.addToBucket(fireStationsByAddress, addressKey(fireStation.getAddress()), fireStation);
+        }
+        return new FireStationStore(SequencedList.of(fireStations), fireStationsByNumber.build(), fireStationsByAddress.build());
+    }
+
+
+    public List<FireStation> getFireStations() {
+        return this.fireStations;
+    }
+
+
+    long getEpoch() {
+        return this.fireStations.getEpoch();
+    }
+
+
+    /**
+     * Method that takes a cursor and a limit, and returns the fire stations registered after the cursor
+     *
+     * @param after the cursor given by the previous page, null to start from the first one
+     * @param limit
+     * @return the page, in the order of registration
+     * @throws IllegalArgumentException if the cursor has been given before the fire stations were reloaded
+     */
+    public Page<FireStation> getFireStationsPage(Cursor after, int limit) {
+        return this.fireStations.page(after, limit);
+    }
+
+
+    public List<FireStation> getFireStationsByNumber(int stationNumber) {
+        List<FireStation> fireStationList = this.fireStationsByNumber.get(stationNumber);
+        return fireStationList == null ? new ArrayList<>() : new ArrayList<>(fireStationList);
+    }
+
+
+    public FireStation getFireStationByAddress(String stationAddress) {
+        List<FireStation> fireStationList = this.fireStationsByAddress.get(addressKey(stationAddress));
+        if (fireStationList != null) {
+            for (int i = fireStationList.size() - 1; i >= 0; i--) {
+                if (Objects.equals(fireStationList.get(i).getAddress(), stationAddress)) {
+                    return fireStationList.get(i);
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Method that takes a fire station and returns whether this exact mapping of its address to its number is registered
+     *
+     * @param fireStation
+     * @return true if the store contains an equal fire station
+     */
+    boolean contains(FireStation fireStation) {
+        List<FireStation> fireStationList = this.fireStationsByAddress.get(addressKey(fireStation.getAddress()));
+        return fireStationList != null && fireStationList.contains(fireStation);
+    }
+
+
+    public FireStation getFireStationByNumberAndAddress(FireStation fireStationToRetrieve) {
+        List<FireStation> fireStationList = this.fireStationsByAddress.get(addressKey(fireStationToRetrieve.getAddress()));
+        if (fireStationList != null) {
+            for (int i = fireStationList.size() - 1; i >= 0; i--) {
+                if (fireStationList.get(i).getStation() == fireStationToRetrieve.getStation()) {
+                    return fireStationList.get(i);
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Method that takes an address and returns the numbers of the stations mapped to exactly this address
+     *
+     * @param address
+     * @return the distinct station numbers, in their order of registration
+     */
+    public List<Integer> getStationNumbersByAddress(String address) {
+        List<Integer> stationNumbers = new ArrayList<>();
+        List<FireStation> fireStationList = this.fireStationsByAddress.get(addressKey(address));
+        if (fireStationList != null) {
+            for (FireStation fireStation : fireStationList) {
+                if (Objects.equals(fireStation.getAddress(), address) && !stationNumbers.contains(fireStation.getStation())) {
+                    stationNumbers.add(fireStation.getStation());
+                }
+            }
+        }
+        return stationNumbers;
+    }
+
+
+    /**
+     * Method that takes a fire station and returns the number of registered fire stations equal to it
+     *
+     * @param fireStation
+     * @return the number of mappings of the same address to the same station
+     */
+    int countFireStations(FireStation fireStation) {
+        int count = 0;
+        List<FireStation> fireStationList = this.fireStationsByAddress.get(addressKey(fireStation.getAddress()));
+        if (fireStationList != null) {
+            for (FireStation registeredFireStation : fireStationList) {
+                if (registeredFireStation.equals(fireStation)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+
+    FireStationStore withAdded(FireStation fireStation) {
+        return new FireStationStore(this.fireStations.append(fireStation),
+                ImmutableLists.appendToBucket(this.fireStationsByNumber, fireStation.getStation(), fireStation),
+                ImmutableLists.appendToBucket(this.fireStationsByAddress, addressKey(fireStation.getAddress()), fireStation));
+    }
+
+
+    FireStationStore withUpdated(FireStation previousFireStation, FireStation updatedFireStation) {
+        FireStationStore store = new FireStationStore(this.fireStations.replace(previousFireStation, updatedFireStation),
+                ImmutableLists.removeFromBucket(this.fireStationsByNumber, previousFireStation.getStation(), previousFireStation),
+                ImmutableLists.removeFromBucket(this.fireStationsByAddress, addressKey(previousFireStation.getAddress()), previousFireStation));
+        return new FireStationStore(store.fireStations,
+                ImmutableLists.appendToBucket(store.fireStationsByNumber, updatedFireStation.getStation(), updatedFireStation),
+                ImmutableLists.appendToBucket(store.fireStationsByAddress, addressKey(updatedFireStation.getAddress()), updatedFireStation));
+    }
+
+
+    FireStationStore withDeleted(FireStation fireStation) {
+        return new FireStationStore(this.fireStations.without(fireStation),
+                ImmutableLists.removeFromBucket(this.fireStationsByNumber, fireStation.getStation(), fireStation),
+                ImmutableLists.removeFromBucket(this.fireStationsByAddress, addressKey(fireStation.getAddress()), fireStation));
+    }
+
+
+
+    /**
+     * The addresses are indexed case-insensitively, a missing address being indexed as an empty one
+     */
+    private static String addressKey(String address) {
+        return address == null ? "" : address.toLowerCase();
+    }
+
+}
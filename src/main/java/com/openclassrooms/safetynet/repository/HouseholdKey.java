@@ -0,0 +1,55 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.Person;
+
+import java.util.Objects;
+
+/**
+ * Key of a household, the people with the same lastname living at the same address,
+ * used to index the family members of the people. A missing address or lastname is a value of the key like any other.
+ */
+final class HouseholdKey {
+
+    private final String address;
+    private final String lastName;
+    private final int hash;
+
+    private HouseholdKey(String address, String lastName) {
+        this.address = address;
+        this.lastName = lastName;
+        this.hash = 31 * Objects.hashCode(address) + Objects.hashCode(lastName);
+    }
+
+    static HouseholdKey of(String address, String lastName) {
+        return new HouseholdKey(address, lastName);
+    }
+
+    static HouseholdKey of(Person person) {
+        return new HouseholdKey(person.getAddress(), person.getLastName());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HouseholdKey)) {
+            return false;
+        }
+        HouseholdKey other = (HouseholdKey) o;
+        return this.hash == other.hash
+                && Objects.equals(this.address, other.address)
+                && Objects.equals(this.lastName, other.lastName);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return lastName + " at " + address;
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.openclassrooms.safetynet.repository;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Copy-on-write operations on unmodifiable lists, and on the lists used as buckets of a sharded map.
+ * A list is copied whole while it fits in a chunk, and becomes a chunked list once it grows beyond,
+ * so a change of a large bucket copies a chunk instead of the bucket.
+ */
+final class ImmutableLists {
+
+    private ImmutableLists() {
+    }
+
+
+    static <T> List<T> freeze(List<T> list) {
+        return Collections.unmodifiableList(list);
+    }
+
+
+    static <T> List<T> append(List<T> list, T value) {
+        if (list instanceof ChunkedList || list.size() >= ChunkedList.CHUNK_SIZE) {
+            return chunked(list).append(value);
+        }
+        List<T> copy = new ArrayList<>(list.size() + 1);
+        copy.addAll(list);
+        copy.add(value);
+        return freeze(copy);
+    }
+
+
+    /**
+     * Method that returns a copy of the list where the previous instance is replaced by the value
+     *
+     * @param list
+     * @param previous the instance to replace
+     * @param value
+     * @return the new list, or the same list if it doesn't contain the previous instance
+     */
+    static <T> List<T> replace(List<T> list, T previous, T value) {
+        if (list instanceof ChunkedList) {
+            ChunkedList<T> chunkedList = (ChunkedList<T>) list;
+            int index = chunkedList.indexOfInstance(previous);
+            return index < 0 ? list : chunkedList.with(index, value);
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == previous) {
+                List<T> copy = new ArrayList<>(list);
+                copy.set(i, value);
+                return freeze(copy);
+            }
+        }
+        return list;
+    }
+
+
+    /**
+     * Method that returns a copy of the list without the first element equal to the value
+     *
+     * @param list
+     * @param value
+     * @return the new list, or the same list if it doesn't contain the value
+     */
+    static <T> List<T> remove(List<T> list, T value) {
+        int index = list.indexOf(value);
+        if (index < 0) {
+            return list;
+        }
+        if (list instanceof ChunkedList) {
+            return ((ChunkedList<T>) list).without(index);
+        }
+        List<T> copy = new ArrayList<>(list);
+        copy.remove(index);
+        return freeze(copy);
+    }
+
+
+    /**
+     * Method that returns an unmodifiable view of the list without the element at the index,
+     * sharing the list instead of copying it
+     *
+     * @param list  a list which is never modified
+     * @param index
+     * @return the view
+     */
+    static <T> List<T> without(List<T> list, int index) {
+        return new ListWithout<>(list, index);
+    }
+
+
+    private static <T> ChunkedList<T> chunked(List<T> list) {
+        return list instanceof ChunkedList ? (ChunkedList<T>) list : ChunkedList.of(list);
+    }
+
+
+    static <K, T> ShardedMap<K, List<T>> appendToBucket(ShardedMap<K, List<T>> index, K key, T value) {
+        List<T> bucket = index.get(key);
+        return index.with(key, bucket == null ? List.of(value) : append(bucket, value));
+    }
+
+
+    static <K, T> ShardedMap<K, List<T>> removeFromBucket(ShardedMap<K, List<T>> index, K key, T value) {
+        List<T> bucket = index.get(key);
+        if (bucket == null) {
+            return index;
+        }
+        List<T> remaining = remove(bucket, value);
+        return remaining.isEmpty() ? index.without(key) : index.with(key, remaining);
+    }
+
+
+    static <K, T> void addToBucket(ShardedMap.Builder<K, List<T>> index, K key, T value) {
+        List<T> bucket = index.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            index.put(key, bucket);
+        }
+        bucket.add(value);
+    }
+
+
+    private static final class ListWithout<T> extends AbstractList<T> implements RandomAccess {
+
+        private final List<T> list;
+        private final int index;
+
+        private ListWithout(List<T> list, int index) {
+            this.list = list;
+            this.index = index;
+        }
+
+        @Override
+        public T get(int i) {
+            if (i < 0 || i >= this.size()) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.size());
+            }
+            return this.list.get(i < this.index ? i : i + 1);
+        }
+
+        @Override
+        public int size() {
+            return this.list.size() - 1;
+        }
+    }
+
+}
@@ -1,50 +1,121 @@
 package com.openclassrooms.safetynet.repository;
 
 import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The medical records are read from the version of the data given by the dataset holder, without any lock.
+ * A change builds a new medical record store and publishes it in a new version of the data.
+ */
 @Repository
 public class MedicalRecordRepository {
 
-    private List<MedicalRecord> medicalRecords = new ArrayList<>();
+    private final DatasetHolder datasetHolder;
+    private final MutationListeners<MedicalRecord> mutationListeners = new MutationListeners<>();
+
+    public MedicalRecordRepository() {
+        this(new DatasetHolder());
+    }
+
+    @Autowired
+    public MedicalRecordRepository(DatasetHolder datasetHolder) {
+        this.datasetHolder = datasetHolder;
+    }
+
+    private MedicalRecordStore store() {
+        return this.datasetHolder.read().getMedicalRecordStore();
+    }
 
     public List<MedicalRecord> getMedicalRecords() {
-        return medicalRecords;
+        return this.store().getMedicalRecords();
+    }
+
+    public Page<MedicalRecord> getMedicalRecordsPage(Cursor after, int limit) {
+        return this.store().getMedicalRecordsPage(after, limit);
     }
 
     public void setMedicalRecords(List<MedicalRecord> medicalRecords) {
-        this.medicalRecords = medicalRecords;
+        MedicalRecordStore store = MedicalRecordStore.of(medicalRecords);
+        this.datasetHolder.update(dataset -> dataset.withMedicalRecordStore(store));
+    }
+
+    public void addMutationListener(MutationListener<MedicalRecord> listener) {
+        this.mutationListeners.add(listener);
+    }
+
+    public void setMutationJournal(MutationJournal<MedicalRecord> journal) {
+        this.mutationListeners.setJournal(journal);
     }
 
     public MedicalRecord addMedicalRecord(MedicalRecord medicalRecord) {
-        this.medicalRecords.add(medicalRecord);
+        this.datasetHolder.write(() -> this.add(medicalRecord));
         return medicalRecord;
     }
 
 
+    private MutationJournal.Commit add(MedicalRecord medicalRecord) {
+        MedicalRecordStore store = this.datasetHolder.latest().getMedicalRecordStore();
+        if (store.findMedicalRecordByFirstNameAndLastName(medicalRecord.getFirstName(), medicalRecord.getLastName()) != null) {
+            return this.update(medicalRecord);
+        }
+        return this.mutationListeners.apply(Mutation.Type.ADD, null, medicalRecord,
+                () -> this.datasetHolder.update(dataset -> dataset.withMedicalRecordChange(store.withAdded(medicalRecord), null, medicalRecord)));
+    }
+
+
+    /**
+     * Delete the registered medical record having the same firstname and lastname,
+     * nothing being done if this medical record has been deleted by a concurrent request
+     *
+     * @param medicalRecord
+     */
     public void deleteMedicalRecord(MedicalRecord medicalRecord) {
-        this.medicalRecords.remove(medicalRecord);
+        this.datasetHolder.write(() -> {
+            MedicalRecordStore store = this.datasetHolder.latest().getMedicalRecordStore();
+            MedicalRecord deletedMedicalRecord = store.findMedicalRecordByFirstNameAndLastName(medicalRecord.getFirstName(), medicalRecord.getLastName());
+            if (deletedMedicalRecord == null) {
+                return MutationJournal.Commit.DONE;
+            }
+            return this.mutationListeners.apply(Mutation.Type.DELETE, deletedMedicalRecord, null,
+                    () -> this.datasetHolder.update(dataset -> dataset.withMedicalRecordChange(store.withDeleted(deletedMedicalRecord), deletedMedicalRecord, null)));
+        });
     }
 
 
     public MedicalRecord updateMedicalRecord(MedicalRecord updatedMedicalRecord) {
-        int index = this.medicalRecords.indexOf(this.findMedicalRecordByFirstNameAndLastName(updatedMedicalRecord.getFirstName(), updatedMedicalRecord.getLastName()));
-        this.medicalRecords.set(index, updatedMedicalRecord);
+        this.datasetHolder.write(() -> this.update(updatedMedicalRecord));
         return updatedMedicalRecord;
     }
 
 
-    public MedicalRecord findMedicalRecordByFirstNameAndLastName(String firstName, String lastName) {
-        MedicalRecord medicalRecordResult = null;
-        for (MedicalRecord medicalRecord : this.medicalRecords) {
-            if (medicalRecord.getFirstName().toLowerCase().equals(firstName.toLowerCase()) && medicalRecord.getLastName().toLowerCase().equals(lastName.toLowerCase())) {
-                medicalRecordResult = medicalRecord;
-            }
+    private MutationJournal.Commit update(MedicalRecord updatedMedicalRecord) {
+        MedicalRecordStore store = this.datasetHolder.latest().getMedicalRecordStore();
+        MedicalRecord previousMedicalRecord = store.findMedicalRecordByFirstNameAndLastName(updatedMedicalRecord.getFirstName(), updatedMedicalRecord.getLastName());
+        if (previousMedicalRecord == null) {
+            return this.add(updatedMedicalRecord);
         }
-        return medicalRecordResult;
+        return this.mutationListeners.apply(Mutation.Type.UPDATE, previousMedicalRecord, updatedMedicalRecord,
+                () -> this.datasetHolder.update(dataset -> dataset.withMedicalRecordChange(store.withUpdated(previousMedicalRecord, updatedMedicalRecord), previousMedicalRecord, updatedMedicalRecord)));
+    }
+
+
+    public MedicalRecord findMedicalRecordByFirstNameAndLastName(String firstName, String lastName) {
+        return this.store().findMedicalRecordByFirstNameAndLastName(firstName, lastName);
+    }
+
+
+    /**
+     * Join the given people with the name index in a single pass
+     *
+     * @param persons
+     * @return the medical records in the same order as the people, null for a person without medical record
+     */
+    public List<MedicalRecord> findMedicalRecordsByPersons(List<Person> persons) {
+        return this.store().findMedicalRecordsByPersons(persons);
     }
 
 
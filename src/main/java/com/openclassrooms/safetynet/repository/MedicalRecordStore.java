@@ -0,0 +1,94 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable content of the medical record repository: the medical records in their order of registration,
+ * indexed by name. A change returns a new store sharing most of its index with this one.
+ */
+public final class MedicalRecordStore {
+
+    static final MedicalRecordStore EMPTY = new MedicalRecordStore(SequencedList.of(List.of()), ShardedMap.empty());
+
+    private final SequencedList<MedicalRecord> medicalRecords;
+    private final ShardedMap<NameKey, MedicalRecord> medicalRecordsByName;
+
+    private MedicalRecordStore(SequencedList<MedicalRecord> medicalRecords, ShardedMap<NameKey, MedicalRecord> medicalRecordsByName) {
+        this.medicalRecords = medicalRecords;
+        this.medicalRecordsByName = medicalRecordsByName;
+    }
+
+    static MedicalRecordStore of(List<MedicalRecord> medicalRecords) {
+        ShardedMap.Builder<NameKey, MedicalRecord> medicalRecordsByName = new ShardedMap.Builder<>();
+        for (MedicalRecord medicalRecord : medicalRecords) {
+            medicalRecordsByName.put(NameKey.of(medicalRecord), medicalRecord);
+        }
+        return new MedicalRecordStore(SequencedList.of(medicalRecords), medicalRecordsByName.build());
+    }
+
+
+    public List<MedicalRecord> getMedicalRecords() {
+        return this.medicalRecords;
+    }
+
+
+    long getEpoch() {
+        return this.medicalRecords.getEpoch();
+    }
+
+
+    /**
+     * Method that takes a cursor and a limit, and returns the medical records registered after the cursor
+     *
+     * @param after the cursor given by the previous page, null to start from the first one
+     * @param limit
+     * @return the page, in the order of registration
+     * @throws IllegalArgumentException if the cursor has been given before the medical records were reloaded
+     */
+    public Page<MedicalRecord> getMedicalRecordsPage(Cursor after, int limit) {
+        return this.medicalRecords.page(after, limit);
+    }
+
+
+    public MedicalRecord findMedicalRecordByFirstNameAndLastName(String firstName, String lastName) {
+        return this.medicalRecordsByName.get(NameKey.of(firstName, lastName));
+    }
+
+
+    /**
+     * Join the given people with the name index in a single pass
+     *
+     * @param persons
+     * @return the medical records in the same order as the people, null for a person without medical record
+     */
+    public List<MedicalRecord> findMedicalRecordsByPersons(List<Person> persons) {
+        List<MedicalRecord> medicalRecordList = new ArrayList<>(persons.size());
+        for (Person person : persons) {
+            medicalRecordList.add(this.medicalRecordsByName.get(NameKey.of(person)));
+        }
+        return medicalRecordList;
+    }
+
+
+    MedicalRecordStore withAdded(MedicalRecord medicalRecord) {
+        return new MedicalRecordStore(this.medicalRecords.append(medicalRecord),
+                this.medicalRecordsByName.with(NameKey.of(medicalRecord), medicalRecord));
+    }
+
+
+    MedicalRecordStore withUpdated(MedicalRecord previousMedicalRecord, MedicalRecord updatedMedicalRecord) {
+        return new MedicalRecordStore(this.medicalRecords.replace(previousMedicalRecord, updatedMedicalRecord),
+                this.medicalRecordsByName.with(NameKey.of(updatedMedicalRecord), updatedMedicalRecord));
+    }
+
+
+    MedicalRecordStore withDeleted(MedicalRecord medicalRecord) {
+        return new MedicalRecordStore(this.medicalRecords.without(medicalRecord),
+                this.medicalRecordsByName.without(NameKey.of(medicalRecord)));
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.openclassrooms.safetynet.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A change applied to a repository by an add, an update or a delete
+ *
+ * @param <T> the type of the changed record
+ */
+@Data
+@AllArgsConstructor
+public class Mutation<T> {
+
+    public enum Type {
+        ADD, UPDATE, DELETE
+    }
+
+    private Type type;
+    // the record before the change, null for an add
+    private T previous;
+    // the record after the change, null for a delete
+    private T current;
+
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.safetynet.repository;
+
+/**
+ * Journal written with every add, update and delete applied to a repository, before the change is visible.
+ * It is called by the writer holding the lock of the dataset holder, so the changes are written in the order
+ * they are applied, and a change the journal fails to write is not applied.
+ * The writer waits for the change to be durable once it has released the lock, so the changes of the writers
+ * waiting meanwhile can be made durable together.
+ *
+ * @param <T> the type of the records of the repository
+ */
+@FunctionalInterface
+public interface MutationJournal<T> {
+
+    /**
+     * Method that writes a change, called while holding the lock of the dataset holder
+     *
+     * @param mutation
+     * @return the wait for the change to be durable
+     */
+    Commit append(Mutation<T> mutation);
+
+
+    /**
+     * Wait for a change written to the journal to be durable
+     */
+    @FunctionalInterface
+    interface Commit {
+
+        Commit DONE = () -> {
+        };
+
+        void await();
+
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.openclassrooms.safetynet.repository;
+
+/**
+ * Listener notified of every add, update and delete applied to a repository, once the change is visible.
+ * Replacing the whole content of a repository is not a mutation.
+ *
+ * @param <T> the type of the records of the repository
+ */
+@FunctionalInterface
+public interface MutationListener<T> {
+
+    void onMutation(Mutation<T> mutation);
+
+}
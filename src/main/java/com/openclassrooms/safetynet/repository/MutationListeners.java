@@ -0,0 +1,45 @@
+package com.openclassrooms.safetynet.repository;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The journal and the listeners registered on a repository
+ *
+ * @param <T> the type of the records of the repository
+ */
+class MutationListeners<T> {
+
+    private final List<MutationListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private volatile MutationJournal<T> journal;
+
+    void add(MutationListener<T> listener) {
+        this.listeners.add(listener);
+    }
+
+    void setJournal(MutationJournal<T> journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Method that writes a change to the journal, applies it, then notifies the listeners.
+     * Must be called while holding the lock of the dataset holder.
+     *
+     * @param type
+     * @param previous the record before the change, null for an add
+     * @param current  the record after the change, null for a delete
+     * @param change   the publication of the change in a new version of the data, not run if the journal fails
+     * @return the wait for the change to be durable, to run once the lock is released
+     */
+    MutationJournal.Commit apply(Mutation.Type type, T previous, T current, Runnable change) {
+        Mutation<T> mutation = new Mutation<>(type, previous, current);
+        MutationJournal<T> mutationJournal = this.journal;
+        MutationJournal.Commit commit = mutationJournal == null ? MutationJournal.Commit.DONE : mutationJournal.append(mutation);
+        change.run();
+        for (MutationListener<T> listener : this.listeners) {
+            listener.onMutation(mutation);
+        }
+        return commit;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+
+/**
+ * Case-insensitive key built from a firstname and a lastname, used to index
+ * people and medical records by name.
+ * The hash is computed once from the case-folded characters so that no lowercase
+ * copy of the names is needed, neither to build the key nor to compare two keys.
+ */
+public final class NameKey {
+
+    private final String firstName;
+    private final String lastName;
+    private final int hash;
+
+    private NameKey(String firstName, String lastName) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.hash = 31 * foldedHash(firstName) + foldedHash(lastName);
+    }
+
+    public static NameKey of(String firstName, String lastName) {
+        return new NameKey(firstName, lastName);
+    }
+
+    public static NameKey of(Person person) {
+        return new NameKey(person.getFirstName(), person.getLastName());
+    }
+
+    public static NameKey of(MedicalRecord medicalRecord) {
+        return new NameKey(medicalRecord.getFirstName(), medicalRecord.getLastName());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NameKey)) {
+            return false;
+        }
+        NameKey other = (NameKey) o;
+        return this.hash == other.hash
+                && equalsIgnoreCase(this.firstName, other.firstName)
+                && equalsIgnoreCase(this.lastName, other.lastName);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return firstName + " " + lastName;
+    }
+
+
+    /**
+     * Method that takes a string and returns a hash consistent with String#equalsIgnoreCase
+     *
+     * @param value
+     * @return the hash of the case-folded value, 0 for a missing value
+     */
+    private static int foldedHash(String value) {
+        int h = 0;
+        if (value == null) {
+            return h;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+        }
+        return h;
+    }
+
+
+    private static boolean equalsIgnoreCase(String value, String other) {
+        return value == null ? other == null : value.equalsIgnoreCase(other);
+    }
+
+
+}
@@ -0,0 +1,40 @@
+package com.openclassrooms.safetynet.repository;
+
+import java.util.List;
+
+/**
+ * Elements of a listing read after a cursor, with the cursor to give to read the following ones.
+ * The next cursor is always given, even on the last page, so that a client can come back later
+ * and only read the elements registered in the meantime.
+ */
+public final class Page<T> {
+
+    private final List<T> elements;
+    private final Cursor next;
+    private final boolean more;
+
+    public Page(List<T> elements, Cursor next, boolean more) {
+        this.elements = elements;
+        this.next = next;
+        this.more = more;
+    }
+
+
+    public List<T> getElements() {
+        return this.elements;
+    }
+
+
+    public Cursor getNext() {
+        return this.next;
+    }
+
+
+    /**
+     * @return true if elements were already registered after this page when it was read
+     */
+    public boolean hasMore() {
+        return this.more;
+    }
+
+}
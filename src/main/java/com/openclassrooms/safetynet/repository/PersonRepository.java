@@ -1,64 +1,182 @@
 package com.openclassrooms.safetynet.repository;
 
 import com.openclassrooms.safetynet.model.Person;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * The people are read from the version of the data given by the dataset holder, without any lock.
+ * A change builds a new person store and publishes it in a new version of the data.
+ */
 @Repository
 public class PersonRepository {
 
-    private List<Person> persons = new ArrayList<>();
+    private final DatasetHolder datasetHolder;
+    private final MutationListeners<Person> mutationListeners = new MutationListeners<>();
+
+    public PersonRepository() {
+        this(new DatasetHolder());
+    }
+
+    @Autowired
+    public PersonRepository(DatasetHolder datasetHolder) {
+        this.datasetHolder = datasetHolder;
+    }
+
+
+    private PersonStore store() {
+        return this.datasetHolder.read().getPersonStore();
+    }
+
 
     public List<Person> getPersons() {
-        return this.persons;
+        return this.store().getPersons();
+    }
+
+
+    public Page<Person> getPersonsPage(Cursor after, int limit) {
+        return this.store().getPersonsPage(after, limit);
     }
 
 
     public void setPersons(List<Person> persons) {
-        this.persons = persons;
+        PersonStore store = PersonStore.of(persons);
+        this.datasetHolder.update(dataset -> dataset.withPersonStore(store));
+    }
+
+
+    public void addMutationListener(MutationListener<Person> listener) {
+        this.mutationListeners.add(listener);
+    }
+
+
+    public void setMutationJournal(MutationJournal<Person> journal) {
+        this.mutationListeners.setJournal(journal);
     }
 
 
     public Person findPersonByFirstNameAndLastName(String firstName, String lastName) {
-        Person personResult = null;
-        for (Person person : this.persons) {
-            if (person.getFirstName().toLowerCase().equals(firstName.toLowerCase()) && person.getLastName().toLowerCase().equals(lastName.toLowerCase())) {
-                personResult = person;
-            }
-        }
-        return personResult;
+        return this.store().findPersonByFirstNameAndLastName(firstName, lastName);
     }
 
 
     public List<Person> findPersonsByAddress(String address) {
-        List<Person> personList = new ArrayList<>();
-        for (Person person : this.persons) {
-            if (person.getAddress().equals(address)) {
-                personList.add(person);
-            }
-        }
-        return personList;
+        return this.store().findPersonsByAddress(address);
     }
 
 
+    /**
+     * Join the given addresses with the address index, each address being read once
+     * even if it is given several times
+     *
+     * @param addresses
+     * @return the people living at one of the addresses, grouped by address
+     */
+    public List<Person> findPersonsByAddresses(Collection<String> addresses) {
+        return this.store().findPersonsByAddresses(addresses);
+    }
+
+
+    /**
+     * Find the distinct phone numbers of the people covered by a fire station from the phone index
+     *
+     * @param stationNumber
+     * @return an unmodifiable list of phone numbers, empty if the station covers nobody
+     */
+    public List<String> findPhonesByStationNumber(int stationNumber) {
+        return this.datasetHolder.read().getPhoneIndex().getPhonesByStation(stationNumber);
+    }
+
+
+    /**
+     * Find the distinct emails of the people living in a city from the email index
+     *
+     * @param city
+     * @return an unmodifiable list of emails, empty if nobody lives in this city
+     */
+    public List<String> findEmailsByCity(String city) {
+        return this.store().findEmailsByCity(city);
+    }
+
+
+    /**
+     * Find the other members of the household of a person, the people with the same lastname
+     * living at the same address, from the household index
+     *
+     * @param person
+     * @return an unmodifiable list of family members, shared with the household index
+     */
+    public List<Person> findOtherFamilyMembers(Person person) {
+        return this.store().findOtherFamilyMembers(person);
+    }
+
+
+    /**
+     * Register a person, or replace the registered person having the same firstname and lastname
+     * if this person has been registered by a concurrent request
+     *
+     * @param person
+     * @return the added person
+     */
     public Person addPerson(Person person) {
-        this.persons.add(person);
+        this.datasetHolder.write(() -> this.add(person));
         return person;
     }
 
 
+    private MutationJournal.Commit add(Person person) {
+        PersonStore store = this.datasetHolder.latest().getPersonStore();
+        if (store.findPersonByFirstNameAndLastName(person.getFirstName(), person.getLastName()) != null) {
+            return this.update(person);
+        }
+        return this.mutationListeners.apply(Mutation.Type.ADD, null, person,
+                () -> this.datasetHolder.update(dataset -> dataset.withPersonChange(store.withAdded(person), null, person)));
+    }
+
+
+    /**
+     * Delete the registered person having the same firstname and lastname,
+     * nothing being done if this person has been deleted by a concurrent request
+     *
+     * @param person
+     */
     public void deletePerson(Person person) {
-        this.persons.remove(person);
+        this.datasetHolder.write(() -> {
+            PersonStore store = this.datasetHolder.latest().getPersonStore();
+            Person deletedPerson = store.findPersonByFirstNameAndLastName(person.getFirstName(), person.getLastName());
+            if (deletedPerson == null) {
+                return MutationJournal.Commit.DONE;
+            }
+            return this.mutationListeners.apply(Mutation.Type.DELETE, deletedPerson, null,
+                    () -> this.datasetHolder.update(dataset -> dataset.withPersonChange(store.withDeleted(deletedPerson), deletedPerson, null)));
+        });
     }
 
 
+    /**
+     * Replace the registered person having the same firstname and lastname
+     *
+     * @param updatedPerson
+     * @return the updated person
+     */
     public Person updatePerson(Person updatedPerson) {
-        int index = this.persons.indexOf(this.findPersonByFirstNameAndLastName(updatedPerson.getFirstName(), updatedPerson.getLastName()));
-        this.persons.set(index, updatedPerson);
+        this.datasetHolder.write(() -> this.update(updatedPerson));
         return updatedPerson;
     }
 
 
+    private MutationJournal.Commit update(Person updatedPerson) {
+        PersonStore store = this.datasetHolder.latest().getPersonStore();
+        Person previousPerson = store.findPersonByFirstNameAndLastName(updatedPerson.getFirstName(), updatedPerson.getLastName());
+        if (previousPerson == null) {
+            return this.add(updatedPerson);
+        }
+        return this.mutationListeners.apply(Mutation.Type.UPDATE, previousPerson, updatedPerson,
+                () -> this.datasetHolder.update(dataset -> dataset.withPersonChange(store.withUpdated(previousPerson, updatedPerson), previousPerson, updatedPerson)));
+    }
+
+
 }
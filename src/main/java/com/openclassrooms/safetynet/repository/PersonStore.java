@@ -0,0 +1,178 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.Person;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable content of the person repository: the people in their order of registration,
+ * indexed by name, by address and by household, with the distinct emails of each city. A change returns a new store sharing most of its indexes with this one,
+ * so a store can be read by any number of threads without any lock.
+ */
+public final class PersonStore {
+
+    static final PersonStore EMPTY = new PersonStore(SequencedList.of(List.of()), ShardedMap.empty(), ShardedMap.empty(), ShardedMap.empty(), ShardedMap.empty());
+
+    private final SequencedList<Person> persons;
+    private final ShardedMap<NameKey, Person> personsByName;
+    private final ShardedMap<String, List<Person>> personsByAddress;
+    private final ShardedMap<HouseholdKey, List<Person>> personsByHousehold;
+    // the emails of the people of each city, counted so that an email shared by several people stays until its last owner leaves
+    private final ShardedMap<String, CountedSet<String>> emailsByCity;
+
+    private PersonStore(SequencedList<Person> persons, ShardedMap<NameKey, Person> personsByName, ShardedMap<String, List<Person>> personsByAddress,
+                        ShardedMap<HouseholdKey, List<Person>> personsByHousehold, ShardedMap<String, CountedSet<String>> emailsByCity) {
+        this.persons = persons;
+        this.personsByName = personsByName;
+        this.personsByAddress = personsByAddress;
+        this.personsByHousehold = personsByHousehold;
+        this.emailsByCity = emailsByCity;
+    }
+
+    static PersonStore of(List<Person> persons) {
+        ShardedMap.Builder<NameKey, Person> personsByName = new ShardedMap.Builder<>();
+        ShardedMap.Builder<String, List<Person>> personsByAddress = new ShardedMap.Builder<>();
+        ShardedMap.Builder<HouseholdKey, List<Person>> personsByHousehold = new ShardedMap.Builder<>();
+        Map<String, CountedSet.Builder<String>> emailsByCity = new HashMap<>();
+        for (Person person : persons) {
+            personsByName.put(NameKey.of(person), person);
+            ImmutableLists.addToBucket(personsByAddress, person.getAddress(), person);
+            ImmutableLists.addToBucket(personsByHousehold, HouseholdKey.of(person), person);
+            if (person.getCity() != null) {
+                emailsByCity.computeIfAbsent(person.getCity(), city -> new CountedSet.Builder<>()).add(person.getEmail());
+            }
+        }
+        ShardedMap.Builder<String, CountedSet<String>> emailIndex = new ShardedMap.Builder<>();
+        emailsByCity.forEach((city, emails) -> emailIndex.put(city, emails.build()));
+        return new PersonStore(SequencedList.of(persons), personsByName.build(), personsByAddress.build(),
+                personsByHousehold.build(), emailIndex.build());
+    }
+
+
+    public List<Person> getPersons() {
+        return this.persons;
+    }
+
+
+    long getEpoch() {
+        return this.persons.getEpoch();
+    }
+
+
+    /**
+     * Method that takes a cursor and a limit, and returns the people registered after the cursor
+     *
+     * @param after the cursor given by the previous page, null to start from the first one
+     * @param limit
+     * @return the page, in the order of registration
+     * @throws IllegalArgumentException if the cursor has been given before the people were reloaded
+     */
+    public Page<Person> getPersonsPage(Cursor after, int limit) {
+        return this.persons.page(after, limit);
+    }
+
+
+    public Person findPersonByFirstNameAndLastName(String firstName, String lastName) {
+        return this.personsByName.get(NameKey.of(firstName, lastName));
+    }
+
+
+    public List<Person> findPersonsByAddress(String address) {
+        List<Person> residents = this.personsByAddress.get(address);
+        return residents == null ? new ArrayList<>() : new ArrayList<>(residents);
+    }
+
+
+    /**
+     * Join the given addresses with the address index, each address being read once
+     * even if it is given several times
+     *
+     * @param addresses
+     * @return the people living at one of the addresses, grouped by address
+     */
+    public List<Person> findPersonsByAddresses(Collection<String> addresses) {
+        List<Person> personList = new ArrayList<>();
+        for (String address : new LinkedHashSet<>(addresses)) {
+            List<Person> residents = this.personsByAddress.get(address);
+            if (residents != null) {
+                personList.addAll(residents);
+            }
+        }
+        return personList;
+    }
+
+
+    /**
+     * Method that takes a city and returns the distinct emails of the people living in this city
+     *
+     * @param city
+     * @return the prebuilt unmodifiable list of emails, in the order they were first registered
+     */
+    public List<String> findEmailsByCity(String city) {
+        CountedSet<String> emails = this.emailsByCity.get(city);
+        return emails == null ? List.of() : emails.getValues();
+    }
+
+
+    /**
+     * Method that takes a person and returns the other members of the person's household,
+     * the people with the same lastname living at the same address.
+     * The list is an unmodifiable view of the household shared by all its members, nothing is copied.
+     *
+     * @param person
+     * @return the other family members, in the order of the address index
+     */
+    public List<Person> findOtherFamilyMembers(Person person) {
+        List<Person> household = this.personsByHousehold.get(HouseholdKey.of(person));
+        if (household == null) {
+            return List.of();
+        }
+        for (int i = 0; i < household.size(); i++) {
+            if (household.get(i).getFirstName().equals(person.getFirstName())) {
+                return ImmutableLists.without(household, i);
+            }
+        }
+        return ImmutableLists.freeze(household);
+    }
+
+
+    PersonStore withAdded(Person person) {
+        return new PersonStore(this.persons.append(person),
+                this.personsByName.with(NameKey.of(person), person),
+                ImmutableLists.appendToBucket(this.personsByAddress, person.getAddress(), person),
+                ImmutableLists.appendToBucket(this.personsByHousehold, HouseholdKey.of(person), person),
+                CountedSet.addToIndex(this.emailsByCity, person.getCity(), person.getEmail()));
+    }
+
+
+    PersonStore withUpdated(Person previousPerson, Person updatedPerson) {
+        ShardedMap<String, List<Person>> addressIndex = ImmutableLists.removeFromBucket(this.personsByAddress, previousPerson.getAddress(), previousPerson);
+        ShardedMap<HouseholdKey, List<Person>> householdIndex = ImmutableLists.removeFromBucket(this.personsByHousehold, HouseholdKey.of(previousPerson), previousPerson);
+        ShardedMap<String, CountedSet<String>> emailIndex = this.emailsByCity;
+        if (!Objects.equals(previousPerson.getCity(), updatedPerson.getCity()) || !Objects.equals(previousPerson.getEmail(), updatedPerson.getEmail())) {
+            emailIndex = CountedSet.removeFromIndex(emailIndex, previousPerson.getCity(), previousPerson.getEmail());
+            emailIndex = CountedSet.addToIndex(emailIndex, updatedPerson.getCity(), updatedPerson.getEmail());
+        }
+        return new PersonStore(this.persons.replace(previousPerson, updatedPerson),
+                this.personsByName.with(NameKey.of(updatedPerson), updatedPerson),
+                ImmutableLists.appendToBucket(addressIndex, updatedPerson.getAddress(), updatedPerson),
+                ImmutableLists.appendToBucket(householdIndex, HouseholdKey.of(updatedPerson), updatedPerson),
+                emailIndex);
+    }
+
+
+    PersonStore withDeleted(Person person) {
+        return new PersonStore(this.persons.without(person),
+                this.personsByName.without(NameKey.of(person)),
+                ImmutableLists.removeFromBucket(this.personsByAddress, person.getAddress(), person),
+                ImmutableLists.removeFromBucket(this.personsByHousehold, HouseholdKey.of(person), person),
+                CountedSet.removeFromIndex(this.emailsByCity, person.getCity(), person.getEmail()));
+    }
+
+}
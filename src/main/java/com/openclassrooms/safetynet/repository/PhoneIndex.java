@@ -0,0 +1,111 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.Person;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable index of the distinct phone numbers of the people covered by each fire station.
+ * The phones of a station are counted, once per person and per address mapped to the station,
+ * so a phone shared by several people stays listed until the last of them is no longer covered.
+ * A change of a person only updates the stations of the person's addresses, and a change of a fire station
+ * only moves the phones of the people living at its address.
+ */
+public final class PhoneIndex {
+
+    static final PhoneIndex EMPTY = new PhoneIndex(ShardedMap.empty());
+
+    private final ShardedMap<Integer, CountedSet<String>> phonesByStation;
+
+    private PhoneIndex(ShardedMap<Integer, CountedSet<String>> phonesByStation) {
+        this.phonesByStation = phonesByStation;
+    }
+
+    static PhoneIndex of(PersonStore personStore, FireStationStore fireStationStore) {
+        Map<Integer, CountedSet.Builder<String>> phonesByStation = new HashMap<>();
+        for (FireStation fireStation : new LinkedHashSet<>(fireStationStore.getFireStations())) {
+            CountedSet.Builder<String> phones = phonesByStation.computeIfAbsent(fireStation.getStation(), station -> new CountedSet.Builder<>());
+            for (Person person : personStore.findPersonsByAddress(fireStation.getAddress())) {
+                phones.add(person.getPhone());
+            }
+        }
+        ShardedMap.Builder<Integer, CountedSet<String>> phoneIndex = new ShardedMap.Builder<>();
+        phonesByStation.forEach((station, phones) -> phoneIndex.put(station, phones.build()));
+        return new PhoneIndex(phoneIndex.build());
+    }
+
+
+    /**
+     * Method that takes a station number and returns the distinct phone numbers of the people covered by the station
+     *
+     * @param stationNumber
+     * @return the prebuilt unmodifiable list of phone numbers
+     */
+    public List<String> getPhonesByStation(int stationNumber) {
+        CountedSet<String> phones = this.phonesByStation.get(stationNumber);
+        return phones == null ? List.of() : phones.getValues();
+    }
+
+
+    /**
+     * Method that takes the previous and the current version of a person and returns the index updated with this change
+     *
+     * @param previous         the previous version, null if the person is added
+     * @param current          the current version, null if the person is deleted
+     * @param fireStationStore
+     * @return the new index, or this index if neither the address nor the phone has changed
+     */
+    PhoneIndex withPersonChange(Person previous, Person current, FireStationStore fireStationStore) {
+        if (previous != null && current != null && Objects.equals(previous.getAddress(), current.getAddress())
+                && Objects.equals(previous.getPhone(), current.getPhone())) {
+            return this;
+        }
+        ShardedMap<Integer, CountedSet<String>> phonesByStation = this.phonesByStation;
+        if (previous != null) {
+            for (Integer station : fireStationStore.getStationNumbersByAddress(previous.getAddress())) {
+                phonesByStation = CountedSet.removeFromIndex(phonesByStation, station, previous.getPhone());
+            }
+        }
+        if (current != null) {
+            for (Integer station : fireStationStore.getStationNumbersByAddress(current.getAddress())) {
+                phonesByStation = CountedSet.addToIndex(phonesByStation, station, current.getPhone());
+            }
+        }
+        return new PhoneIndex(phonesByStation);
+    }
+
+
+    /**
+     * Method that takes the previous and the current version of a fire station and returns the index
+     * updated with this change. An address mapped several times to the same station is counted once.
+     *
+     * @param previous         the previous version, null if the fire station is added
+     * @param current          the current version, null if the fire station is deleted
+     * @param personStore
+     * @param fireStationStore the fire station store including the change
+     * @return the new index
+     */
+    PhoneIndex withFireStationChange(FireStation previous, FireStation current, PersonStore personStore, FireStationStore fireStationStore) {
+        if (previous != null && previous.equals(current)) {
+            return this;
+        }
+        ShardedMap<Integer, CountedSet<String>> phonesByStation = this.phonesByStation;
+        if (previous != null && fireStationStore.countFireStations(previous) == 0) {
+            for (Person person : personStore.findPersonsByAddress(previous.getAddress())) {
+                phonesByStation = CountedSet.removeFromIndex(phonesByStation, previous.getStation(), person.getPhone());
+            }
+        }
+        if (current != null && fireStationStore.countFireStations(current) == 1) {
+            for (Person person : personStore.findPersonsByAddress(current.getAddress())) {
+                phonesByStation = CountedSet.addToIndex(phonesByStation, current.getStation(), person.getPhone());
+            }
+        }
+        return new PhoneIndex(phonesByStation);
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.utils.AgeEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * The versions of the answers of the queries, read from the version of the data given by the dataset holder.
+ * A version is made of the epoch of the data, the counters of the changes of the keys read by the query,
+ * and today's key when the answer depends on the ages, so it changes whenever the answer may change,
+ * and only then: a change of another address, station, city or lastname keeps the version.
+ * The versions are used as entity tags, the answer being computed only if the client's copy is outdated.
+ */
+@Repository
+public class QueryVersionRepository {
+
+    private final DatasetHolder datasetHolder;
+    private final AgeEngine ageEngine;
+
+    public QueryVersionRepository() {
+        this(new DatasetHolder(), new AgeEngine());
+    }
+
+    @Autowired
+    public QueryVersionRepository(DatasetHolder datasetHolder, AgeEngine ageEngine) {
+        this.datasetHolder = datasetHolder;
+        this.ageEngine = ageEngine;
+    }
+
+
+    /**
+     * Method that takes a station number and returns the version of the people covered by the station
+     *
+     * @param stationNumber
+     * @return the version of the answer of /firestation
+     */
+    public String getStationVersion(int stationNumber) {
+        Dataset dataset = this.datasetHolder.read();
+        return prefix(dataset) + stationVersion(dataset, stationNumber) + "-" + this.ageEngine.todayKey();
+    }
+
+
+    /**
+     * Method that takes a station number and returns the version of the phone numbers of the people covered by the station
+     *
+     * @param stationNumber
+     * @return the version of the answer of /phoneAlert, which doesn't depend on the ages
+     */
+    public String getStationPhonesVersion(int stationNumber) {
+        Dataset dataset = this.datasetHolder.read();
+        return prefix(dataset) + stationVersion(dataset, stationNumber);
+    }
+
+
+    /**
+     * Method that takes station numbers and returns the version of the people covered by these stations
+     *
+     * @param stationNumbers
+     * @return the version of the answer of /flood/stations
+     */
+    public String getStationsVersion(List<Integer> stationNumbers) {
+        Dataset dataset = this.datasetHolder.read();
+        StringBuilder version = new StringBuilder(prefix(dataset));
+        for (Integer stationNumber : new LinkedHashSet<>(stationNumbers)) {
+            version.append(stationNumber).append('.').append(stationVersion(dataset, stationNumber)).append('-');
+        }
+        return version.append(this.ageEngine.todayKey()).toString();
+    }
+
+
+    /**
+     * Method that takes an address and returns the version of the people living at this address
+     *
+     * @param address
+     * @return the version of the answers of /fire and /childAlert
+     */
+    public String getAddressVersion(String address) {
+        Dataset dataset = this.datasetHolder.read();
+        return prefix(dataset) + dataset.getQueryVersions().ofAddress(address) + "-" + this.ageEngine.todayKey();
+    }
+
+
+    /**
+     * Method that takes a lastname and returns the version of the people with this lastname
+     *
+     * @param lastName
+     * @return the version of the answer of /personInfo
+     */
+    public String getLastNameVersion(String lastName) {
+        Dataset dataset = this.datasetHolder.read();
+        return prefix(dataset) + dataset.getQueryVersions().ofLastName(lastName) + "-" + this.ageEngine.todayKey();
+    }
+
+
+    /**
+     * Method that takes a city and returns the version of the people living in the city
+     *
+     * @param city
+     * @return the version of the answer of /communityEmail
+     */
+    public String getCityVersion(String city) {
+        Dataset dataset = this.datasetHolder.read();
+        return prefix(dataset) + dataset.getQueryVersions().ofCity(city);
+    }
+
+
+    private static String prefix(Dataset dataset) {
+        return Long.toHexString(dataset.getEpoch()) + "-";
+    }
+
+
+    /**
+     * The counter of the station changes with its addresses, and the sum of the counters of its addresses
+     * with the people living there, the sum only being compared while the addresses are the same
+     */
+    private static String stationVersion(Dataset dataset, int stationNumber) {
+        QueryVersions queryVersions = dataset.getQueryVersions();
+        long addressChanges = 0;
+        for (FireStation fireStation : dataset.getFireStationStore().getFireStationsByNumber(stationNumber)) {
+            addressChanges += queryVersions.ofAddress(fireStation.getAddress());
+        }
+        return queryVersions.ofStation(stationNumber) + "." + addressChanges;
+    }
+
+}
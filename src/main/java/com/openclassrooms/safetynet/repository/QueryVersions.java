@@ -0,0 +1,123 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+
+import java.util.Locale;
+
+/**
+ * Immutable counters of the changes of the data read by the queries: a counter per address, station, city and lastname,
+ * incremented by every change of a person, a medical record or a fire station read by a query on this key.
+ * The keys are compared ignoring the case, so a change is counted by every query which may read it.
+ * The counters start again from zero when the data are reloaded, so they are only comparable within the same epoch.
+ */
+public final class QueryVersions {
+
+    static final QueryVersions EMPTY = new QueryVersions(ShardedMap.empty(), ShardedMap.empty(), ShardedMap.empty(), ShardedMap.empty());
+
+    private final ShardedMap<String, Long> byAddress;
+    private final ShardedMap<Integer, Long> byStation;
+    private final ShardedMap<String, Long> byCity;
+    private final ShardedMap<String, Long> byLastName;
+
+    private QueryVersions(ShardedMap<String, Long> byAddress, ShardedMap<Integer, Long> byStation, ShardedMap<String, Long> byCity,
+                          ShardedMap<String, Long> byLastName) {
+        this.byAddress = byAddress;
+        this.byStation = byStation;
+        this.byCity = byCity;
+        this.byLastName = byLastName;
+    }
+
+
+    /**
+     * @param address
+     * @return the number of changes of the people living at the address, of their medical records and of the stations of the address
+     */
+    public long ofAddress(String address) {
+        return count(this.byAddress, key(address));
+    }
+
+
+    /**
+     * @param stationNumber
+     * @return the number of changes of the addresses mapped to the station, the people living at these addresses being counted by address
+     */
+    public long ofStation(int stationNumber) {
+        return count(this.byStation, stationNumber);
+    }
+
+
+    /**
+     * @param city
+     * @return the number of changes of the people living in the city
+     */
+    public long ofCity(String city) {
+        return count(this.byCity, key(city));
+    }
+
+
+    /**
+     * @param lastName
+     * @return the number of changes of the people with this lastname and of their medical records
+     */
+    public long ofLastName(String lastName) {
+        return count(this.byLastName, key(lastName));
+    }
+
+
+    QueryVersions withPersonChange(Person previous, Person current) {
+        ShardedMap<String, Long> byAddress = this.byAddress;
+        ShardedMap<String, Long> byCity = this.byCity;
+        ShardedMap<String, Long> byLastName = this.byLastName;
+        for (Person person : new Person[]{previous, current}) {
+            if (person != null) {
+                byAddress = increment(byAddress, key(person.getAddress()));
+                byCity = increment(byCity, key(person.getCity()));
+                byLastName = increment(byLastName, key(person.getLastName()));
+            }
+        }
+        return new QueryVersions(byAddress, this.byStation, byCity, byLastName);
+    }
+
+
+    QueryVersions withMedicalRecordChange(MedicalRecord previous, MedicalRecord current, PersonStore personStore) {
+        MedicalRecord medicalRecord = current != null ? current : previous;
+        ShardedMap<String, Long> byAddress = this.byAddress;
+        Person person = personStore.findPersonByFirstNameAndLastName(medicalRecord.getFirstName(), medicalRecord.getLastName());
+        if (person != null) {
+            byAddress = increment(byAddress, key(person.getAddress()));
+        }
+        return new QueryVersions(byAddress, this.byStation, this.byCity, increment(this.byLastName, key(medicalRecord.getLastName())));
+    }
+
+
+    QueryVersions withFireStationChange(FireStation previous, FireStation current) {
+        ShardedMap<String, Long> byAddress = this.byAddress;
+        ShardedMap<Integer, Long> byStation = this.byStation;
+        for (FireStation fireStation : new FireStation[]{previous, current}) {
+            if (fireStation != null) {
+                byAddress = increment(byAddress, key(fireStation.getAddress()));
+                byStation = increment(byStation, fireStation.getStation());
+            }
+        }
+        return new QueryVersions(byAddress, byStation, this.byCity, this.byLastName);
+    }
+
+
+    private static String key(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+
+    private static <K> long count(ShardedMap<K, Long> counters, K key) {
+        Long count = counters.get(key);
+        return count == null ? 0 : count;
+    }
+
+
+    private static <K> ShardedMap<K, Long> increment(ShardedMap<K, Long> counters, K key) {
+        return counters.with(key, count(counters, key) + 1);
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.utils.AgeEngine;
+
+/**
+ * A person living at an address, with the person's medical record and the key of the day the person becomes an adult.
+ * A person is a child up to 18 years old, so is an adult from the 19th birthday: comparing today's key with this key
+ * classifies the person without reading the birthdate, and the classification changes by itself when the day changes.
+ */
+public final class Resident {
+
+    /**
+     * Key of the 19th birthday of a person without birthdate, who is 0 years old, so a child, forever
+     */
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    private final Person person;
+    private final MedicalRecord medicalRecord;
+    private final int adultFrom;
+
+    public Resident(Person person, MedicalRecord medicalRecord) {
+        this.person = person;
+        this.medicalRecord = medicalRecord;
+        this.adultFrom = adultFrom(medicalRecord);
+    }
+
+
+    private static int adultFrom(MedicalRecord medicalRecord) {
+        if (medicalRecord == null) {
+            return NEVER;
+        }
+        int birthdateKey = AgeEngine.dateKey(medicalRecord.getBirthdate());
+        return birthdateKey == AgeEngine.NO_DATE ? NEVER : birthdateKey + 190000;
+    }
+
+
+    public Person getPerson() {
+        return this.person;
+    }
+
+
+    /**
+     * @return the medical record of the person, null if the person has no medical record
+     */
+    public MedicalRecord getMedicalRecord() {
+        return this.medicalRecord;
+    }
+
+
+    public boolean hasMedicalRecord() {
+        return this.medicalRecord != null;
+    }
+
+
+    /**
+     * @return the key of the 19th birthday of the person, NEVER if the birthdate is unknown
+     */
+    public int getAdultFrom() {
+        return this.adultFrom;
+    }
+
+
+    /**
+     * Method that takes today's key and returns whether the person is a child, 18 years old or less
+     *
+     * @param todayKey
+     * @return true if the person is a child on this day
+     */
+    public boolean isChild(int todayKey) {
+        return todayKey < this.adultFrom;
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.openclassrooms.safetynet.repository;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Unmodifiable list in the order of registration, where each element keeps the sequence number given
+ * when it was registered: an update keeps the sequence of the replaced element, a deletion removes it,
+ * and an addition takes a sequence greater than all the sequences ever given in the list.
+ * The sequences are strictly increasing along the list, so the elements registered after a sequence
+ * are found by a binary search whatever the changes made since this sequence was read.
+ * The sequences are only comparable within the same epoch, a new epoch being drawn when the list is built in bulk.
+ * The elements and their sequences are kept in a chunked list, so a change copies a chunk and not the whole list,
+ * but finding the element to replace or delete still scans the list.
+ */
+final class SequencedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final long epoch;
+    private final ChunkedList<T> elements;
+    private final long nextSequence;
+
+    private SequencedList(long epoch, ChunkedList<T> elements, long nextSequence) {
+        this.epoch = epoch;
+        this.elements = elements;
+        this.nextSequence = nextSequence;
+    }
+
+    static <T> SequencedList<T> of(List<T> list) {
+        return new SequencedList<>(ThreadLocalRandom.current().nextLong(), ChunkedList.of(list, 1L), list.size() + 1);
+    }
+
+
+    @Override
+    public T get(int index) {
+        return this.elements.get(index);
+    }
+
+
+    @Override
+    public int size() {
+        return this.elements.size();
+    }
+
+
+    @Override
+    public int indexOf(Object value) {
+        return this.elements.indexOf(value);
+    }
+
+
+    long getEpoch() {
+        return this.epoch;
+    }
+
+
+    SequencedList<T> append(T value) {
+        return new SequencedList<>(this.epoch, this.elements.append(value, this.nextSequence), this.nextSequence + 1);
+    }
+
+
+    /**
+     * Method that returns a copy of the list where the previous instance is replaced by the value,
+     * the value keeping the sequence of the previous instance
+     *
+     * @param previous the instance to replace
+     * @param value
+     * @return the new list, or this list if it doesn't contain the previous instance
+     */
+    SequencedList<T> replace(T previous, T value) {
+        int index = this.elements.indexOfInstance(previous);
+        if (index < 0) {
+            return this;
+        }
+        return new SequencedList<>(this.epoch, this.elements.with(index, value), this.nextSequence);
+    }
+
+
+    /**
+     * Method that returns a copy of the list without the first element equal to the value
+     *
+     * @param value
+     * @return the new list, or this list if it doesn't contain the value
+     */
+    SequencedList<T> without(T value) {
+        int index = this.elements.indexOf(value);
+        if (index < 0) {
+            return this;
+        }
+        return new SequencedList<>(this.epoch, this.elements.without(index), this.nextSequence);
+    }
+
+
+    /**
+     * Method that takes a cursor and a limit, and returns the elements registered after the cursor
+     *
+     * @param after the cursor of the last element read, null to start from the first element
+     * @param limit the maximum number of elements of the page
+     * @return the page, a view of this list
+     * @throws IllegalArgumentException if the cursor was given by another epoch of the list
+     */
+    Page<T> page(Cursor after, int limit) {
+        if (after != null && after.getEpoch() != this.epoch) {
+            throw new IllegalArgumentException("The cursor has expired, the data has been reloaded since it was given");
+        }
+        long afterSequence = after == null ? 0 : after.getSequence();
+        int size = this.elements.size();
+        int from = this.elements.upperBound(afterSequence);
+        int to = (int) Math.min(size, (long) from + limit);
+        Cursor next = to == 0 ? new Cursor(this.epoch, afterSequence) : new Cursor(this.epoch, Math.max(afterSequence, this.elements.keyAt(to - 1)));
+        return new Page<>(this.subList(from, to), next, to < size);
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.openclassrooms.safetynet.repository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable hash map split into a fixed number of shards.
+ * Adding or removing a key copies only the shard of this key and the array of shards,
+ * the other shards being shared with the previous map, so a change costs a fraction of a full copy.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class ShardedMap<K, V> {
+
+    private static final int SHARD_BITS = 8;
+    private static final int SHARDS = 1 << SHARD_BITS;
+
+    private final Map<K, V>[] shards;
+
+    private ShardedMap(Map<K, V>[] shards) {
+        this.shards = shards;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> ShardedMap<K, V> empty() {
+        Map<K, V>[] shards = new Map[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = Collections.emptyMap();
+        }
+        return new ShardedMap<>(shards);
+    }
+
+
+    V get(Object key) {
+        return this.shards[shardOf(key)].get(key);
+    }
+
+
+    /**
+     * Method that takes a key and a value and returns a copy of this map where the key is mapped to the value
+     *
+     * @param key
+     * @param value
+     * @return the new map
+     */
+    ShardedMap<K, V> with(K key, V value) {
+        int shard = shardOf(key);
+        Map<K, V> copy = new HashMap<>(this.shards[shard]);
+        copy.put(key, value);
+        return this.withShard(shard, copy);
+    }
+
+
+    /**
+     * Method that takes a key and returns a copy of this map without this key
+     *
+     * @param key
+     * @return the new map, or this map if it doesn't contain the key
+     */
+    ShardedMap<K, V> without(K key) {
+        int shard = shardOf(key);
+        if (!this.shards[shard].containsKey(key)) {
+            return this;
+        }
+        Map<K, V> copy = new HashMap<>(this.shards[shard]);
+        copy.remove(key);
+        return this.withShard(shard, copy);
+    }
+
+
+    private ShardedMap<K, V> withShard(int shard, Map<K, V> content) {
+        Map<K, V>[] copy = this.shards.clone();
+        copy[shard] = content;
+        return new ShardedMap<>(copy);
+    }
+
+
+    /**
+     * The shard is chosen from the high bits of the mixed hash, the low bits being used by the hash map of the shard.
+     * A null key goes to the first shard, the maps of the shards accepting a null key.
+     */
+    private static int shardOf(Object key) {
+        return (Objects.hashCode(key) * 0x9E3779B9) >>> (Integer.SIZE - SHARD_BITS);
+    }
+
+
+    /**
+     * Mutable builder used to fill a map in bulk without copying any shard
+     */
+    static final class Builder<K, V> {
+
+        private final Map<K, V>[] shards;
+
+        @SuppressWarnings("unchecked")
+        Builder() {
+            this.shards = new Map[SHARDS];
+            for (int i = 0; i < SHARDS; i++) {
+                this.shards[i] = new HashMap<>();
+            }
+        }
+
+        V get(K key) {
+            return this.shards[shardOf(key)].get(key);
+        }
+
+        Builder<K, V> put(K key, V value) {
+            this.shards[shardOf(key)].put(key, value);
+            return this;
+        }
+
+        ShardedMap<K, V> build() {
+            return new ShardedMap<>(this.shards.clone());
+        }
+
+    }
+
+}
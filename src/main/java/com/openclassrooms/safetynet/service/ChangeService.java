@@ -0,0 +1,10 @@
+package com.openclassrooms.safetynet.service;
+
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
+import com.openclassrooms.safetynet.repository.Changes;
+
+public interface ChangeService {
+
+    public Changes getChangesSince(long since, String epoch) throws InvalidListingRequestException;
+
+}
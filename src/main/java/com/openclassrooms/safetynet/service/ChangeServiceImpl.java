@@ -0,0 +1,48 @@
+package com.openclassrooms.safetynet.service;
+
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
+import com.openclassrooms.safetynet.repository.ChangeRepository;
+import com.openclassrooms.safetynet.repository.Changes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ChangeServiceImpl implements ChangeService {
+
+    private final Logger logger = LoggerFactory.getLogger(ChangeServiceImpl.class);
+    private final ChangeRepository changeRepository;
+
+    public ChangeServiceImpl(ChangeRepository changeRepository) {
+        this.changeRepository = changeRepository;
+    }
+
+
+    /**
+     * Get the changes made to the people, fire stations and medical records after a sequence
+     *
+     * @param since the last sequence known by the client
+     * @param epoch the epoch given with this sequence, in hexadecimal, null to only check the sequence
+     * @return the changes after the sequence, or a resync if they are no longer known
+     * @throws InvalidListingRequestException if the sequence is negative or the epoch is not hexadecimal
+     */
+    public Changes getChangesSince(long since, String epoch) throws InvalidListingRequestException {
+        if (since < 0) {
+            throw new InvalidListingRequestException("The sequence must not be negative");
+        }
+        Long expectedEpoch = null;
+        if (epoch != null) {
+            try {
+                expectedEpoch = Long.parseUnsignedLong(epoch, 16);
+            } catch (NumberFormatException e) {
+                throw new InvalidListingRequestException("Invalid epoch: " + epoch);
+            }
+        }
+        Changes changes = this.changeRepository.findChangesSince(since, expectedEpoch);
+        if (changes.isResync()) {
+            logger.debug("The changes after {} are no longer known, the client has to resync", since);
+        }
+        return changes;
+    }
+
+}
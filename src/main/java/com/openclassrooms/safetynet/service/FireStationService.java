@@ -2,7 +2,9 @@ package com.openclassrooms.safetynet.service;
 
 import com.openclassrooms.safetynet.exception.FireStationAlreadyExistException;
 import com.openclassrooms.safetynet.exception.FireStationNotFoundException;
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
 import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.repository.Page;
 
 import java.util.List;
 
@@ -10,6 +12,8 @@ import java.util.List;
 public interface FireStationService {
     public List<FireStation> getAllFireStation();
 
+    public Page<FireStation> getFireStationsPage(String cursor, Integer limit) throws InvalidListingRequestException;
+
     public FireStation addFireStation(FireStation fireStation) throws FireStationAlreadyExistException;
 
     public FireStation updateStationNumber(FireStation fireStation) throws FireStationNotFoundException;
@@ -2,8 +2,10 @@ package com.openclassrooms.safetynet.service;
 
 import com.openclassrooms.safetynet.exception.FireStationAlreadyExistException;
 import com.openclassrooms.safetynet.exception.FireStationNotFoundException;
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
 import com.openclassrooms.safetynet.model.FireStation;
 import com.openclassrooms.safetynet.repository.FireStationRepository;
+import com.openclassrooms.safetynet.repository.Page;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -32,6 +34,18 @@ public class FireStationServiceImpl implements FireStationService {
         return this.fireStationRepository.getFireStations();
     }
 
+
+    /**
+     * Get the fire stations registered after a cursor, in their order of registration
+     *
+     * @param cursor the cursor given by the previous page, null to start from the first one
+     * @param limit  the maximum number of fire stations, null for no limit
+     * @return a page of fire stations with the cursor of the next page
+     */
+    public Page<FireStation> getFireStationsPage(String cursor, Integer limit) throws InvalidListingRequestException {
+        return ListingRequests.readPage(cursor, limit, this.fireStationRepository::getFireStationsPage);
+    }
+
     public FireStation addFireStation(FireStation fireStation) throws FireStationAlreadyExistException {
         Boolean isFireStationAlreadyRegistered = this.checkIfFireStationAlreadyExist(fireStation);
         if (isFireStationAlreadyRegistered) {
@@ -57,8 +71,11 @@ public class FireStationServiceImpl implements FireStationService {
         logger.debug("Try to update the fire station's number for the address {}", fireStation.getAddress());
         FireStation fireStationToUpdate = this.getFireStationByAddress(fireStation.getAddress());
         if (!Objects.isNull(fireStationToUpdate)) {
-            fireStationToUpdate.setStation(fireStation.getStation());
-            this.fireStationRepository.updateStationNumber(fireStationToUpdate);
+            FireStation updatedFireStation = FireStation.builder()
+                    .address(fireStationToUpdate.getAddress())
+                    .station(fireStation.getStation())
+                    .build();
+            this.fireStationRepository.updateStationNumber(updatedFireStation);
             logger.debug("Fire station successfully updated with the station's number {}", fireStation.getStation());
         }
         return fireStation;
@@ -0,0 +1,43 @@
+package com.openclassrooms.safetynet.service;
+
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
+import com.openclassrooms.safetynet.repository.Cursor;
+import com.openclassrooms.safetynet.repository.Page;
+
+/**
+ * Reads a page of a listing from the cursor and the limit given by a client,
+ * turning an invalid or expired cursor into an InvalidListingRequestException
+ */
+final class ListingRequests {
+
+    private ListingRequests() {
+    }
+
+
+    interface PageReader<T> {
+        Page<T> read(Cursor after, int limit);
+    }
+
+
+    /**
+     * Method that takes the parameters of a listing request and returns the page read by the reader
+     *
+     * @param cursor the cursor given by the previous page, null to start from the first element
+     * @param limit  the maximum number of elements, null for no limit
+     * @param reader
+     * @return the page
+     * @throws InvalidListingRequestException if the cursor is invalid or has expired, or if the limit is not positive
+     */
+    static <T> Page<T> readPage(String cursor, Integer limit, PageReader<T> reader) throws InvalidListingRequestException {
+        if (limit != null && limit <= 0) {
+            throw new InvalidListingRequestException("The limit must be positive");
+        }
+        try {
+            Cursor after = cursor == null ? null : Cursor.decode(cursor);
+            return reader.read(after, limit == null ? Integer.MAX_VALUE : limit);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidListingRequestException(e.getMessage());
+        }
+    }
+
+}
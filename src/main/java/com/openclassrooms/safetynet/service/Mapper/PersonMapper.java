@@ -7,14 +7,19 @@ import com.openclassrooms.safetynet.dto.PersonWithMedicalRecordDTO;
 import com.openclassrooms.safetynet.model.MedicalRecord;
 import com.openclassrooms.safetynet.model.Person;
 
+/**
+ * The conversions computing an age take today's key, read once by todayKey() for all the people of a request
+ */
 public interface PersonMapper {
 
-    PersonWithAgeAndFamilyMembersDTO asPersonWithAgeDTO(MedicalRecord medicalRecord);
+    int todayKey();
 
-    PersonWithAddressAndPhoneDTO asPersonWithAddressAndPhoneDTO(Person person, MedicalRecord medicalRecord);
+    PersonWithAgeAndFamilyMembersDTO asPersonWithAgeDTO(MedicalRecord medicalRecord, int todayKey);
 
-    PersonWithMedicalRecordDTO asPersonWithMedicalRecordDTO(Person person, MedicalRecord medicalRecord);
+    PersonWithAddressAndPhoneDTO asPersonWithAddressAndPhoneDTO(Person person, MedicalRecord medicalRecord, int todayKey);
 
-    PersonInfoDTO asPersonInfoDTO(Person person, MedicalRecord medicalRecord);
+    PersonWithMedicalRecordDTO asPersonWithMedicalRecordDTO(Person person, MedicalRecord medicalRecord, int todayKey);
+
+    PersonInfoDTO asPersonInfoDTO(Person person, MedicalRecord medicalRecord, int todayKey);
 
 }
@@ -6,9 +6,10 @@ import com.openclassrooms.safetynet.dto.PersonWithAgeAndFamilyMembersDTO;
 import com.openclassrooms.safetynet.dto.PersonWithMedicalRecordDTO;
 import com.openclassrooms.safetynet.model.MedicalRecord;
 import com.openclassrooms.safetynet.model.Person;
-import com.openclassrooms.safetynet.utils.CalculUtility;
+import com.openclassrooms.safetynet.utils.AgeEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -17,14 +18,30 @@ import java.util.ArrayList;
 
 public class PersonMapperImpl implements PersonMapper {
     private final Logger logger = LoggerFactory.getLogger(PersonMapper.class);
+    private final AgeEngine ageEngine;
+
+    public PersonMapperImpl() {
+        this(new AgeEngine());
+    }
+
+    @Autowired
+    public PersonMapperImpl(AgeEngine ageEngine) {
+        this.ageEngine = ageEngine;
+    }
+
+    @Override
+    public int todayKey() {
+        return this.ageEngine.todayKey();
+    }
+
 
     @Override
-    public PersonWithAgeAndFamilyMembersDTO asPersonWithAgeDTO(MedicalRecord medicalRecord) {
+    public PersonWithAgeAndFamilyMembersDTO asPersonWithAgeDTO(MedicalRecord medicalRecord, int todayKey) {
         logger.debug("Convert person to personWithAgeDTO");
         PersonWithAgeAndFamilyMembersDTO personWithAgeDTO = new PersonWithAgeAndFamilyMembersDTO();
         personWithAgeDTO.setFirstName(medicalRecord.getFirstName());
         personWithAgeDTO.setLastName(medicalRecord.getLastName());
-        personWithAgeDTO.setAge(CalculUtility.calculateAgeOfPerson(medicalRecord.getBirthdate()));
+        personWithAgeDTO.setAge(AgeEngine.ageOf(AgeEngine.dateKey(medicalRecord.getBirthdate()), todayKey));
         personWithAgeDTO.setOtherFamilyMembers(new ArrayList<>());
         logger.debug("person convert successfully");
         return personWithAgeDTO;
@@ -32,12 +49,12 @@ public class PersonMapperImpl implements PersonMapper {
 
 
     @Override
-    public PersonWithAddressAndPhoneDTO asPersonWithAddressAndPhoneDTO(Person person, MedicalRecord medicalRecord) {
+    public PersonWithAddressAndPhoneDTO asPersonWithAddressAndPhoneDTO(Person person, MedicalRecord medicalRecord, int todayKey) {
         logger.debug("Convert person to personWithAddressAndPhoneDTO");
         PersonWithAddressAndPhoneDTO personWithAddressAndPhoneDTO = new PersonWithAddressAndPhoneDTO();
         personWithAddressAndPhoneDTO.setFirstName(person.getFirstName());
         personWithAddressAndPhoneDTO.setLastName(person.getLastName());
-        personWithAddressAndPhoneDTO.setAge(CalculUtility.calculateAgeOfPerson(medicalRecord.getBirthdate()));
+        personWithAddressAndPhoneDTO.setAge(AgeEngine.ageOf(AgeEngine.dateKey(medicalRecord.getBirthdate()), todayKey));
         personWithAddressAndPhoneDTO.setAddress(person.getAddress());
         personWithAddressAndPhoneDTO.setPhone(person.getPhone());
         logger.debug("person convert successfully");
@@ -46,12 +63,12 @@ public class PersonMapperImpl implements PersonMapper {
 
 
     @Override
-    public PersonWithMedicalRecordDTO asPersonWithMedicalRecordDTO(Person person, MedicalRecord medicalRecord) {
+    public PersonWithMedicalRecordDTO asPersonWithMedicalRecordDTO(Person person, MedicalRecord medicalRecord, int todayKey) {
         logger.debug("Convert person to personWithMedicalRecordDTO");
         PersonWithMedicalRecordDTO personWithMedicalRecordDTO = new PersonWithMedicalRecordDTO();
         personWithMedicalRecordDTO.setLastName(person.getLastName());
         personWithMedicalRecordDTO.setPhone(person.getPhone());
-        personWithMedicalRecordDTO.setAge(CalculUtility.calculateAgeOfPerson(medicalRecord.getBirthdate()));
+        personWithMedicalRecordDTO.setAge(AgeEngine.ageOf(AgeEngine.dateKey(medicalRecord.getBirthdate()), todayKey));
         personWithMedicalRecordDTO.setMedications(medicalRecord.getMedications());
         personWithMedicalRecordDTO.setAllergies(medicalRecord.getAllergies());
         logger.debug("person convert successfully");
@@ -60,12 +77,12 @@ public class PersonMapperImpl implements PersonMapper {
 
 
     @Override
-    public PersonInfoDTO asPersonInfoDTO(Person person, MedicalRecord medicalRecord) {
+    public PersonInfoDTO asPersonInfoDTO(Person person, MedicalRecord medicalRecord, int todayKey) {
         logger.debug("Convert person to personInfoDTO");
         PersonInfoDTO personInfoDTO = new PersonInfoDTO();
         personInfoDTO.setLastName(person.getLastName());
         personInfoDTO.setAddress(person.getAddress());
-        personInfoDTO.setAge(CalculUtility.calculateAgeOfPerson(medicalRecord.getBirthdate()));
+        personInfoDTO.setAge(AgeEngine.ageOf(AgeEngine.dateKey(medicalRecord.getBirthdate()), todayKey));
         personInfoDTO.setEmail(person.getEmail());
         personInfoDTO.setMedications(medicalRecord.getMedications());
         personInfoDTO.setAllergies(medicalRecord.getMedications());
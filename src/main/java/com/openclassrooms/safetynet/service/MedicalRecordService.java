@@ -1,8 +1,11 @@
 package com.openclassrooms.safetynet.service;
 
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
 import com.openclassrooms.safetynet.exception.MedicalRecordAlreadyExistException;
 import com.openclassrooms.safetynet.exception.MedicalRecordNotFoundException;
 import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.Page;
 
 import java.util.List;
 
@@ -10,6 +13,8 @@ public interface MedicalRecordService {
 
     public List<MedicalRecord> getAllMedicalRecords();
 
+    public Page<MedicalRecord> getMedicalRecordsPage(String cursor, Integer limit) throws InvalidListingRequestException;
+
     public MedicalRecord addMedicalRecord(MedicalRecord medicalRecord) throws MedicalRecordAlreadyExistException;
 
     public MedicalRecord updateMedicalRecord(MedicalRecord medicalRecord) throws MedicalRecordNotFoundException;
@@ -18,5 +23,7 @@ public interface MedicalRecordService {
 
     public MedicalRecord findMedicalRecordByFirstNameAndLastName(String firstName, String lastName) throws MedicalRecordNotFoundException;
 
+    public List<MedicalRecord> findMedicalRecordsByPersons(List<Person> persons);
+
 
 }
@@ -1,10 +1,12 @@
 package com.openclassrooms.safetynet.service;
 
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
 import com.openclassrooms.safetynet.exception.MedicalRecordAlreadyExistException;
 import com.openclassrooms.safetynet.exception.MedicalRecordNotFoundException;
 import com.openclassrooms.safetynet.model.MedicalRecord;
 import com.openclassrooms.safetynet.model.Person;
 import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.Page;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -32,6 +34,18 @@ public class MedicalRecordServiceImpl implements MedicalRecordService {
         return this.medicalRecordRepository.getMedicalRecords();
     }
 
+
+    /**
+     * Get the medical records registered after a cursor, in their order of registration
+     *
+     * @param cursor the cursor given by the previous page, null to start from the first one
+     * @param limit  the maximum number of medical records, null for no limit
+     * @return a page of medical records with the cursor of the next page
+     */
+    public Page<MedicalRecord> getMedicalRecordsPage(String cursor, Integer limit) throws InvalidListingRequestException {
+        return ListingRequests.readPage(cursor, limit, this.medicalRecordRepository::getMedicalRecordsPage);
+    }
+
     public MedicalRecord addMedicalRecord(MedicalRecord medicalRecord) throws MedicalRecordAlreadyExistException {
         Boolean isMedicalRecordAlreadyRegistered = this.checkIfMedicalRecordAlreadyExist(medicalRecord);
         if(isMedicalRecordAlreadyRegistered){
@@ -55,11 +69,15 @@ public class MedicalRecordServiceImpl implements MedicalRecordService {
     public MedicalRecord updateMedicalRecord(MedicalRecord medicalRecord) throws MedicalRecordNotFoundException {
         logger.debug("Try to update the medical record of {} {}", medicalRecord.getFirstName(), medicalRecord.getLastName());
         MedicalRecord medicalRecordToUpdate = this.findMedicalRecordByFirstNameAndLastName(medicalRecord.getFirstName(), medicalRecord.getLastName());
-        medicalRecordToUpdate.setBirthdate(medicalRecord.getBirthdate());
-        medicalRecordToUpdate.setAllergies(medicalRecord.getAllergies());
-        medicalRecordToUpdate.setMedications(medicalRecord.getMedications());
         if (!Objects.isNull(medicalRecordToUpdate)) {
-            this.medicalRecordRepository.updateMedicalRecord(medicalRecordToUpdate);
+            MedicalRecord updatedMedicalRecord = MedicalRecord.builder()
+                    .firstName(medicalRecordToUpdate.getFirstName())
+                    .lastName(medicalRecordToUpdate.getLastName())
+                    .birthdate(medicalRecord.getBirthdate())
+                    .medications(medicalRecord.getMedications())
+                    .allergies(medicalRecord.getAllergies())
+                    .build();
+            this.medicalRecordRepository.updateMedicalRecord(updatedMedicalRecord);
             logger.debug("Medical record successfully updated");
         }
         return medicalRecord;
@@ -97,6 +115,17 @@ public class MedicalRecordServiceImpl implements MedicalRecordService {
     }
 
 
+    /**
+     * Method that takes a list of people and returns their medical records, resolved in a single pass
+     * @param persons
+     * @return the medical records in the same order as the people, null for a person without medical record
+     */
+    public List<MedicalRecord> findMedicalRecordsByPersons(List<Person> persons) {
+        logger.debug("Try to find the medical records of {} people", persons.size());
+        return this.medicalRecordRepository.findMedicalRecordsByPersons(persons);
+    }
+
+
     /**
      * Method that takes a medical record and checks if it is already registered
      *
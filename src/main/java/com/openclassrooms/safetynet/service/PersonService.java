@@ -3,6 +3,7 @@ package com.openclassrooms.safetynet.service;
 import com.openclassrooms.safetynet.dto.*;
 import com.openclassrooms.safetynet.exception.*;
 import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.Page;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,6 +15,8 @@ public interface PersonService {
 
     public List<Person> getAllPerson();
 
+    public Page<Person> getPersonsPage(String cursor, Integer limit) throws InvalidListingRequestException;
+
     public Person addPerson(Person person) throws PersonAlreadyExistException;
 
     public Person updatePerson(Person person) throws PersonNotFoundException;
@@ -4,7 +4,11 @@ import com.openclassrooms.safetynet.dto.*;
 import com.openclassrooms.safetynet.exception.*;
 import com.openclassrooms.safetynet.model.MedicalRecord;
 import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.AgeGroupRepository;
+import com.openclassrooms.safetynet.repository.AgeGroups;
+import com.openclassrooms.safetynet.repository.Page;
 import com.openclassrooms.safetynet.repository.PersonRepository;
+import com.openclassrooms.safetynet.repository.Resident;
 import com.openclassrooms.safetynet.service.Mapper.PersonMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,8 +16,10 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -26,12 +32,15 @@ public class PersonServiceImpl implements PersonService {
     private final MedicalRecordService medicalRecordService;
     private final FireStationService fireStationService;
     private final PersonMapper personMapper;
+    private final AgeGroupRepository ageGroupRepository;
 
-    public PersonServiceImpl(PersonRepository personRepository, MedicalRecordService medicalRecordService, FireStationService fireStationService, PersonMapper personMapper) {
+    public PersonServiceImpl(PersonRepository personRepository, MedicalRecordService medicalRecordService, FireStationService fireStationService, PersonMapper personMapper,
+                             AgeGroupRepository ageGroupRepository) {
         this.personRepository = personRepository;
         this.medicalRecordService = medicalRecordService;
         this.fireStationService = fireStationService;
         this.personMapper = personMapper;
+        this.ageGroupRepository = ageGroupRepository;
     }
 
 
@@ -44,6 +53,18 @@ public class PersonServiceImpl implements PersonService {
         return this.personRepository.getPersons();
     }
 
+
+    /**
+     * Get the people registered after a cursor, in their order of registration
+     *
+     * @param cursor the cursor given by the previous page, null to start from the first one
+     * @param limit  the maximum number of people, null for no limit
+     * @return a page of people with the cursor of the next page
+     */
+    public Page<Person> getPersonsPage(String cursor, Integer limit) throws InvalidListingRequestException {
+        return ListingRequests.readPage(cursor, limit, this.personRepository::getPersonsPage);
+    }
+
     public Person addPerson(Person person) throws PersonAlreadyExistException {
         logger.debug("Try to add the person {} {}", person.getFirstName(), person.getLastName());
         Boolean isPersonAlreadyRegistered = this.checkIfPersonAlreadyExist(person);
@@ -69,12 +90,16 @@ public class PersonServiceImpl implements PersonService {
     public Person updatePerson(Person person) throws PersonNotFoundException {
         logger.debug("Try to update the person {} {}", person.getFirstName(), person.getLastName());
         Person personToUpdate = this.findPersonByFirstNameAndLastName(person.getFirstName(), person.getLastName());
-        personToUpdate.setAddress(person.getAddress());
-        personToUpdate.setCity(person.getCity());
-        personToUpdate.setPhone(person.getPhone());
-        personToUpdate.setZip(person.getZip());
-        personToUpdate.setEmail(person.getEmail());
-        this.personRepository.updatePerson(personToUpdate);
+        Person updatedPerson = Person.builder()
+                .firstName(personToUpdate.getFirstName())
+                .lastName(personToUpdate.getLastName())
+                .address(person.getAddress())
+                .city(person.getCity())
+                .zip(person.getZip())
+                .phone(person.getPhone())
+                .email(person.getEmail())
+                .build();
+        this.personRepository.updatePerson(updatedPerson);
         logger.debug("Person successfully updated");
         return person;
     }
@@ -104,29 +129,20 @@ public class PersonServiceImpl implements PersonService {
      * @throws FireStationNotFoundException if the fire station is not found
      */
     public PersonsConcernedByFireStationDTO findPeopleConcernedByFireStation(int number) throws FireStationNotFoundException {
-        AtomicInteger adults = new AtomicInteger(0);
-        AtomicInteger children = new AtomicInteger(0);
 
+        this.fireStationService.getFireStationByStationNumber(number); //throws if no fire station has this number
 
-        List<String> addresses = this.fireStationService.getFireStationByStationNumber(number).stream()
-                .map(fireStation -> fireStation.getAddress()) //retrieve addresses covered by the fire station
-                .collect(Collectors.toList());
+        List<Resident> residents = this.ageGroupRepository.findResidentsByStation(number); //people covered by the station, from the classification index
 
-        List<PersonWithAddressAndPhoneDTO> personWithAddressAndPhoneDTOList = this.personRepository.getPersons().stream()
-                .filter(person -> addresses.stream()
-                        .anyMatch(address -> person.getAddress().equals(address))) //check if the address matches a person's address for each person
-                .map(person -> createPersonWithAddressAndPhoneDTO(person))
-                .collect(Collectors.toList());
+        int todayKey = this.personMapper.todayKey(); //the same day for the ages of all the people
+        List<PersonWithAddressAndPhoneDTO> personWithAddressAndPhoneDTOList = new ArrayList<>(residents.size());
+        for (Resident resident : residents) {
+            personWithAddressAndPhoneDTOList.add(createPersonWithAddressAndPhoneDTO(resident.getPerson(), resident.getMedicalRecord(), todayKey));
+        }
 
-        personWithAddressAndPhoneDTOList.forEach(personWithAddressAndPhoneDTO -> {
-            if (personWithAddressAndPhoneDTO.getAge() > 18) {
-                adults.getAndIncrement();
-            } else {
-                children.getAndIncrement();
-            }
-        });
+        AgeGroups ageGroups = this.ageGroupRepository.countAgeGroupsByStation(number); //children and adults counted by the classification index
 
-        return new PersonsConcernedByFireStationDTO(personWithAddressAndPhoneDTOList, children, adults);
+        return new PersonsConcernedByFireStationDTO(personWithAddressAndPhoneDTOList, new AtomicInteger(ageGroups.getChildren()), new AtomicInteger(ageGroups.getAdults()));
     }
 
 
@@ -141,38 +157,35 @@ public class PersonServiceImpl implements PersonService {
      */
     public List<PersonWithAgeAndFamilyMembersDTO> findChildrenByAddress(String address) throws MedicalRecordNotFoundException, PersonNotFoundException {
 
-        List<MedicalRecord> medicalRecordList = new ArrayList<>();
-        List<PersonWithAgeAndFamilyMembersDTO> childrenList = new ArrayList<>();
-
-        List<Person> personList = this.findPersonByAddress(address);
-
-        if (!personList.isEmpty()) {
-            for (Person person : personList) {
-                medicalRecordList.add(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(person.getFirstName(), person.getLastName()));
+        List<Resident> residents = this.ageGroupRepository.findResidentsByAddress(address);
+        if (residents.isEmpty()) {
+            logger.error("nobody found at {}", address);
+            throw new PersonNotFoundException("nobody found at " + address);
+        }
+        for (Resident resident : residents) {
+            if (!resident.hasMedicalRecord()) {
+                Person person = resident.getPerson();
+                logger.error("Medical record not found for {} {}", person.getFirstName(), person.getLastName());
+                throw new MedicalRecordNotFoundException("Medical record not found for " + person.getFirstName() + " " + person.getLastName());
             }
         }
 
-        if (!medicalRecordList.isEmpty()) {
-            logger.debug("Try to find children at {}", address);
-            childrenList = medicalRecordList.stream().
-                    map(medicalRecord -> personMapper.asPersonWithAgeDTO(medicalRecord)) // convert person to personWithAgeDTO
-                    .filter(personWithAgeDTO -> personWithAgeDTO.getAge() <= 18) // filter people to retrieve only children
-                    .collect(Collectors.toList());
-
-            if (!childrenList.isEmpty()) {
-                logger.debug("Children found, try to add other family members");
-                childrenList.forEach(
-                        child -> child.setOtherFamilyMembers(
-                                personList.stream()
-                                        .filter(person -> person.getLastName().equals(child.getLastName()) && !(person.getFirstName().equals(child.getFirstName())))
-                                        .collect(Collectors.toList())
-                        )
-                );
-            } else {
-                logger.error("No children found at {}", address);
-                throw new PersonNotFoundException("No children found at the address " + address);
+        logger.debug("Try to find children at {}", address);
+        int todayKey = this.personMapper.todayKey(); //the same day to classify the residents and compute their ages
+        List<PersonWithAgeAndFamilyMembersDTO> childrenList = new ArrayList<>();
+        for (Resident resident : residents) {
+            if (resident.isChild(todayKey)) {
+                PersonWithAgeAndFamilyMembersDTO childDTO = personMapper.asPersonWithAgeDTO(resident.getMedicalRecord(), todayKey); // convert child to personWithAgeDTO
+                childDTO.setOtherFamilyMembers(this.personRepository.findOtherFamilyMembers(resident.getPerson())); // shared view of the household index
+                childrenList.add(childDTO);
             }
         }
+
+        if (childrenList.isEmpty()) {
+            logger.error("No children found at {}", address);
+            throw new PersonNotFoundException("No children found at the address " + address);
+        }
+        logger.debug("Children found with their other family members");
         return childrenList;
     }
 
@@ -194,12 +207,7 @@ public class PersonServiceImpl implements PersonService {
             throw new FireStationNotFoundException("Fire stations not found with the number " + number);
         } else {
             logger.debug("Try to retrieve the telephone numbers of the people concerned by the fire station number {}", number);
-            List<String> phoneNumber = this.personRepository.getPersons().stream()
-                    .filter(person -> addresses.stream()
-                            .anyMatch(address -> person.getAddress().equals(address))) //filter people based on retrieved addresses
-                    .map(person -> person.getPhone())//Get people's phone number
-                    .distinct()
-                    .collect(Collectors.toList());
+            List<String> phoneNumber = this.personRepository.findPhonesByStationNumber(number); //prebuilt list of the distinct phone numbers of the station
 
             logger.debug("Phone numbers retrieved successfully");
             return phoneNumber;
@@ -219,9 +227,7 @@ public class PersonServiceImpl implements PersonService {
      */
     public FireDTO findAllPeopleInFireCase(String address) throws PersonNotFoundException, FireStationNotFoundException {
         logger.debug("Try to find People living at {} in fire case", address);
-        List<PersonWithMedicalRecordDTO> personsList = this.findPersonByAddress(address).stream()
-                .map(person -> createPersonWithMedicalRecordDTO(person))
-                .collect(Collectors.toList());
+        List<PersonWithMedicalRecordDTO> personsList = this.createPersonWithMedicalRecordDTOList(this.findPersonByAddress(address));
 
         int firesStationNumber = (this.fireStationService.getFireStationByAddress(address)).getStation();
 
@@ -247,11 +253,23 @@ public class PersonServiceImpl implements PersonService {
 
         if (!addresses.isEmpty()) {
 
+            Map<String, List<Person>> residentsByAddress = new LinkedHashMap<>();
+            List<Person> residents = new ArrayList<>();
             for (String address : addresses) {
-                List<PersonWithMedicalRecordDTO> personList = this.findPersonByAddress(address).stream()
-                        .map(person -> createPersonWithMedicalRecordDTO(person))
-                        .collect(Collectors.toList());
-                personsListInFloodCaseDTO.put(address, personList);
+                if (!residentsByAddress.containsKey(address)) {
+                    List<Person> personList = this.findPersonByAddress(address);
+                    residentsByAddress.put(address, personList);
+                    residents.addAll(personList);
+                }
+            }
+
+            List<PersonWithMedicalRecordDTO> residentDTOList = this.createPersonWithMedicalRecordDTOList(residents); //resolve all medical records at once
+            int offset = 0;
+            for (Map.Entry<String, List<Person>> entry : residentsByAddress.entrySet()) {
+                int residentCount = entry.getValue().size();
+                // a missing address is written as an empty one, json having no null key
+                personsListInFloodCaseDTO.put(Objects.toString(entry.getKey(), ""), new ArrayList<>(residentDTOList.subList(offset, offset + residentCount)));
+                offset += residentCount;
             }
 
         }
@@ -274,11 +292,11 @@ public class PersonServiceImpl implements PersonService {
      */
     public List<PersonInfoDTO> getPersonInfo(String firstName, String lastName) throws PersonNotFoundException {
         logger.debug("try to find person with firstname {} and lastname {}", firstName, lastName);
-        List<PersonInfoDTO> personInfoDTOList;
-        personInfoDTOList = this.personRepository.getPersons().stream()
-                .filter(person -> (person.getFirstName().toLowerCase()).equals(firstName.toLowerCase()) && (person.getLastName().toLowerCase()).equals(lastName.toLowerCase()))
-                .map(person -> createPersonInfoDTO(person))
-                .collect(Collectors.toList());
+        List<PersonInfoDTO> personInfoDTOList = new ArrayList<>();
+        Person personFound = this.personRepository.findPersonByFirstNameAndLastName(firstName, lastName);
+        if (personFound != null) {
+            personInfoDTOList.add(createPersonInfoDTO(personFound, this.personMapper.todayKey()));
+        }
         if (personInfoDTOList.isEmpty()) {
             logger.error("Nobody found with firstname {} and lastname {}", firstName, lastName);
             throw new PersonNotFoundException("Nobody found with firstname " + firstName + " and lastname " + lastName);
@@ -298,12 +316,7 @@ public class PersonServiceImpl implements PersonService {
      */
     public List<String> getMailsByCity(String city) throws MailsNotFoundException {
         logger.debug("try to collect all people's mail of the city: {}", city);
-        List<String> mails = this.personRepository.getPersons()
-                .stream()
-                .filter(person -> person.getCity().equals(city))
-                .map(person -> person.getEmail())
-                .distinct()
-                .collect(Collectors.toList());
+        List<String> mails = this.personRepository.findEmailsByCity(city); //prebuilt list of the distinct emails of the city
 
         if (mails.isEmpty()) {
             logger.error("No email found for people living in {}", city);
@@ -354,40 +367,56 @@ public class PersonServiceImpl implements PersonService {
 
 
     /**
-     * Method that takes a person, retrieves the person's medical record, and creates
+     * Method that takes a list of people, retrieves their medical records at once, and creates
+     * for each person a DTO with the following information (lastname,phone,age,medications,allergies)
+     *
+     * @param persons
+     * @return a list of PersonWithMedicalRecordDTO in the same order as the people
+     */
+    private List<PersonWithMedicalRecordDTO> createPersonWithMedicalRecordDTOList(List<Person> persons) {
+        List<MedicalRecord> medicalRecordList = this.medicalRecordService.findMedicalRecordsByPersons(persons);
+        int todayKey = this.personMapper.todayKey(); //the same day for the ages of all the people
+        List<PersonWithMedicalRecordDTO> personWithMedicalRecordDTOList = new ArrayList<>(persons.size());
+        for (int i = 0; i < persons.size(); i++) {
+            personWithMedicalRecordDTOList.add(createPersonWithMedicalRecordDTO(persons.get(i), medicalRecordList.get(i), todayKey));
+        }
+        return personWithMedicalRecordDTOList;
+    }
+
+
+    /**
+     * Method that takes a person and the person's medical record, and creates
      * a DTO which is a person with the following information (lastname,phone,age,medications,allergies)
      *
      * @param person
-     * @return a PersonWithMedicalRecordDTO
+     * @param medicalRecord
+     * @param todayKey      the day of the age
+     * @return a PersonWithMedicalRecordDTO, or null if the medical record is missing
      */
-    private PersonWithMedicalRecordDTO createPersonWithMedicalRecordDTO(Person person) {
-        MedicalRecord medicalRecord;
-        try {
-            medicalRecord = this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(person.getFirstName(), person.getLastName());
-            return this.personMapper.asPersonWithMedicalRecordDTO(person, medicalRecord);
-        } catch (MedicalRecordNotFoundException e) {
+    private PersonWithMedicalRecordDTO createPersonWithMedicalRecordDTO(Person person, MedicalRecord medicalRecord, int todayKey) {
+        if (medicalRecord == null) {
             logger.error("Not medical Record Found for {} {}", person.getFirstName(), person.getLastName());
             return null;
         }
+        return this.personMapper.asPersonWithMedicalRecordDTO(person, medicalRecord, todayKey);
     }
 
 
     /**
-     * Method that takes a person, retrieves the person's medical record, and creates
+     * Method that takes a person and the person's medical record, and creates
      * a DTO which is a person with the following information (firstname,lastname,address,phone,age )
      *
      * @param person
-     * @return a PersonWithAddressAndPhoneDTO
+     * @param medicalRecord
+     * @param todayKey      the day of the age
+     * @return a PersonWithAddressAndPhoneDTO, or null if the medical record is missing
      */
-    private PersonWithAddressAndPhoneDTO createPersonWithAddressAndPhoneDTO(Person person) {
-        MedicalRecord medicalRecord;
-        try {
-            medicalRecord = this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(person.getFirstName(), person.getLastName());
-            return this.personMapper.asPersonWithAddressAndPhoneDTO(person, medicalRecord);
-        } catch (MedicalRecordNotFoundException e) {
+    private PersonWithAddressAndPhoneDTO createPersonWithAddressAndPhoneDTO(Person person, MedicalRecord medicalRecord, int todayKey) {
+        if (medicalRecord == null) {
             logger.error("Not medical Record Found for {} {}", person.getFirstName(), person.getLastName());
             return null;
         }
+        return this.personMapper.asPersonWithAddressAndPhoneDTO(person, medicalRecord, todayKey);
     }
 
 
@@ -396,13 +425,14 @@ public class PersonServiceImpl implements PersonService {
      * a DTO which is a person with the following information (lastname,address,age,email,medications,allergies)
      *
      * @param person
+     * @param todayKey the day of the age
      * @return a PersonInfoDTO
      */
-    private PersonInfoDTO createPersonInfoDTO(Person person) {
+    private PersonInfoDTO createPersonInfoDTO(Person person, int todayKey) {
         MedicalRecord medicalRecord;
         try {
             medicalRecord = this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(person.getFirstName(), person.getLastName());
-            return this.personMapper.asPersonInfoDTO(person, medicalRecord);
+            return this.personMapper.asPersonInfoDTO(person, medicalRecord, todayKey);
         } catch (MedicalRecordNotFoundException e) {
             logger.error("Not medical Record Found for {} {}", person.getFirstName(), person.getLastName());
             return null;
@@ -0,0 +1,551 @@
+package com.openclassrooms.safetynet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.safetynet.dto.PersonWithAddressAndPhoneDTO;
+import com.openclassrooms.safetynet.dto.StationEventDTO;
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.AgeGroups;
+import com.openclassrooms.safetynet.repository.Dataset;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import com.openclassrooms.safetynet.repository.FireStationRepository;
+import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.Mutation;
+import com.openclassrooms.safetynet.repository.PersonRepository;
+import com.openclassrooms.safetynet.utils.AgeEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes to the subscribers of a fire station the changes of the people it covers and of their counts.
+ * A subscriber first receives a snapshot event with all the people covered by the station, then a change event
+ * with the people removed and added, to apply in this order, and the new counts each time a person,
+ * a medical record or a mapping of the station changes.
+ * The listeners of the repositories only hand the change and the version it published to a single dispatcher thread,
+ * so a writer never waits for the subscribers. The dispatcher computes each event once per station and serializes
+ * it once, whatever the number of subscribers, and queues it to each subscriber. Each subscriber is sent its events
+ * in order by a pool of sender threads; a subscriber too slow to empty its bounded queue is disconnected,
+ * and gets a new snapshot when it subscribes again.
+ * A send blocked longer than the send timeout, by a client which doesn't read its socket, disconnects
+ * the subscriber as well: the sender thread is interrupted and replaced in the pool until the send returns,
+ * so stalled clients never hold the threads sending the events of the others.
+ */
+@Component
+public class StationEventBroadcaster {
+
+    static final String SNAPSHOT = "snapshot";
+    static final String CHANGE = "change";
+
+    private final Logger logger = LoggerFactory.getLogger(StationEventBroadcaster.class);
+    private final DatasetHolder datasetHolder;
+    private final AgeEngine ageEngine;
+    private final ObjectWriter writer;
+    private final long timeout;
+    private final int queueCapacity;
+    private final long sendTimeoutNanos;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(daemon("station-events-dispatcher"));
+    private final ThreadPoolExecutor senders = new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
+            Runtime.getRuntime().availableProcessors(), 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), daemon("station-events-sender"));
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(daemon("station-events-watchdog"));
+    private final Map<Integer, Set<Subscriber>> subscribersByStation = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // subscribers being sent an event, watched even once they are disconnected, until the send returns
+    private final Set<Subscriber> sending = ConcurrentHashMap.newKeySet();
+    // version of the data the subscribers have been brought to, only used by the dispatcher
+    private Dataset lastDataset;
+    // last snapshot serialized for each station, sent again to the subscribers of the same version
+    private final Map<Integer, SerializedSnapshot> snapshots = new HashMap<>();
+
+    /**
+     * Destination of the events of a subscriber
+     */
+    interface EventSink {
+
+        void send(String name, String data) throws IOException;
+
+        void close();
+
+    }
+
+    public StationEventBroadcaster(DatasetHolder datasetHolder, PersonRepository personRepository, FireStationRepository fireStationRepository,
+                                   MedicalRecordRepository medicalRecordRepository, AgeEngine ageEngine, ObjectMapper objectMapper,
+                                   @Value("${safetynet.events.timeout:1800000}") long timeout,
+                                   @Value("${safetynet.events.queue-capacity:256}") int queueCapacity,
+                                   @Value("${safetynet.events.send-timeout:10000}") long sendTimeout) {
+        this.datasetHolder = datasetHolder;
+        this.ageEngine = ageEngine;
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.timeout = timeout;
+        this.queueCapacity = queueCapacity;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeout);
+        long checkPeriod = Math.max(10, sendTimeout / 4);
+        this.watchdog.scheduleAtFixedRate(this::checkSends, checkPeriod, checkPeriod, TimeUnit.MILLISECONDS);
+        this.lastDataset = datasetHolder.latest();
+        personRepository.addMutationListener(mutation -> this.onMutation(this.personChanged(mutation)));
+        fireStationRepository.addMutationListener(mutation -> this.onMutation(this.fireStationChanged(mutation)));
+        medicalRecordRepository.addMutationListener(mutation -> this.onMutation(this.medicalRecordChanged(mutation)));
+    }
+
+
+    /**
+     * Method that takes a station number and returns an emitter receiving the events of this station
+     *
+     * @param stationNumber
+     * @return the emitter, sent the snapshot of the station first
+     */
+    public SseEmitter subscribe(int stationNumber) {
+        SseEmitter emitter = new SseEmitter(this.timeout);
+        Subscriber subscriber = this.subscribe(stationNumber, new EventSink() {
+            @Override
+            public void send(String name, String data) throws IOException {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(() -> this.unsubscribe(subscriber));
+        emitter.onTimeout(() -> this.unsubscribe(subscriber));
+        emitter.onError(error -> this.unsubscribe(subscriber));
+        return emitter;
+    }
+
+
+    Subscriber subscribe(int stationNumber, EventSink sink) {
+        Subscriber subscriber = new Subscriber(stationNumber, sink, this.queueCapacity);
+        // counted at once, so the changes made from now on are dispatched, the ones dispatched before the snapshot being in it
+        boolean idle = this.subscriberCount.getAndIncrement() == 0;
+        this.subscribersByStation.compute(stationNumber, (station, subscribers) -> {
+            Set<Subscriber> stationSubscribers = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+            stationSubscribers.add(subscriber);
+            return stationSubscribers;
+        });
+        this.dispatch(() -> {
+            // while nobody subscribes the changes are not dispatched, the subscribers start from the latest version
+            if (idle) {
+                this.lastDataset = this.datasetHolder.latest();
+            }
+            if (!subscriber.started) {
+                subscriber.offer(SNAPSHOT, this.serializedSnapshot(this.lastDataset, stationNumber));
+            }
+        });
+        return subscriber;
+    }
+
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscriber.closed.compareAndSet(false, true)) {
+            this.subscribersByStation.computeIfPresent(subscriber.station, (station, subscribers) -> {
+                if (subscribers.remove(subscriber)) {
+                    this.subscriberCount.decrementAndGet();
+                }
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+            this.dispatch(() -> {
+                if (!this.subscribersByStation.containsKey(subscriber.station)) {
+                    this.snapshots.remove(subscriber.station);
+                }
+            });
+        }
+    }
+
+
+    /**
+     * Method called by the writer holding the lock of the dataset holder once its change is visible,
+     * so the latest version is the one published by this change
+     *
+     * @param change the computation of the events of the change
+     */
+    private void onMutation(ChangeEvents change) {
+        if (this.subscriberCount.get() == 0) {
+            return;
+        }
+        Dataset dataset = this.datasetHolder.latest();
+        this.dispatch(() -> {
+            Dataset previous = this.lastDataset;
+            if (dataset.getVersion() <= previous.getVersion()) {
+                // already in the snapshots sent to the subscribers
+                return;
+            }
+            this.lastDataset = dataset;
+            if (dataset.getEpoch() != previous.getEpoch() || dataset.getVersion() != previous.getVersion() + 1) {
+                // the data have been reloaded in the meantime, the subscribers start again from a snapshot
+                for (Map.Entry<Integer, Set<Subscriber>> entry : this.subscribersByStation.entrySet()) {
+                    String data = this.serializedSnapshot(dataset, entry.getKey());
+                    entry.getValue().forEach(subscriber -> subscriber.offer(SNAPSHOT, data));
+                }
+                return;
+            }
+            Map<Integer, StationEventDTO> events = new TreeMap<>();
+            change.collect(previous, dataset, events);
+            events.forEach((station, event) -> this.publish(this.subscribersByStation.get(station), CHANGE, this.counted(dataset, event)));
+        });
+    }
+
+
+    @FunctionalInterface
+    private interface ChangeEvents {
+        void collect(Dataset previous, Dataset current, Map<Integer, StationEventDTO> events);
+    }
+
+
+    private ChangeEvents personChanged(Mutation<Person> mutation) {
+        return (previous, current, events) -> {
+            Person previousPerson = mutation.getPrevious();
+            Person currentPerson = mutation.getCurrent();
+            if (previousPerson != null) {
+                for (Integer station : current.getFireStationStore().getStationNumbersByAddress(previousPerson.getAddress())) {
+                    this.event(events, station, current).getRemoved().add(resident(previousPerson));
+                }
+            }
+            if (currentPerson != null) {
+                for (Integer station : current.getFireStationStore().getStationNumbersByAddress(currentPerson.getAddress())) {
+                    this.event(events, station, current).getAdded().add(resident(currentPerson));
+                }
+            }
+        };
+    }
+
+
+    private ChangeEvents medicalRecordChanged(Mutation<MedicalRecord> mutation) {
+        return (previous, current, events) -> {
+            MedicalRecord medicalRecord = mutation.getCurrent() != null ? mutation.getCurrent() : mutation.getPrevious();
+            Person person = current.getPersonStore().findPersonByFirstNameAndLastName(medicalRecord.getFirstName(), medicalRecord.getLastName());
+            if (person != null) {
+                // only the counts of the stations covering the person change
+                for (Integer station : current.getFireStationStore().getStationNumbersByAddress(person.getAddress())) {
+                    this.event(events, station, current);
+                }
+            }
+        };
+    }
+
+
+    private ChangeEvents fireStationChanged(Mutation<FireStation> mutation) {
+        return (previous, current, events) -> {
+            FireStation previousFireStation = mutation.getPrevious();
+            FireStation currentFireStation = mutation.getCurrent();
+            // an address mapped several times to a station is covered until its last mapping is deleted
+            if (previousFireStation != null
+                    && !current.getFireStationStore().getStationNumbersByAddress(previousFireStation.getAddress()).contains(previousFireStation.getStation())) {
+                StationEventDTO event = this.event(events, previousFireStation.getStation(), current);
+                for (Person person : current.getPersonStore().findPersonsByAddress(previousFireStation.getAddress())) {
+                    event.getRemoved().add(resident(person));
+                }
+            }
+            if (currentFireStation != null
+                    && !previous.getFireStationStore().getStationNumbersByAddress(currentFireStation.getAddress()).contains(currentFireStation.getStation())) {
+                StationEventDTO event = this.event(events, currentFireStation.getStation(), current);
+                for (Person person : current.getPersonStore().findPersonsByAddress(currentFireStation.getAddress())) {
+                    event.getAdded().add(resident(person));
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Method that returns the event of a station, created if the station has subscribers.
+     * The event of a station without subscribers is collected in a map it is not kept in.
+     */
+    private StationEventDTO event(Map<Integer, StationEventDTO> events, int station, Dataset dataset) {
+        if (!this.subscribersByStation.containsKey(station)) {
+            return new StationEventDTO(station, dataset.getVersion(), new ArrayList<>(), new ArrayList<>(), 0, 0);
+        }
+        return events.computeIfAbsent(station, key -> new StationEventDTO(key, dataset.getVersion(), new ArrayList<>(), new ArrayList<>(), 0, 0));
+    }
+
+
+    private StationEventDTO snapshot(Dataset dataset, int station) {
+        List<PersonWithAddressAndPhoneDTO> residents = dataset.getAgeGroupIndex().getResidentsByStation(station).stream()
+                .map(resident -> resident(resident.getPerson()))
+                .collect(Collectors.toList());
+        return this.counted(dataset, new StationEventDTO(station, dataset.getVersion(), residents, List.of(), 0, 0));
+    }
+
+
+    private String serializedSnapshot(Dataset dataset, int station) {
+        SerializedSnapshot snapshot = this.snapshots.get(station);
+        if (snapshot == null || snapshot.version != dataset.getVersion()) {
+            snapshot = new SerializedSnapshot(dataset.getVersion(), this.serialize(this.snapshot(dataset, station)));
+            this.snapshots.put(station, snapshot);
+        }
+        return snapshot.data;
+    }
+
+
+    private StationEventDTO counted(Dataset dataset, StationEventDTO event) {
+        AgeGroups ageGroups = dataset.getAgeGroupIndex().countAgeGroupsByStation(event.getStation(), this.ageEngine.todayKey());
+        event.setChildren(ageGroups.getChildren());
+        event.setAdults(ageGroups.getAdults());
+        return event;
+    }
+
+
+    private static PersonWithAddressAndPhoneDTO resident(Person person) {
+        return PersonWithAddressAndPhoneDTO.builder()
+                .firstName(person.getFirstName())
+                .lastName(person.getLastName())
+                .address(person.getAddress())
+                .phone(person.getPhone())
+                .build();
+    }
+
+
+    private void publish(Set<Subscriber> subscribers, String name, StationEventDTO event) {
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        String data = this.serialize(event);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(name, data);
+        }
+    }
+
+
+    private String serialize(StationEventDTO event) {
+        try {
+            return this.writer.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("The event of the station " + event.getStation() + " can't be serialized", e);
+        }
+    }
+
+
+    private void dispatch(Runnable task) {
+        try {
+            this.dispatcher.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Station events can't be dispatched", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Station events are stopped");
+        }
+    }
+
+
+    /**
+     * Method run by the watchdog, disconnecting the subscribers whose current send has lasted longer than the send timeout
+     */
+    private void checkSends() {
+        long now = System.nanoTime();
+        this.sending.forEach(subscriber -> subscriber.checkSend(now));
+    }
+
+
+    /**
+     * Method that adds a thread to the pool of senders in place of a thread blocked by a stalled send
+     */
+    private void addSender() {
+        synchronized (this.senders) {
+            this.senders.setMaximumPoolSize(this.senders.getMaximumPoolSize() + 1);
+            this.senders.setCorePoolSize(this.senders.getCorePoolSize() + 1);
+        }
+    }
+
+
+    /**
+     * Method that removes the thread added to the pool of senders once the stalled send has returned
+     */
+    private void removeSender() {
+        synchronized (this.senders) {
+            this.senders.setCorePoolSize(this.senders.getCorePoolSize() - 1);
+            this.senders.setMaximumPoolSize(this.senders.getMaximumPoolSize() - 1);
+        }
+    }
+
+
+    @PreDestroy
+    public void close() {
+        this.watchdog.shutdownNow();
+        this.dispatcher.shutdownNow();
+        this.senders.shutdownNow();
+        this.subscribersByStation.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.sink.close()));
+    }
+
+
+    private static ThreadFactory daemon(String name) {
+        return task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+
+    private static final class SerializedSnapshot {
+
+        private final long version;
+        private final String data;
+
+        private SerializedSnapshot(long version, String data) {
+            this.version = version;
+            this.data = data;
+        }
+
+    }
+
+
+    /**
+     * A subscriber with its queue of serialized events, sent in order by one sender thread at a time
+     */
+    final class Subscriber {
+
+        private final int station;
+        private final EventSink sink;
+        private final BlockingQueue<String[]> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean sinkClosed = new AtomicBoolean();
+        // the changes dispatched before the first snapshot are in it, so they are not sent
+        private volatile boolean started;
+        // the thread sending an event and the time the send started, guarded by the subscriber
+        private Thread sender;
+        private long sendingSince;
+        private volatile boolean stalled;
+
+        private Subscriber(int station, EventSink sink, int queueCapacity) {
+            this.station = station;
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        boolean isClosed() {
+            return this.closed.get();
+        }
+
+        private void offer(String name, String data) {
+            if (this.closed.get() || !this.started && !SNAPSHOT.equals(name)) {
+                return;
+            }
+            this.started = true;
+            if (!this.queue.offer(new String[]{name, data})) {
+                logger.debug("Subscriber of the station {} disconnected, its events are not read fast enough", this.station);
+                this.disconnect();
+                return;
+            }
+            this.schedule();
+        }
+
+        private void schedule() {
+            if (this.scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    this.scheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Method run by a sender thread, sending the queued events, or closing the sink once the subscriber is disconnected
+         */
+        private void drain() {
+            do {
+                String[] event;
+                while (!this.closed.get() && (event = this.queue.poll()) != null) {
+                    this.send(event);
+                }
+                if (this.closed.get()) {
+                    this.queue.clear();
+                    if (this.sinkClosed.compareAndSet(false, true)) {
+                        this.sink.close();
+                    }
+                }
+                this.scheduled.set(false);
+            } while (this.isPending() && this.scheduled.compareAndSet(false, true));
+        }
+
+        private boolean isPending() {
+            return this.closed.get() ? !this.sinkClosed.get() : !this.queue.isEmpty();
+        }
+
+        private void send(String[] event) {
+            synchronized (this) {
+                this.sender = Thread.currentThread();
+                this.sendingSince = System.nanoTime();
+            }
+            sending.add(this);
+            try {
+                this.sink.send(event[0], event[1]);
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(this);
+            } finally {
+                sending.remove(this);
+                synchronized (this) {
+                    this.sender = null;
+                    // clears an interruption of the watchdog, the thread going back to the pool
+                    Thread.interrupted();
+                }
+                if (this.stalled) {
+                    removeSender();
+                }
+            }
+        }
+
+        /**
+         * Method that disconnects the subscriber if its current send has lasted longer than the send timeout.
+         * The sink is closed by the sender once the send has returned, as closing it may wait for the send.
+         *
+         * @param now the current value of System.nanoTime
+         */
+        private void checkSend(long now) {
+            synchronized (this) {
+                if (this.sender == null || this.stalled || now - this.sendingSince < sendTimeoutNanos) {
+                    return;
+                }
+                this.stalled = true;
+                addSender();
+                this.sender.interrupt();
+            }
+            logger.debug("Subscriber of the station {} disconnected, its client doesn't read the events sent", this.station);
+            unsubscribe(this);
+        }
+
+        /**
+         * Method that disconnects the subscriber, the sink being closed by a sender thread and never by the dispatcher
+         */
+        private void disconnect() {
+            unsubscribe(this);
+            this.schedule();
+        }
+
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.openclassrooms.safetynet.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * This class computes the ages of the people without reading the date or building a period for each person.
+ * Today's date is cached, with the time of the next midnight at which it is read again from the clock,
+ * and the dates are compared as yyyyMMdd integers: the number of whole years between a birthdate and today
+ * is the difference of their keys divided by 10000, the same value as Period.between(birthdate, today).getYears().
+ * The key of a birthdate only depends on the birthdate, so a medical record updated with another birthdate
+ * gets its new age at once, without any cache to invalidate.
+ */
+@Component
+public class AgeEngine {
+
+    /**
+     * Key of a missing date
+     */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final Clock clock;
+    private volatile Today today;
+
+    @Autowired
+    public AgeEngine() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public AgeEngine(Clock clock) {
+        this.clock = clock;
+        this.today = this.readToday();
+    }
+
+
+    /**
+     * Method that takes a date and returns its key, yyyyMMdd as an integer
+     *
+     * @param date
+     * @return the key of the date, NO_DATE if the date is null
+     */
+    public static int dateKey(LocalDate date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+        return date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+
+    /**
+     * Method that returns today's date, read again from the clock once midnight is passed
+     *
+     * @return today's date
+     */
+    public LocalDate today() {
+        return this.currentToday().date;
+    }
+
+
+    public int todayKey() {
+        return this.currentToday().key;
+    }
+
+
+    /**
+     * Method that takes a birthdate and returns the age as of today's date
+     *
+     * @param birthdate
+     * @return the age of the person, 0 if the birthdate is unknown
+     */
+    public int ageOf(LocalDate birthdate) {
+        return this.ageOf(dateKey(birthdate));
+    }
+
+
+    /**
+     * Method that takes the key of a birthdate and returns the age as of today's date
+     *
+     * @param birthdateKey
+     * @return the age of the person, 0 if the birthdate is unknown
+     */
+    public int ageOf(int birthdateKey) {
+        return ageOf(birthdateKey, this.todayKey());
+    }
+
+
+    /**
+     * Method that takes the key of a birthdate and today's key, read once for all the people of a request,
+     * and returns the age as of this day
+     *
+     * @param birthdateKey
+     * @param todayKey
+     * @return the age of the person, 0 if the birthdate is unknown
+     */
+    public static int ageOf(int birthdateKey, int todayKey) {
+        if (birthdateKey == NO_DATE) {
+            return 0;
+        }
+        return (todayKey - birthdateKey) / 10000;
+    }
+
+
+    private Today currentToday() {
+        Today current = this.today;
+        if (this.clock.millis() >= current.nextMidnight) {
+            current = this.readToday();
+            this.today = current;
+        }
+        return current;
+    }
+
+
+    private Today readToday() {
+        LocalDate date = LocalDate.now(this.clock);
+        long nextMidnight = date.plusDays(1).atStartOfDay(this.clock.getZone()).toInstant().toEpochMilli();
+        return new Today(date, dateKey(date), nextMidnight);
+    }
+
+
+    private static final class Today {
+        private final LocalDate date;
+        private final int key;
+        private final long nextMidnight;
+
+        private Today(LocalDate date, int key, long nextMidnight) {
+            this.date = date;
+            this.key = key;
+            this.nextMidnight = nextMidnight;
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.openclassrooms.safetynet.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class scans the bytes of the json data file, without parsing the records, to find
+ * where each top-level array starts and ends, and splits each array into chunks of whole records.
+ * The chunks can then be parsed independently from each other.
+ */
+public class DataFileSplitter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAPPED_WINDOW_SIZE = 1 << 30;
+
+    private DataFileSplitter() {
+    }
+
+
+    /**
+     * A range of bytes holding whole records of an array, separated by commas,
+     * with a trailing comma for every chunk but the last one of the array
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Chunk {
+        private long start;
+        private long end;
+    }
+
+
+    /**
+     * Method that takes the data file and returns the chunks of each top-level array
+     *
+     * @param path
+     * @param chunkSize the size in bytes from which a chunk is closed at the next record
+     * @return the chunks of each top-level array, by name of the array, in the order of the file
+     * @throws IOException if the file can't be read or is not a json object
+     */
+    public static Map<String, List<Chunk>> split(Path path, long chunkSize) throws IOException {
+        Map<String, List<Chunk>> sections = new LinkedHashMap<>();
+        ByteArrayOutputStream key = new ByteArrayOutputStream();
+        String currentSection = null;
+        List<Chunk> currentChunks = null;
+        long chunkStart = 0;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        boolean readingKey = false;
+        boolean expectingKey = false;
+        long position = 0;
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = new MappedFileInputStream(path, MAPPED_WINDOW_SIZE)) {
+            int count;
+            while ((count = inputStream.read(buffer, 0, buffer.length)) != -1) {
+                for (int i = 0; i < count; i++, position++) {
+                    byte b = buffer[i];
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (b == '\\') {
+                            escaped = true;
+                        } else if (b == '"') {
+                            inString = false;
+                            if (readingKey) {
+                                readingKey = false;
+                                currentSection = key.toString(StandardCharsets.UTF_8);
+                            }
+                        } else if (readingKey) {
+                            key.write(b);
+                        }
+                        continue;
+                    }
+                    switch (b) {
+                        case '"':
+                            inString = true;
+                            if (depth == 1 && expectingKey) {
+                                readingKey = true;
+                                expectingKey = false;
+                                key.reset();
+                            }
+                            break;
+                        case '{':
+                        case '[':
+                            depth++;
+                            if (depth == 1) {
+                                if (b != '{') {
+                                    throw new IOException("The data file must contain a json object");
+                                }
+                                expectingKey = true;
+                            } else if (depth == 2 && b == '[') {
+                                currentChunks = new ArrayList<>();
+                                chunkStart = position + 1;
+                            }
+                            break;
+                        case '}':
+                        case ']':
+                            if (depth == 2 && currentChunks != null) {
+                                currentChunks.add(new Chunk(chunkStart, position));
+                                sections.put(currentSection, currentChunks);
+                                currentChunks = null;
+                            }
+                            depth--;
+                            break;
+                        case ',':
+                            if (depth == 1) {
+                                expectingKey = true;
+                            } else if (depth == 2 && currentChunks != null && position + 1 - chunkStart >= chunkSize) {
+                                currentChunks.add(new Chunk(chunkStart, position + 1));
+                                chunkStart = position + 1;
+                            }
+                            break;
+                        default:
+                            if (depth == 0 && !Character.isWhitespace(b)) {
+                                throw new IOException("The data file must contain a json object");
+                            }
+                    }
+                }
+            }
+        }
+        if (depth != 0 || inString) {
+            throw new IOException("The data file is truncated");
+        }
+        return sections;
+    }
+
+}
@@ -0,0 +1,384 @@
+package com.openclassrooms.safetynet.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class generates a synthetic data file, with the same schema as data.json, for any number of people.
+ * The people live in households of minHouseholdSize to maxHouseholdSize people sharing an address and a lastname,
+ * about childRatio of them are children, each person has a medical record and each address is covered by a fire station.
+ * The addresses of the households, the cities of the addresses and the fire stations of the addresses are drawn
+ * from zipf distributions, so a skew above 0 makes some addresses, cities or stations hot.
+ * Each household and each address is drawn from its own random generator derived from the seed,
+ * so the same seed and reference date always give the same file, and the records are written as they are generated:
+ * the size of the file is not limited by the memory.
+ * Run it with: java -cp safetynet.jar -Dloader.main=com.openclassrooms.safetynet.utils.DataGenerator
+ * org.springframework.boot.loader.PropertiesLauncher --persons=1000000 --output=data-1m.json
+ */
+@Getter
+@Builder
+public class DataGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataGenerator.class);
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long HOUSEHOLDS = 0x48L;
+    private static final long ADDRESSES = 0x41L;
+    private static final DateTimeFormatter BIRTHDATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    private static final String[] FIRST_NAMES = {"John", "Jacob", "Tenley", "Roger", "Felicia", "Jonanathan", "Tessa",
+            "Eric", "Peter", "Reginold", "Jamie", "Sophia", "Warren", "Zach", "Lily", "Ron", "Allison", "Brian", "Shawna",
+            "Kendrik", "Clive", "Foster", "Emma", "Noah", "Olivia", "Liam", "Ava", "Lucas", "Mia", "Ethan"};
+    private static final String[] LAST_NAMES = {"Boyd", "Carman", "Cooper", "Peters", "Marrack", "Ferguson", "Walker",
+            "Duncan", "Zemicks", "Stelzer", "Cadigan", "Smith", "Johnson", "Brown", "Miller", "Davis", "Wilson", "Moore",
+            "Taylor", "Anderson", "Thomas", "Jackson", "White", "Harris", "Martin", "Thompson", "Garcia", "Clark"};
+    private static final String[] STREETS = {"Culver St", "Binoc Ave", "Gershwin St", "Wall St", "Broadway",
+            "Parkway", "Manchester St", "Ash St", "Elm St", "Oak Ave", "Lake Dr", "Hill Rd", "River Rd", "Main St"};
+    private static final String[] CITIES = {"Culver", "Springfield", "Riverside", "Fairview", "Franklin", "Greenville",
+            "Bristol", "Clinton", "Georgetown", "Salem", "Madison", "Arlington", "Ashland", "Dover", "Oxford"};
+    private static final String[] MEDICATIONS = {"aznol:350mg", "hydrapermazol:100mg", "pharmacol:5000mg",
+            "terazine:10mg", "noznazol:250mg", "tetracyclaz:650mg", "thradox:700mg", "dodoxadin:30mg"};
+    private static final String[] ALLERGIES = {"nillacilan", "peanut", "shellfish", "xilliathal"};
+
+    @Builder.Default
+    private final int persons = 1000;
+    @Builder.Default
+    private final long seed = 42;
+    @Builder.Default
+    private final int minHouseholdSize = 1;
+    @Builder.Default
+    private final int maxHouseholdSize = 6;
+    @Builder.Default
+    private final double childRatio = 0.25;
+    /**
+     * Number of addresses, 0 to have one address for each household on average
+     */
+    @Builder.Default
+    private final int addresses = 0;
+    @Builder.Default
+    private final double addressSkew = 0;
+    @Builder.Default
+    private final int cities = 10;
+    @Builder.Default
+    private final double citySkew = 1;
+    @Builder.Default
+    private final int stations = 10;
+    @Builder.Default
+    private final double stationSkew = 0;
+    /**
+     * Date the ages of the people are computed from
+     */
+    @Builder.Default
+    private final LocalDate referenceDate = LocalDate.now();
+
+
+    /**
+     * Method that writes the generated data, as a json object with the persons, firestations and medicalrecords arrays,
+     * one record per line
+     *
+     * @param outputStream
+     * @throws IOException if the stream can't be written
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        this.validate();
+        int addressCount = this.getAddressCount();
+        OutputStream output = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        JsonFactory factory = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        output.write("{\n\"persons\": [\n".getBytes(StandardCharsets.UTF_8));
+        try (JsonGenerator generator = createGenerator(factory, output)) {
+            for (int h = 0, remaining = persons; remaining > 0; h++) {
+                Household household = this.household(h, remaining, addressCount);
+                for (Person person : household.persons) {
+                    writePerson(generator, person);
+                }
+                remaining -= household.persons.size();
+            }
+        }
+
+        output.write("\n],\n\"firestations\": [\n".getBytes(StandardCharsets.UTF_8));
+        try (JsonGenerator generator = createGenerator(factory, output)) {
+            for (int a = 0; a < addressCount; a++) {
+                SplittableRandom random = this.random(ADDRESSES, a);
+                zipf(random, cities, citySkew);
+                generator.writeStartObject();
+                generator.writeStringField("address", addressName(a));
+                generator.writeStringField("station", String.valueOf(zipf(random, stations, stationSkew) + 1));
+                generator.writeEndObject();
+            }
+        }
+
+        output.write("\n],\n\"medicalrecords\": [\n".getBytes(StandardCharsets.UTF_8));
+        try (JsonGenerator generator = createGenerator(factory, output)) {
+            for (int h = 0, remaining = persons; remaining > 0; h++) {
+                Household household = this.household(h, remaining, addressCount);
+                for (MedicalRecord medicalRecord : household.medicalRecords) {
+                    writeMedicalRecord(generator, medicalRecord);
+                }
+                remaining -= household.persons.size();
+            }
+        }
+        output.write("\n]\n}\n".getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+
+    /**
+     * Method that writes the generated data into a file
+     *
+     * @param path
+     * @return the size of the file in bytes
+     * @throws IOException if the file can't be written
+     */
+    public long write(Path path) throws IOException {
+        try (OutputStream outputStream = Files.newOutputStream(path)) {
+            this.write(outputStream);
+        }
+        return Files.size(path);
+    }
+
+
+    /**
+     * Generates a data file from options given as --name=value, for example --persons=1000000 --seed=7
+     * --address-skew=1.1 --output=data-1m.json
+     */
+    public static void main(String[] args) throws IOException {
+        DataGeneratorBuilder builder = DataGenerator.builder();
+        Path output = Paths.get("data-generated.json");
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Option " + arg + " must be given as --name=value");
+            }
+            String value = option[1];
+            switch (option[0]) {
+                case "persons":
+                    builder.persons(Integer.parseInt(value));
+                    break;
+                case "seed":
+                    builder.seed(Long.parseLong(value));
+                    break;
+                case "min-household-size":
+                    builder.minHouseholdSize(Integer.parseInt(value));
+                    break;
+                case "max-household-size":
+                    builder.maxHouseholdSize(Integer.parseInt(value));
+                    break;
+                case "child-ratio":
+                    builder.childRatio(Double.parseDouble(value));
+                    break;
+                case "addresses":
+                    builder.addresses(Integer.parseInt(value));
+                    break;
+                case "address-skew":
+                    builder.addressSkew(Double.parseDouble(value));
+                    break;
+                case "cities":
+                    builder.cities(Integer.parseInt(value));
+                    break;
+                case "city-skew":
+                    builder.citySkew(Double.parseDouble(value));
+                    break;
+                case "stations":
+                    builder.stations(Integer.parseInt(value));
+                    break;
+                case "station-skew":
+                    builder.stationSkew(Double.parseDouble(value));
+                    break;
+                case "reference-date":
+                    builder.referenceDate(LocalDate.parse(value));
+                    break;
+                case "output":
+                    output = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        long start = System.nanoTime();
+        DataGenerator dataGenerator = builder.build();
+        long size = dataGenerator.write(output);
+        logger.info("{} persons generated into {} ({} bytes) in {} ms", dataGenerator.getPersons(), output.toAbsolutePath(), size,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+
+    private void validate() {
+        if (persons < 0 || minHouseholdSize < 1 || maxHouseholdSize < minHouseholdSize || maxHouseholdSize > FIRST_NAMES.length) {
+            throw new IllegalArgumentException("The household sizes must be between 1 and " + FIRST_NAMES.length);
+        }
+        if (childRatio < 0 || childRatio > 1 || addresses < 0 || cities < 1 || stations < 1) {
+            throw new IllegalArgumentException("Invalid ratio of children, number of addresses, cities or stations");
+        }
+    }
+
+
+    public int getAddressCount() {
+        if (addresses > 0) {
+            return addresses;
+        }
+        return Math.max(1, (int) (persons / ((minHouseholdSize + maxHouseholdSize) / 2.0)));
+    }
+
+
+    /**
+     * Method that generates the members of a household from its own random generator,
+     * so the persons and the medical records of the household can be generated in separate passes
+     *
+     * @param index        the index of the household
+     * @param remaining    the number of people still to generate, which limits the size of the last household
+     * @param addressCount
+     * @return the people of the household and their medical records
+     */
+    private Household household(int index, int remaining, int addressCount) {
+        SplittableRandom random = this.random(HOUSEHOLDS, index);
+        int size = Math.min(remaining, minHouseholdSize + random.nextInt(maxHouseholdSize - minHouseholdSize + 1));
+        int address = addressSkew == 0 ? index % addressCount : zipf(random, addressCount, addressSkew);
+        int city = zipf(this.random(ADDRESSES, address), cities, citySkew);
+        String lastName = LAST_NAMES[index % LAST_NAMES.length] + (index < LAST_NAMES.length ? "" : String.valueOf(index / LAST_NAMES.length));
+        int firstNameOffset = random.nextInt(FIRST_NAMES.length);
+        // the first member is an adult, the others are children with the probability giving childRatio children overall
+        double childProbability = size > 1 ? Math.min(1, childRatio * size / (size - 1)) : 0;
+
+        Household household = new Household(size);
+        for (int m = 0; m < size; m++) {
+            String firstName = FIRST_NAMES[(firstNameOffset + m) % FIRST_NAMES.length];
+            boolean child = m > 0 && random.nextDouble() < childProbability;
+            int age = child ? random.nextInt(19) : 19 + random.nextInt(72);
+            LocalDate birthdate = referenceDate.minusYears(age).minusDays(random.nextInt(365));
+            household.persons.add(new Person(firstName, lastName, addressName(address), cityName(city), 97451 + city,
+                    "841-874-" + (1000 + random.nextInt(9000)),
+                    (firstName + "." + lastName + "@email.com").toLowerCase()));
+            household.medicalRecords.add(new MedicalRecord(firstName, lastName, birthdate,
+                    pick(random, MEDICATIONS, random.nextInt(4)), pick(random, ALLERGIES, random.nextInt(3))));
+        }
+        return household;
+    }
+
+
+    /**
+     * Method that returns the random generator of an element, derived from the seed, the kind and the index of the element
+     */
+    private SplittableRandom random(long kind, long index) {
+        return new SplittableRandom(mix(mix(seed + kind) + index));
+    }
+
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+
+    /**
+     * Method that draws a rank from a zipf distribution, through the inverse of its continuous approximation
+     *
+     * @param random
+     * @param n      the number of ranks
+     * @param skew   the exponent of the distribution, 0 for a uniform distribution
+     * @return a rank between 0 and n - 1, the lowest ranks being the most frequent
+     */
+    static int zipf(SplittableRandom random, int n, double skew) {
+        double u = random.nextDouble();
+        double x;
+        if (Math.abs(skew - 1) < 1e-9) {
+            x = Math.pow(n + 1, u);
+        } else {
+            x = Math.pow(1 + u * (Math.pow(n + 1, 1 - skew) - 1), 1 / (1 - skew));
+        }
+        return Math.min(n - 1, Math.max(0, (int) x - 1));
+    }
+
+
+    private static List<String> pick(SplittableRandom random, String[] values, int count) {
+        List<String> picked = new ArrayList<>(count);
+        int offset = random.nextInt(values.length);
+        for (int i = 0; i < count; i++) {
+            picked.add(values[(offset + i) % values.length]);
+        }
+        return picked;
+    }
+
+
+    private static String addressName(int address) {
+        return (address + 1) + " " + STREETS[address % STREETS.length];
+    }
+
+
+    private static String cityName(int city) {
+        return CITIES[city % CITIES.length] + (city < CITIES.length ? "" : " " + (city / CITIES.length + 1));
+    }
+
+
+    /**
+     * The records of a section are written as root values separated by a comma and a new line
+     */
+    private static JsonGenerator createGenerator(JsonFactory factory, OutputStream output) throws IOException {
+        return factory.createGenerator(output).setPrettyPrinter(new MinimalPrettyPrinter(",\n"));
+    }
+
+
+    private static void writePerson(JsonGenerator generator, Person person) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("firstName", person.getFirstName());
+        generator.writeStringField("lastName", person.getLastName());
+        generator.writeStringField("address", person.getAddress());
+        generator.writeStringField("city", person.getCity());
+        generator.writeStringField("zip", String.valueOf(person.getZip()));
+        generator.writeStringField("phone", person.getPhone());
+        generator.writeStringField("email", person.getEmail());
+        generator.writeEndObject();
+    }
+
+
+    private static void writeMedicalRecord(JsonGenerator generator, MedicalRecord medicalRecord) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("firstName", medicalRecord.getFirstName());
+        generator.writeStringField("lastName", medicalRecord.getLastName());
+        generator.writeStringField("birthdate", medicalRecord.getBirthdate().format(BIRTHDATE_FORMAT));
+        generator.writeArrayFieldStart("medications");
+        for (String medication : medicalRecord.getMedications()) {
+            generator.writeString(medication);
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("allergies");
+        for (String allergy : medicalRecord.getAllergies()) {
+            generator.writeString(allergy);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+
+    private static class Household {
+        private final List<Person> persons;
+        private final List<MedicalRecord> medicalRecords;
+
+        private Household(int size) {
+            this.persons = new ArrayList<>(size);
+            this.medicalRecords = new ArrayList<>(size);
+        }
+    }
+
+}
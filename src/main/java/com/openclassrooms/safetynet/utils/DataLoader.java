@@ -1,56 +1,296 @@
 package com.openclassrooms.safetynet.utils;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.openclassrooms.safetynet.repository.FireStationRepository;
-import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
-import com.openclassrooms.safetynet.repository.PersonRepository;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.Dataset;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * This class is used to read the json file at application startup,
  * retrieve the data and load it into the people list,
- * fire stations list and medical records list
+ * fire stations list and medical records list.
+ * The file is read with the streaming api of jackson: each record is deserialized as soon as it is read,
+ * so the text of the file is never held in memory, and the records replace the content of the three repositories
+ * at once, in a single new version of the data, when the whole file is read.
+ * The file is given by the safetynet.data.file property, data.json is read from the classpath
+ * when this file doesn't exist, and files larger than safetynet.data.mmap-threshold are memory-mapped.
+ * When safetynet.data.parallel is enabled, the sections of the file are split into chunks of
+ * safetynet.data.chunk-size bytes which are parsed on all the cores.
+ * A binary snapshot more recent than the data file is restored instead of reading the data file,
+ * then the changes of the mutation log are replayed.
  */
 @Data
 @Component
 public class DataLoader implements CommandLineRunner {
 
-    private Datas datas;
-    private final PersonRepository personRepository;
-    private final FireStationRepository fireStationRepository;
-    private final MedicalRecordRepository medicalRecordRepository;
+    private static final String CLASSPATH_DATA_FILE = "data.json";
+    private static final int MAPPED_WINDOW_SIZE = 1 << 30;
 
-    public DataLoader(PersonRepository personRepository, FireStationRepository fireStationRepository, MedicalRecordRepository medicalRecordRepository) {
-        this.personRepository = personRepository;
-        this.fireStationRepository = fireStationRepository;
-        this.medicalRecordRepository = medicalRecordRepository;
+    private final Logger logger = LoggerFactory.getLogger(DataLoader.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper chunkMapper = JsonMapper.builder().enable(JsonReadFeature.ALLOW_TRAILING_COMMA).build();
+    private final DatasetHolder datasetHolder;
+    private final DataSnapshot dataSnapshot;
+    private final MutationLog mutationLog;
+    private final Timer loadTimer;
+    private final String dataFile;
+    private final long mmapThreshold;
+    private final boolean parallel;
+    private final long chunkSize;
+
+    public DataLoader(DatasetHolder datasetHolder, MeterRegistry meterRegistry,
+                      DataSnapshot dataSnapshot,
+                      MutationLog mutationLog,
+                      @Value("${safetynet.data.file:src/main/resources/data.json}") String dataFile,
+                      @Value("${safetynet.data.mmap-threshold:67108864}") long mmapThreshold,
+                      @Value("${safetynet.data.parallel:false}") boolean parallel,
+                      @Value("${safetynet.data.chunk-size:8388608}") long chunkSize) {
+        this.datasetHolder = datasetHolder;
+        this.dataSnapshot = dataSnapshot;
+        this.mutationLog = mutationLog;
+        this.dataFile = dataFile;
+        this.mmapThreshold = mmapThreshold;
+        this.parallel = parallel;
+        this.chunkSize = chunkSize;
+        this.loadTimer = Timer.builder("safetynet.data.load")
+                .description("Time spent loading the data file at startup")
+                .register(meterRegistry);
     }
 
     @Override
     public void run(String... args) throws Exception {
-        BufferedReader br = new BufferedReader(new FileReader("src/main/resources/data.json"));
-        String jsonString = "";
+        Path path = Paths.get(dataFile);
+        if (dataSnapshot.isNewerThan(path)) {
+            long start = System.nanoTime();
+            dataSnapshot.restore();
+            this.recordLoad(start);
+        } else {
+            if (parallel && Files.isRegularFile(path)) {
+                this.loadParallel(path);
+            } else {
+                try (InputStream inputStream = this.openDataFile()) {
+                    this.load(inputStream);
+                }
+            }
+            if (mutationLog.isOlderThan(path)) {
+                mutationLog.discard();
+            }
+        }
+        mutationLog.replay();
+    }
+
+
+    /**
+     * Method that opens the configured data file, or data.json from the classpath if the file doesn't exist
+     *
+     * @return a stream on the json data
+     * @throws IOException if the data file can't be opened
+     */
+    public InputStream openDataFile() throws IOException {
+        Path path = Paths.get(dataFile);
+        if (Files.isRegularFile(path)) {
+            long size = Files.size(path);
+            if (size >= mmapThreshold) {
+                logger.info("Read {} ({} bytes) through a memory-mapped file", path, size);
+                return new MappedFileInputStream(path, MAPPED_WINDOW_SIZE);
+            }
+            logger.info("Read {} ({} bytes)", path, size);
+            return Files.newInputStream(path);
+        }
+        logger.info("{} not found, read {} from the classpath", path, CLASSPATH_DATA_FILE);
+        return new ClassPathResource(CLASSPATH_DATA_FILE).getInputStream();
+    }
+
+
+    /**
+     * Method that reads the json data from the stream and loads it into the repositories
+     *
+     * @param inputStream
+     * @throws IOException if the data can't be read
+     */
+    public void load(InputStream inputStream) throws IOException {
+        long start = System.nanoTime();
+        List<Person> persons = new ArrayList<>();
+        List<FireStation> fireStations = new ArrayList<>();
+        List<MedicalRecord> medicalRecords = new ArrayList<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The data file must contain a json object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.getCurrentName();
+                parser.nextToken();
+                switch (section) {
+                    case "persons":
+                        this.readArray(objectMapper, parser, Person.class, persons::add);
+                        break;
+                    case "firestations":
+                        this.readArray(objectMapper, parser, FireStation.class, fireStations::add);
+                        break;
+                    case "medicalrecords":
+                        this.readArray(objectMapper, parser, MedicalRecord.class, medicalRecords::add);
+                        break;
+                    default:
+                        logger.debug("Unknown section {} skipped", section);
+                        parser.skipChildren();
+                }
+            }
+        }
+        datasetHolder.replace(Dataset.of(persons, fireStations, medicalRecords));
+
+        this.recordLoad(start);
+    }
 
+
+    /**
+     * Method that loads the json data file into the repositories, parsing its chunks in parallel
+     *
+     * @param path
+     * @throws IOException if the data can't be read
+     */
+    public void loadParallel(Path path) throws IOException {
+        long start = System.nanoTime();
+        Map<String, List<DataFileSplitter.Chunk>> sections = DataFileSplitter.split(path, chunkSize);
+        logger.info("Read {} in parallel, sections {} split into {} chunks", path, sections.keySet(),
+                sections.values().stream().mapToInt(List::size).sum());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
         try {
-            String line;
-            while ((line = br.readLine()) != null) {
-                jsonString += line;
+            CompletableFuture<List<Person>> persons = this.readSection(executor, path, sections.get("persons"), Person.class);
+            CompletableFuture<List<FireStation>> fireStations = this.readSection(executor, path, sections.get("firestations"), FireStation.class);
+            CompletableFuture<List<MedicalRecord>> medicalRecords = this.readSection(executor, path, sections.get("medicalrecords"), MedicalRecord.class);
+            datasetHolder.replace(Dataset.of(persons.join(), fireStations.join(), medicalRecords.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            throw e;
         } finally {
-            br.close();
+            executor.shutdown();
+        }
+
+        this.recordLoad(start);
+    }
+
+
+    /**
+     * Method that records the loading time and logs the size of the repositories
+     *
+     * @param start the time the loading started, in nanoseconds
+     */
+    private void recordLoad(long start) {
+        long duration = System.nanoTime() - start;
+        loadTimer.record(duration, TimeUnit.NANOSECONDS);
+        Dataset dataset = datasetHolder.latest();
+        logger.info("{} persons, {} fire stations and {} medical records loaded in {} ms",
+                dataset.getPersonStore().getPersons().size(), dataset.getFireStationStore().getFireStations().size(),
+                dataset.getMedicalRecordStore().getMedicalRecords().size(), TimeUnit.NANOSECONDS.toMillis(duration));
+    }
+
+
+    /**
+     * Method that parses each chunk of a section on the executor, then joins the records in the order of the file
+     *
+     * @param executor
+     * @param path
+     * @param chunks the chunks of the section, null if the section is missing
+     * @param type   the type of the records
+     * @return the records of the section
+     */
+    private <T> CompletableFuture<List<T>> readSection(ExecutorService executor, Path path, List<DataFileSplitter.Chunk> chunks, Class<T> type) {
+        if (chunks == null) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
+        List<CompletableFuture<List<T>>> futures = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> this.readChunk(path, chunk, type), executor))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApplyAsync(done -> {
+                    List<T> records = new ArrayList<>();
+                    futures.forEach(future -> records.addAll(future.join()));
+                    return records;
+                }, executor);
+    }
+
 
-        datas = new ObjectMapper().readValue(jsonString, Datas.class);
-        personRepository.setPersons(datas.getPersons());
-        fireStationRepository.setFireStations(datas.getFirestations());
-        medicalRecordRepository.setMedicalRecords(datas.getMedicalrecords());
+    /**
+     * Method that parses the records of a chunk, read as a json array
+     *
+     * @param path
+     * @param chunk
+     * @param type  the type of the records
+     * @return the records of the chunk
+     */
+    private <T> List<T> readChunk(Path path, DataFileSplitter.Chunk chunk, Class<T> type) {
+        List<T> records = new ArrayList<>();
+        try (InputStream inputStream = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(new byte[]{'['}),
+                new MappedFileInputStream(path, chunk.getStart(), chunk.getEnd(), MAPPED_WINDOW_SIZE),
+                new ByteArrayInputStream(new byte[]{']'}))));
+             JsonParser parser = chunkMapper.getFactory().createParser(inputStream)) {
+            parser.nextToken();
+            this.readArray(chunkMapper, parser, type, records::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+
+    /**
+     * Method that reads the array the parser is positioned on, one record at a time
+     *
+     * @param mapper   the mapper used to deserialize the records
+     * @param parser
+     * @param type     the type of the records
+     * @param consumer the action applied to each record
+     * @throws IOException if a record can't be read
+     */
+    private <T> void readArray(ObjectMapper mapper, JsonParser parser, Class<T> type, Consumer<T> consumer) throws IOException {
+        ObjectReader reader = mapper.readerFor(type);
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Section " + parser.getCurrentName() + " must be a json array");
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            consumer.accept(reader.readValue(parser));
+        }
     }
 
 }
@@ -0,0 +1,324 @@
+package com.openclassrooms.safetynet.utils;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.Dataset;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class saves the content of the repositories into a binary snapshot file, and restores it.
+ * The snapshot starts with a dictionary of the distinct strings, then each record is written as
+ * the indexes of its strings in the dictionary and its numbers, so restoring the data doesn't parse any text.
+ * The snapshot is taken from a single version of the data, so it is consistent even if changes are made while it is written.
+ * The snapshot is written on demand and at shutdown when safetynet.data.snapshot.on-shutdown is enabled,
+ * and no snapshot is used when safetynet.data.snapshot.file is empty.
+ */
+@Data
+@Component
+public class DataSnapshot {
+
+    private static final int MAGIC = 0x534e5031;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int NULL = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private final Logger logger = LoggerFactory.getLogger(DataSnapshot.class);
+    private final DatasetHolder datasetHolder;
+    private final MutationLog mutationLog;
+    private final String file;
+    private final boolean onShutdown;
+
+    public DataSnapshot(DatasetHolder datasetHolder,
+                        MutationLog mutationLog,
+                        @Value("${safetynet.data.snapshot.file:}") String file,
+                        @Value("${safetynet.data.snapshot.on-shutdown:false}") boolean onShutdown) {
+        this.datasetHolder = datasetHolder;
+        this.mutationLog = mutationLog;
+        this.file = file;
+        this.onShutdown = onShutdown;
+    }
+
+
+    public boolean isEnabled() {
+        return file != null && !file.isBlank();
+    }
+
+
+    public Path getPath() {
+        return Paths.get(file);
+    }
+
+
+    /**
+     * Method that takes the data file and returns true if a snapshot exists and is more recent than this file.
+     * A snapshot is always more recent than a data file which doesn't exist.
+     *
+     * @param dataFile
+     * @return true if the snapshot should be restored instead of reading the data file
+     * @throws IOException if the modification dates can't be read
+     */
+    public boolean isNewerThan(Path dataFile) throws IOException {
+        if (!this.isEnabled() || !Files.isRegularFile(this.getPath())) {
+            return false;
+        }
+        return !Files.isRegularFile(dataFile)
+                || Files.getLastModifiedTime(this.getPath()).compareTo(Files.getLastModifiedTime(dataFile)) > 0;
+    }
+
+
+    /**
+     * Method that writes the content of the repositories into the snapshot file.
+     * The snapshot is written into a temporary file which then replaces the previous snapshot,
+     * so a snapshot is never read while it is partially written.
+     * The mutation log is emptied once the snapshot is saved, the writers waiting meanwhile
+     * so that each change is either in the snapshot or in the log.
+     *
+     * @return the size of the snapshot in bytes
+     * @throws IOException if the snapshot can't be written
+     */
+    public long save() throws IOException {
+        synchronized (datasetHolder) {
+            return mutationLog.checkpoint(() -> this.saveFile(datasetHolder.latest()));
+        }
+    }
+
+
+    private long saveFile(Dataset dataset) throws IOException {
+        Path path = this.getPath().toAbsolutePath();
+        Path temporaryFile = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+            this.write(Channels.newOutputStream(channel), dataset);
+            // the snapshot must be on the disk before the log is emptied
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+        Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long size = Files.size(path);
+        logger.info("Snapshot {} saved ({} bytes)", path, size);
+        return size;
+    }
+
+
+    /**
+     * Method that replaces the content of the repositories with the content of the snapshot file
+     *
+     * @throws IOException if the snapshot can't be read
+     */
+    public void restore() throws IOException {
+        logger.info("Restore the snapshot {}", this.getPath());
+        try (InputStream inputStream = Files.newInputStream(this.getPath())) {
+            this.read(inputStream);
+        }
+    }
+
+
+    /**
+     * Method that saves the snapshot when the application is stopped
+     */
+    @PreDestroy
+    public void saveOnShutdown() {
+        if (!onShutdown || !this.isEnabled()) {
+            return;
+        }
+        try {
+            this.save();
+        } catch (IOException e) {
+            logger.error("The snapshot {} can't be saved", this.getPath(), e);
+        }
+    }
+
+
+    /**
+     * Method that writes the content of the repositories into the stream
+     *
+     * @param outputStream
+     * @throws IOException if the stream can't be written
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        this.write(outputStream, datasetHolder.read());
+    }
+
+
+    private void write(OutputStream outputStream, Dataset dataset) throws IOException {
+        List<Person> persons = dataset.getPersonStore().getPersons();
+        List<FireStation> fireStations = dataset.getFireStationStore().getFireStations();
+        List<MedicalRecord> medicalRecords = dataset.getMedicalRecordStore().getMedicalRecords();
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Person person : persons) {
+            addToDictionary(dictionary, strings, person.getFirstName(), person.getLastName(), person.getAddress(),
+                    person.getCity(), person.getPhone(), person.getEmail());
+        }
+        for (FireStation fireStation : fireStations) {
+            addToDictionary(dictionary, strings, fireStation.getAddress());
+        }
+        for (MedicalRecord medicalRecord : medicalRecords) {
+            addToDictionary(dictionary, strings, medicalRecord.getFirstName(), medicalRecord.getLastName());
+            if (medicalRecord.getMedications() != null) {
+                medicalRecord.getMedications().forEach(medication -> addToDictionary(dictionary, strings, medication));
+            }
+            if (medicalRecord.getAllergies() != null) {
+                medicalRecord.getAllergies().forEach(allergy -> addToDictionary(dictionary, strings, allergy));
+            }
+        }
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+        output.writeInt(MAGIC);
+        output.writeInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+
+        output.writeInt(persons.size());
+        for (Person person : persons) {
+            writeString(output, dictionary, person.getFirstName());
+            writeString(output, dictionary, person.getLastName());
+            writeString(output, dictionary, person.getAddress());
+            writeString(output, dictionary, person.getCity());
+            output.writeInt(person.getZip());
+            writeString(output, dictionary, person.getPhone());
+            writeString(output, dictionary, person.getEmail());
+        }
+
+        output.writeInt(fireStations.size());
+        for (FireStation fireStation : fireStations) {
+            writeString(output, dictionary, fireStation.getAddress());
+            output.writeInt(fireStation.getStation());
+        }
+
+        output.writeInt(medicalRecords.size());
+        for (MedicalRecord medicalRecord : medicalRecords) {
+            writeString(output, dictionary, medicalRecord.getFirstName());
+            writeString(output, dictionary, medicalRecord.getLastName());
+            output.writeLong(medicalRecord.getBirthdate() == null ? NULL_DATE : medicalRecord.getBirthdate().toEpochDay());
+            writeStrings(output, dictionary, medicalRecord.getMedications());
+            writeStrings(output, dictionary, medicalRecord.getAllergies());
+        }
+        output.flush();
+    }
+
+
+    /**
+     * Method that reads a snapshot from the stream and replaces the content of the repositories with it.
+     * The three repositories are replaced at once by publishing a single new version of the data.
+     *
+     * @param inputStream
+     * @throws IOException if the stream can't be read or doesn't contain a snapshot
+     */
+    public void read(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+        if (input.readInt() != MAGIC) {
+            throw new IOException("The file is not a snapshot");
+        }
+        String[] strings = new String[input.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int personCount = input.readInt();
+        List<Person> persons = new ArrayList<>(personCount);
+        for (int i = 0; i < personCount; i++) {
+            persons.add(new Person(readString(input, strings), readString(input, strings), readString(input, strings),
+                    readString(input, strings), input.readInt(), readString(input, strings), readString(input, strings)));
+        }
+
+        int fireStationCount = input.readInt();
+        List<FireStation> fireStations = new ArrayList<>(fireStationCount);
+        for (int i = 0; i < fireStationCount; i++) {
+            fireStations.add(new FireStation(readString(input, strings), input.readInt()));
+        }
+
+        int medicalRecordCount = input.readInt();
+        List<MedicalRecord> medicalRecords = new ArrayList<>(medicalRecordCount);
+        for (int i = 0; i < medicalRecordCount; i++) {
+            String firstName = readString(input, strings);
+            String lastName = readString(input, strings);
+            long birthdate = input.readLong();
+            medicalRecords.add(new MedicalRecord(firstName, lastName, birthdate == NULL_DATE ? null : LocalDate.ofEpochDay(birthdate),
+                    readStrings(input, strings), readStrings(input, strings)));
+        }
+
+        datasetHolder.replace(Dataset.of(persons, fireStations, medicalRecords));
+    }
+
+
+    private static void addToDictionary(Map<String, Integer> dictionary, List<String> strings, String... values) {
+        for (String value : values) {
+            if (value != null && dictionary.putIfAbsent(value, strings.size()) == null) {
+                strings.add(value);
+            }
+        }
+    }
+
+
+    private static void writeString(DataOutputStream output, Map<String, Integer> dictionary, String value) throws IOException {
+        output.writeInt(value == null ? NULL : dictionary.get(value));
+    }
+
+
+    private static void writeStrings(DataOutputStream output, Map<String, Integer> dictionary, List<String> values) throws IOException {
+        if (values == null) {
+            output.writeInt(NULL);
+            return;
+        }
+        output.writeInt(values.size());
+        for (String value : values) {
+            writeString(output, dictionary, value);
+        }
+    }
+
+
+    private static String readString(DataInputStream input, String[] strings) throws IOException {
+        int index = input.readInt();
+        return index == NULL ? null : strings[index];
+    }
+
+
+    private static List<String> readStrings(DataInputStream input, String[] strings) throws IOException {
+        int size = input.readInt();
+        if (size == NULL) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(input, strings));
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.openclassrooms.safetynet.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Input stream reading a file through memory-mapped windows of the file channel.
+ * The bytes are read from the page cache without being copied by read system calls,
+ * and files larger than 2 GB are mapped one window after the other.
+ */
+public class MappedFileInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    private final int windowSize;
+    private long position;
+    private MappedByteBuffer window;
+
+    public MappedFileInputStream(Path path, int windowSize) throws IOException {
+        this(path, 0, -1, windowSize);
+    }
+
+    /**
+     * Create a stream reading the bytes of the file from start (inclusive) to end (exclusive)
+     *
+     * @param path
+     * @param start      the position of the first byte to read
+     * @param end        the position after the last byte to read, or -1 to read until the end of the file
+     * @param windowSize the maximum size of a mapped window
+     * @throws IOException if the file can't be opened
+     */
+    public MappedFileInputStream(Path path, long start, long end, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.end = end < 0 ? this.channel.size() : Math.min(end, this.channel.size());
+        this.position = start;
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.ensureWindow()) {
+            return -1;
+        }
+        return this.window.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!this.ensureWindow()) {
+            return -1;
+        }
+        int count = Math.min(length, this.window.remaining());
+        this.window.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return this.window == null ? 0 : this.window.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.window = null;
+        this.channel.close();
+    }
+
+
+    /**
+     * Method that maps the next window of the file when the current one has been fully read
+     *
+     * @return false if the end of the file is reached
+     * @throws IOException if the file can't be mapped
+     */
+    private boolean ensureWindow() throws IOException {
+        if (this.window != null && this.window.hasRemaining()) {
+            return true;
+        }
+        if (this.position >= this.end) {
+            return false;
+        }
+        long length = Math.min(this.windowSize, this.end - this.position);
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+        this.position += length;
+        return true;
+    }
+
+}
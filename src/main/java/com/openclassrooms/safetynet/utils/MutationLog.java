@@ -0,0 +1,473 @@
+package com.openclassrooms.safetynet.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.FireStationRepository;
+import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.Mutation;
+import com.openclassrooms.safetynet.repository.MutationJournal;
+import com.openclassrooms.safetynet.repository.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * This class appends every add, update and delete applied to the repositories to a log file,
+ * so that the changes made through the api survive a restart. A change is appended before it is visible,
+ * and is not applied if it can't be appended.
+ * Each change is one sequential append of a record holding its length, its checksum, the kind of change
+ * and the changed record in json. A change is appended by the writer holding the lock of the dataset holder,
+ * which waits for the log to be synced to the disk once it has released the lock, so the changes appended
+ * while the log is synced are synced together by the next sync.
+ * A failed sync fails the appends waiting for it and every later append, as the appended changes
+ * may not be on the disk anymore, and a failed write is removed from the log so that no partial record
+ * hides the records appended after it.
+ * The log is emptied each time a snapshot is saved, so the data are restored from the snapshot,
+ * or the data file, followed by the log. No log is written when safetynet.data.log.file is empty.
+ */
+@Component
+public class MutationLog {
+
+    private static final byte PERSON = 'P';
+    private static final byte FIRE_STATION = 'F';
+    private static final byte MEDICAL_RECORD = 'M';
+    private static final int HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(MutationLog.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PersonRepository personRepository;
+    private final FireStationRepository fireStationRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final String file;
+
+    private final Object lock = new Object();
+    private FileChannel channel;
+    private Thread syncThread;
+    // number of bytes appended and synced since the log has been opened, never reset by a checkpoint
+    private long appendedBytes;
+    private long syncedBytes;
+    private boolean closed;
+    // cause of the failure of a sync, after which nothing is appended anymore
+    private IOException failure;
+    private volatile boolean replaying;
+
+    /**
+     * Action writing a snapshot of the repositories
+     */
+    @FunctionalInterface
+    public interface SnapshotWriter {
+        long write() throws IOException;
+    }
+
+    public MutationLog(PersonRepository personRepository, FireStationRepository fireStationRepository, MedicalRecordRepository medicalRecordRepository,
+                       @Value("${safetynet.data.log.file:}") String file) {
+        this.personRepository = personRepository;
+        this.fireStationRepository = fireStationRepository;
+        this.medicalRecordRepository = medicalRecordRepository;
+        this.file = file;
+        if (this.isEnabled()) {
+            personRepository.setMutationJournal(mutation -> this.append(PERSON, mutation));
+            fireStationRepository.setMutationJournal(mutation -> this.append(FIRE_STATION, mutation));
+            medicalRecordRepository.setMutationJournal(mutation -> this.append(MEDICAL_RECORD, mutation));
+        }
+    }
+
+
+    public boolean isEnabled() {
+        return file != null && !file.isBlank();
+    }
+
+
+    public Path getPath() {
+        return Paths.get(file);
+    }
+
+
+    /**
+     * Method that takes the data file and returns true if the log was last written before this file was modified,
+     * in which case the changes of the log don't apply to the data file anymore
+     *
+     * @param dataFile
+     * @return true if the log is older than the data file
+     * @throws IOException if the modification dates can't be read
+     */
+    public boolean isOlderThan(Path dataFile) throws IOException {
+        return this.isEnabled() && Files.isRegularFile(this.getPath()) && Files.isRegularFile(dataFile)
+                && Files.getLastModifiedTime(this.getPath()).compareTo(Files.getLastModifiedTime(dataFile)) < 0;
+    }
+
+
+    /**
+     * Method that appends a change to the log
+     *
+     * @param recordType the type of the changed record
+     * @param mutation
+     * @return the wait for the change to be synced to the disk
+     */
+    private MutationJournal.Commit append(byte recordType, Mutation<?> mutation) {
+        if (this.replaying) {
+            return MutationJournal.Commit.DONE;
+        }
+        try {
+            Object record = mutation.getType() == Mutation.Type.DELETE ? mutation.getPrevious() : mutation.getCurrent();
+            byte[] json = objectMapper.writeValueAsBytes(record);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 + json.length);
+            buffer.putInt(2 + json.length);
+            buffer.putInt(0);
+            buffer.put(recordType);
+            buffer.put((byte) mutation.getType().ordinal());
+            buffer.put(json);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), HEADER_SIZE, 2 + json.length);
+            buffer.putInt(4, (int) crc.getValue());
+            buffer.flip();
+
+            synchronized (this.lock) {
+                this.open();
+                this.write(buffer);
+                this.appendedBytes += buffer.limit();
+                long appended = this.appendedBytes;
+                this.lock.notifyAll();
+                return () -> this.awaitSync(appended);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Method that waits until the log is synced to the disk up to the given number of appended bytes
+     *
+     * @param appended
+     */
+    private void awaitSync(long appended) {
+        try {
+            synchronized (this.lock) {
+                while (this.syncedBytes < appended && this.failure == null && !this.closed) {
+                    this.lock.wait();
+                }
+                if (this.syncedBytes < appended) {
+                    throw this.failure != null ? new IOException("The mutation log can't be synced", this.failure)
+                            : new IOException("The mutation log is closed");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while the mutation log is synced", e);
+        }
+    }
+
+
+    /**
+     * Method that writes a record at the end of the log, or removes what was written of it if the write fails.
+     * Must be called while holding the lock.
+     *
+     * @param buffer the record
+     * @throws IOException if the record can't be written
+     */
+    private void write(ByteBuffer buffer) throws IOException {
+        long position = this.channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                this.channel.write(buffer);
+            }
+        } catch (IOException e) {
+            try {
+                this.channel.truncate(position);
+                this.channel.position(position);
+            } catch (IOException truncateException) {
+                e.addSuppressed(truncateException);
+                this.fail(e);
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Method that marks the log as failed and wakes up the appends waiting for a sync.
+     * Must be called while holding the lock.
+     *
+     * @param cause
+     */
+    private void fail(IOException cause) {
+        logger.error("The mutation log {} has failed, no change can be saved anymore", this.getPath(), cause);
+        this.failure = cause;
+        this.lock.notifyAll();
+    }
+
+
+    /**
+     * Method that opens the log for appending, and starts the thread syncing it, if it is not open yet.
+     * Must be called while holding the lock.
+     *
+     * @throws IOException if the log can't be opened
+     */
+    private void open() throws IOException {
+        if (this.closed) {
+            throw new IOException("The mutation log is closed");
+        }
+        if (this.failure != null) {
+            throw new IOException("The mutation log has failed", this.failure);
+        }
+        if (this.channel != null) {
+            return;
+        }
+        this.channel = FileChannel.open(this.getPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.position(this.channel.size());
+        this.syncThread = new Thread(this::syncLoop, "mutation-log-sync");
+        this.syncThread.setDaemon(true);
+        this.syncThread.start();
+    }
+
+
+    /**
+     * Method run by the sync thread: syncs the log to the disk each time bytes have been appended
+     * since the previous sync, then wakes up the appends waiting for these bytes.
+     * A failed sync fails the log and ends the thread.
+     */
+    private void syncLoop() {
+        while (true) {
+            long appended;
+            FileChannel fileChannel;
+            synchronized (this.lock) {
+                while (this.syncedBytes == this.appendedBytes && !this.closed) {
+                    try {
+                        this.lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (this.closed) {
+                    return;
+                }
+                appended = this.appendedBytes;
+                fileChannel = this.channel;
+            }
+            try {
+                fileChannel.force(false);
+            } catch (IOException e) {
+                synchronized (this.lock) {
+                    this.fail(e);
+                }
+                return;
+            }
+            synchronized (this.lock) {
+                this.syncedBytes = appended;
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+
+    /**
+     * Method that writes a snapshot then empties the log, while no change can be appended to the log.
+     * A change is appended to the log before it is published, so the caller must hold the lock of the dataset holder
+     * for no change to be appended but not yet published, which would be neither in the snapshot nor in the emptied log.
+     *
+     * @param snapshotWriter the action writing the snapshot
+     * @return the result of the snapshot writer
+     * @throws IOException if the snapshot can't be written or the log can't be emptied
+     */
+    public long checkpoint(SnapshotWriter snapshotWriter) throws IOException {
+        synchronized (this.lock) {
+            long result = snapshotWriter.write();
+            if (this.isEnabled()) {
+                this.truncate(0);
+            }
+            return result;
+        }
+    }
+
+
+    /**
+     * Method that empties the log
+     *
+     * @throws IOException if the log can't be emptied
+     */
+    public void discard() throws IOException {
+        synchronized (this.lock) {
+            logger.warn("The mutation log {} is discarded", this.getPath());
+            this.truncate(0);
+        }
+    }
+
+
+    private void truncate(long size) throws IOException {
+        this.open();
+        this.channel.truncate(size);
+        this.channel.position(size);
+        this.channel.force(true);
+    }
+
+
+    /**
+     * Method that applies the changes of the log to the repositories.
+     * A record partially written by a crash ends the log: it is ignored and removed from the log.
+     *
+     * @return the number of changes applied
+     * @throws IOException if the log can't be read
+     */
+    public int replay() throws IOException {
+        if (!this.isEnabled() || !Files.isRegularFile(this.getPath())) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long size = Files.size(this.getPath());
+        int count = 0;
+        long validSize = 0;
+        this.replaying = true;
+        try (InputStream inputStream = Files.newInputStream(this.getPath())) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+            while (true) {
+                byte[] payload = readRecord(input, size - validSize - HEADER_SIZE);
+                if (payload == null) {
+                    break;
+                }
+                this.apply(payload);
+                count++;
+                validSize += HEADER_SIZE + payload.length;
+            }
+        } finally {
+            this.replaying = false;
+        }
+
+        synchronized (this.lock) {
+            if (validSize < size) {
+                logger.warn("{} bytes at the end of the mutation log {} are ignored", size - validSize, this.getPath());
+                this.truncate(validSize);
+            }
+        }
+        logger.info("{} changes replayed from {} in {} ms", count, this.getPath(), (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+
+
+    /**
+     * Method that reads the next record of the log
+     *
+     * @param input
+     * @param maxLength the number of bytes left in the log after the header of the record
+     * @return the payload of the record, null at the end of the log or if the record is incomplete or corrupted
+     * @throws IOException if the log can't be read
+     */
+    private static byte[] readRecord(DataInputStream input, long maxLength) throws IOException {
+        try {
+            int length = input.readInt();
+            int checksum = input.readInt();
+            if (length < 2 || length > maxLength) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            input.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Method that applies a change to its repository, as an upsert or as the delete of an existing record
+     *
+     * @param payload
+     * @throws IOException if the changed record can't be read
+     */
+    private void apply(byte[] payload) throws IOException {
+        Mutation.Type type = Mutation.Type.values()[payload[1]];
+        switch (payload[0]) {
+            case PERSON:
+                Person person = objectMapper.readValue(payload, 2, payload.length - 2, Person.class);
+                Person existingPerson = personRepository.findPersonByFirstNameAndLastName(person.getFirstName(), person.getLastName());
+                if (type == Mutation.Type.DELETE) {
+                    if (existingPerson != null) {
+                        personRepository.deletePerson(existingPerson);
+                    }
+                } else if (existingPerson == null) {
+                    personRepository.addPerson(person);
+                } else {
+                    personRepository.updatePerson(person);
+                }
+                break;
+            case FIRE_STATION:
+                FireStation fireStation = objectMapper.readValue(payload, 2, payload.length - 2, FireStation.class);
+                boolean existingFireStation = fireStationRepository.getFireStationsByNumber(fireStation.getStation()).contains(fireStation);
+                if (type == Mutation.Type.DELETE) {
+                    if (existingFireStation) {
+                        fireStationRepository.deleteStation(fireStation);
+                    }
+                } else if (type == Mutation.Type.UPDATE && fireStationRepository.getFireStationByAddress(fireStation.getAddress()) != null) {
+                    fireStationRepository.updateStationNumber(fireStation);
+                } else if (!existingFireStation) {
+                    fireStationRepository.addFireStation(fireStation);
+                }
+                break;
+            case MEDICAL_RECORD:
+                MedicalRecord medicalRecord = objectMapper.readValue(payload, 2, payload.length - 2, MedicalRecord.class);
+                MedicalRecord existingMedicalRecord = medicalRecordRepository.findMedicalRecordByFirstNameAndLastName(medicalRecord.getFirstName(), medicalRecord.getLastName());
+                if (type == Mutation.Type.DELETE) {
+                    if (existingMedicalRecord != null) {
+                        medicalRecordRepository.deleteMedicalRecord(existingMedicalRecord);
+                    }
+                } else if (existingMedicalRecord == null) {
+                    medicalRecordRepository.addMedicalRecord(medicalRecord);
+                } else {
+                    medicalRecordRepository.updateMedicalRecord(medicalRecord);
+                }
+                break;
+            default:
+                throw new IOException("Unknown record type " + payload[0] + " in the mutation log");
+        }
+    }
+
+
+    /**
+     * Method that syncs and closes the log when the application is stopped
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (this.lock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.lock.notifyAll();
+            if (this.channel != null) {
+                try {
+                    if (this.failure == null) {
+                        this.channel.force(false);
+                        this.syncedBytes = this.appendedBytes;
+                    }
+                    this.channel.close();
+                } catch (IOException e) {
+                    logger.error("The mutation log {} can't be closed", this.getPath(), e);
+                }
+            }
+        }
+    }
+
+}
@@ -5,6 +5,7 @@ import com.openclassrooms.safetynet.exception.FireStationNotFoundException;
 import com.openclassrooms.safetynet.exception.MedicalRecordNotFoundException;
 import com.openclassrooms.safetynet.exception.PersonNotFoundException;
 import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.QueryVersionRepository;
 import com.openclassrooms.safetynet.service.PersonService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,6 +16,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,6 +39,12 @@ class AlertControllerTest {
     @MockBean
     private PersonService personService;
 
+    @MockBean
+    private QueryVersionRepository queryVersionRepository;
+
+    @MockBean
+    private ResponseCache responseCache;
+
     @Captor
     ArgumentCaptor<String> addressCaptor;
 
@@ -81,6 +89,39 @@ class AlertControllerTest {
     }
 
 
+    @DisplayName("Should not compute the children list if the version of the client is current")
+    @Test
+    void shouldNotGetChildrenListIfNotModified() throws Exception {
+
+        when(queryVersionRepository.getAddressVersion("1509 Culver St")).thenReturn("1f-2-20240601");
+
+        this.mockMvc.perform(get("/childAlert").param("address", "1509 Culver St")
+                        .header("If-None-Match", "\"1f-2-20240601\""))
+                .andExpect(status().isNotModified());
+
+        verify(this.personService, never()).findChildrenByAddress(anyString());
+
+    }
+
+
+    @DisplayName("Should get the cached children list without calling the service")
+    @Test
+    void shouldGetCachedChildrenList() throws Exception {
+
+        when(queryVersionRepository.getAddressVersion("1509 Culver St")).thenReturn("1f-2-20240601");
+        when(responseCache.get("/childAlert?address=1509 Culver St", "1f-2-20240601"))
+                .thenReturn("[{\"firstName\":\"firstnameChild1\"}]".getBytes(StandardCharsets.UTF_8));
+
+        this.mockMvc.perform(get("/childAlert").param("address", "1509 Culver St"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].firstName", is("firstnameChild1")));
+
+        verify(this.personService, never()).findChildrenByAddress(anyString());
+
+    }
+
+
     @DisplayName("Should not get children list -> medical record not found")
     @Test
     void shouldNotGetChildrenListMedicalRecordNotFoundException() throws Exception {
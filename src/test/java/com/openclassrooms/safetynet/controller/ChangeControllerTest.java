@@ -0,0 +1,69 @@
+package com.openclassrooms.safetynet.controller;
+
+import com.openclassrooms.safetynet.exception.InvalidListingRequestException;
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.repository.Change;
+import com.openclassrooms.safetynet.repository.Changes;
+import com.openclassrooms.safetynet.repository.Mutation;
+import com.openclassrooms.safetynet.service.ChangeService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ChangeController.class)
+class ChangeControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    private ChangeService changeService;
+
+
+    @DisplayName("Should get the changes after a sequence")
+    @Test
+    void shouldGetChanges() throws Exception {
+
+        Change change = new Change(8, "fireStation", new Mutation<>(Mutation.Type.ADD, null, new FireStation("1509 Culver St", 3)));
+        when(this.changeService.getChangesSince(7, "2a")).thenReturn(new Changes(42, 8, false, List.of(change)));
+
+        mockMvc.perform(get("/changes").param("since", "7").param("epoch", "2a"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.epoch", is("2a")))
+                .andExpect(jsonPath("$.lastSequence", is(8)))
+                .andExpect(jsonPath("$.resync", is(false)))
+                .andExpect(jsonPath("$.changes", hasSize(1)))
+                .andExpect(jsonPath("$.changes[0].sequence", is(8)))
+                .andExpect(jsonPath("$.changes[0].type", is("ADD")))
+                .andExpect(jsonPath("$.changes[0].current.station", is(3)));
+
+        verify(this.changeService, times(1)).getChangesSince(7, "2a");
+
+    }
+
+
+    @DisplayName("Should not get the changes with an invalid epoch")
+    @Test
+    void shouldNotGetChangesWithInvalidEpoch() throws Exception {
+
+        when(this.changeService.getChangesSince(7, "xyz")).thenThrow(new InvalidListingRequestException("Invalid epoch: xyz"));
+
+        mockMvc.perform(get("/changes").param("since", "7").param("epoch", "xyz"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Invalid epoch: xyz")));
+
+    }
+
+}
@@ -1,9 +1,13 @@
 package com.openclassrooms.safetynet.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.openclassrooms.safetynet.exception.PersonAlreadyExistException;
 import com.openclassrooms.safetynet.exception.PersonNotFoundException;
 import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.Cursor;
+import com.openclassrooms.safetynet.repository.Page;
 import com.openclassrooms.safetynet.service.PersonService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,16 +17,21 @@ import org.mockito.Captor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -80,6 +89,66 @@ class PersonControllerTest {
     }
 
 
+    @DisplayName("Should stream all people as newline-delimited JSON")
+    @Test
+    void shouldGetPersonsAsNdjson() throws Exception {
+
+        Person otherPerson = Person.builder()
+                .firstName("firstname2")
+                .lastName("lastname2")
+                .address("person address")
+                .city("city")
+                .zip(59000)
+                .phone("001-001-002")
+                .email("person2@main.com")
+                .build();
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+
+        when(this.personService.getAllPerson()).thenReturn(List.of(person, otherPerson));
+
+        mockMvc.perform(get("/person/all").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(writer.writeValueAsString(person) + "\n" + writer.writeValueAsString(otherPerson) + "\n"));
+
+        verify(this.personService, times(1)).getAllPerson();
+
+    }
+
+
+    @DisplayName("Should get a page of people reduced to the given fields")
+    @Test
+    void shouldGetPersonsPageWithFields() throws Exception {
+
+        Cursor next = Cursor.decode("AAAAAAAAAAEAAAAAAAAAAg");
+        when(this.personService.getPersonsPage(null, 1)).thenReturn(new Page<>(List.of(person), next, true));
+
+        mockMvc.perform(get("/person/all").param("limit", "1").param("fields", "firstName,phone"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", next.encode()))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("cursor=" + next.encode())))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].firstName", is("firstname")))
+                .andExpect(jsonPath("$[0].phone", is("001-001-001")))
+                .andExpect(jsonPath("$[0].lastName").doesNotExist());
+
+        verify(this.personService, never()).getAllPerson();
+
+    }
+
+
+    @DisplayName("Should not get people with an unknown field")
+    @Test
+    void shouldNotGetPersonsWithUnknownField() throws Exception {
+
+        mockMvc.perform(get("/person/all").param("fields", "firstName,password"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(this.personService);
+
+    }
+
+
     @DisplayName("Should add a person")
     @Test
     void shouldAddPerson() throws Exception {
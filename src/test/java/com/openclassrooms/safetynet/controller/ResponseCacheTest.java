@@ -0,0 +1,74 @@
+package com.openclassrooms.safetynet.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    @DisplayName("Should drop a cached answer computed from another version")
+    @Test
+    void shouldDropAnswerOfAnotherVersion() {
+        ResponseCache responseCache = new ResponseCache(16 * 1024);
+        byte[] body = new byte[]{'[', ']'};
+
+        responseCache.put("/fire?address=1509 Culver St", "1f-2", body);
+
+        assertSame(body, responseCache.get("/fire?address=1509 Culver St", "1f-2"));
+        assertNull(responseCache.get("/fire?address=1509 Culver St", "1f-4"));
+        assertNull(responseCache.get("/fire?address=1509 Culver St", "1f-2"));
+        assertEquals(0, responseCache.getSize());
+        assertEquals(1, responseCache.getHits());
+        assertEquals(2, responseCache.getMisses());
+    }
+
+
+    @DisplayName("Should evict the least recently used answers beyond the capacity")
+    @Test
+    void shouldEvictLeastRecentlyUsedAnswers() {
+        ResponseCache responseCache = new ResponseCache(1000, 1);
+
+        responseCache.put("a", "1", new byte[300]);
+        responseCache.put("b", "1", new byte[300]);
+        responseCache.get("a", "1");
+        responseCache.put("c", "1", new byte[300]);
+        responseCache.put("d", "1", new byte[2000]);
+
+        assertNotNull(responseCache.get("a", "1"));
+        assertNull(responseCache.get("b", "1"));
+        assertNotNull(responseCache.get("c", "1"));
+        assertNull(responseCache.get("d", "1"));
+        assertTrue(responseCache.getSize() <= 1000);
+    }
+
+
+
+    @DisplayName("Should keep the answers of concurrent requests within the capacity")
+    @Test
+    void shouldKeepConcurrentAnswersWithinCapacity() throws InterruptedException {
+        ResponseCache responseCache = new ResponseCache(64 * 1024);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    String key = "/fire?address=" + (i % 500);
+                    if (responseCache.get(key, "1") == null) {
+                        responseCache.put(key, "1", new byte[100 + thread]);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(responseCache.getSize() <= 64 * 1024);
+        assertTrue(responseCache.getSize() > 0);
+        assertEquals(40000, responseCache.getHits() + responseCache.getMisses());
+        assertTrue(responseCache.getHits() > 0);
+    }
+
+}
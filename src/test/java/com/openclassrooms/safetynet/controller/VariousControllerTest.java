@@ -3,6 +3,7 @@ package com.openclassrooms.safetynet.controller;
 import com.openclassrooms.safetynet.dto.*;
 import com.openclassrooms.safetynet.exception.FireStationNotFoundException;
 import com.openclassrooms.safetynet.exception.MailsNotFoundException;
+import com.openclassrooms.safetynet.repository.QueryVersionRepository;
 import com.openclassrooms.safetynet.service.PersonService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -24,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -36,6 +38,12 @@ class VariousControllerTest {
     @MockBean
     private PersonService personService;
 
+    @MockBean
+    private QueryVersionRepository queryVersionRepository;
+
+    @MockBean
+    private ResponseCache responseCache;
+
     @Captor
     ArgumentCaptor<String> addressCaptor;
 
@@ -177,6 +185,28 @@ class VariousControllerTest {
     }
 
 
+    @DisplayName("Should not compute the list of email again if the version of the client is current")
+    @Test
+    void shouldNotGetCommunityEmailIfNotModified() throws Exception {
+
+        when(this.queryVersionRepository.getCityVersion("city")).thenReturn("1f-3");
+        when(this.personService.getMailsByCity(anyString())).thenReturn(List.of("firstmail@mail.com"));
+
+        mockMvc.perform(get("/communityEmail")
+                        .param("city", "city"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1f-3\""));
+
+        mockMvc.perform(get("/communityEmail")
+                        .param("city", "city")
+                        .header("If-None-Match", "\"1f-3\""))
+                .andExpect(status().isNotModified());
+
+        verify(this.personService, times(1)).getMailsByCity(anyString());
+
+    }
+
+
     @DisplayName("Should get people list and the number of the fire station in Fire case")
     @Test
     void shouldGetPeopleListInFireCase() throws Exception {
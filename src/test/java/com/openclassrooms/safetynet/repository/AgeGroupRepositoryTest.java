@@ -0,0 +1,209 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.utils.AgeEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgeGroupRepositoryTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    private DatasetHolder datasetHolder;
+    private PersonRepository personRepository;
+    private FireStationRepository fireStationRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private AgeGroupRepository ageGroupRepository;
+
+
+    @BeforeEach
+    public void init() {
+        datasetHolder = new DatasetHolder();
+        personRepository = new PersonRepository(datasetHolder);
+        fireStationRepository = new FireStationRepository(datasetHolder);
+        medicalRecordRepository = new MedicalRecordRepository(datasetHolder);
+        ageGroupRepository = new AgeGroupRepository(datasetHolder, ageEngineAt(TODAY));
+
+        List<Person> persons = List.of(
+                new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"),
+                new Person("Tenley", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "tenz@email.com"),
+                new Person("Roger", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"),
+                new Person("Jonanathan", "Marrack", "29 15th St", "Culver", 97451, "841-874-6513", "drk@email.com"));
+        List<MedicalRecord> medicalRecords = List.of(
+                new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of(), List.of()),
+                new MedicalRecord("Tenley", "Boyd", LocalDate.of(2005, 6, 2), List.of(), List.of()),
+                new MedicalRecord("Roger", "Boyd", LocalDate.of(2017, 9, 6), List.of(), List.of()),
+                new MedicalRecord("Jonanathan", "Marrack", LocalDate.of(1989, 1, 3), List.of(), List.of()));
+        List<FireStation> fireStations = List.of(new FireStation("1509 Culver St", 3), new FireStation("29 15th St", 2),
+                new FireStation("29 15th St", 3));
+        datasetHolder.replace(Dataset.of(new ArrayList<>(persons), new ArrayList<>(fireStations), new ArrayList<>(medicalRecords)));
+    }
+
+
+    @DisplayName("Should classify the residents of an address and a station as children or adults")
+    @Test
+    void shouldClassifyResidents() {
+
+        List<Resident> residents = ageGroupRepository.findResidentsByAddress("1509 Culver St");
+        List<Resident> children = ageGroupRepository.findChildrenByAddress("1509 Culver St");
+        AgeGroups ageGroups = ageGroupRepository.countAgeGroupsByStation(3);
+
+        assertEquals(3, residents.size());
+        assertEquals("Tenley", residents.get(1).getPerson().getFirstName());
+        assertEquals(LocalDate.of(2005, 6, 2), residents.get(1).getMedicalRecord().getBirthdate());
+        assertEquals(List.of("Tenley", "Roger"), children.stream().map(resident -> resident.getPerson().getFirstName()).collect(Collectors.toList()));
+        assertEquals(2, ageGroups.getChildren());
+        assertEquals(2, ageGroups.getAdults());
+        assertEquals(1, ageGroupRepository.countAgeGroupsByStation(2).getAdults());
+        assertEquals(List.of("John", "Tenley", "Roger", "Jonanathan"), ageGroupRepository.findResidentsByStation(3).stream()
+                .map(resident -> resident.getPerson().getFirstName()).collect(Collectors.toList()));
+        assertTrue(ageGroupRepository.findResidentsByStation(9).isEmpty());
+        assertTrue(ageGroupRepository.findResidentsByAddress("unknown").isEmpty());
+        assertEquals(0, ageGroupRepository.countAgeGroupsByStation(9).getChildren());
+        assertThrows(UnsupportedOperationException.class, () -> residents.remove(0));
+    }
+
+
+    @DisplayName("Should classify a child as an adult from the day after the child's 19th birthday")
+    @Test
+    void shouldClassifyChildAsAdultOnNextDay() {
+
+        AgeGroupRepository tomorrow = new AgeGroupRepository(datasetHolder, ageEngineAt(TODAY.plusDays(1)));
+
+        assertEquals(2, ageGroupRepository.countAgeGroupsByStation(3).getChildren());
+        assertEquals(1, tomorrow.countAgeGroupsByStation(3).getChildren());
+        assertEquals(List.of("Roger"), tomorrow.findChildrenByAddress("1509 Culver St").stream()
+                .map(resident -> resident.getPerson().getFirstName()).collect(Collectors.toList()));
+    }
+
+
+    @DisplayName("Should update the classification with the changes of the people, medical records and fire stations")
+    @Test
+    void shouldUpdateClassificationWithChanges() {
+
+        personRepository.updatePerson(new Person("Roger", "Boyd", "29 15th St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"));
+        assertEquals(2, ageGroupRepository.countAgeGroupsByStation(2).getAdults() + ageGroupRepository.countAgeGroupsByStation(2).getChildren());
+        assertEquals(2, ageGroupRepository.findResidentsByAddress("1509 Culver St").size());
+
+        medicalRecordRepository.updateMedicalRecord(new MedicalRecord("Roger", "Boyd", LocalDate.of(1950, 1, 1), List.of(), List.of()));
+        assertEquals(0, ageGroupRepository.countAgeGroupsByStation(2).getChildren());
+        assertTrue(ageGroupRepository.findChildrenByAddress("29 15th St").isEmpty());
+
+        medicalRecordRepository.deleteMedicalRecord(medicalRecordRepository.findMedicalRecordByFirstNameAndLastName("John", "Boyd"));
+        assertFalse(ageGroupRepository.findResidentsByAddress("1509 Culver St").get(0).hasMedicalRecord());
+        assertEquals(1, ageGroupRepository.countAgeGroupsByStation(3).getChildren());
+        assertEquals(2, ageGroupRepository.countAgeGroupsByStation(3).getAdults());
+
+        fireStationRepository.updateStationNumber(new FireStation("1509 Culver St", 2));
+        assertEquals(1, ageGroupRepository.countAgeGroupsByStation(2).getChildren());
+        assertEquals(2, ageGroupRepository.countAgeGroupsByStation(3).getAdults());
+        assertEquals(0, ageGroupRepository.countAgeGroupsByStation(3).getChildren());
+
+        fireStationRepository.addFireStation(new FireStation("29 15th St", 2));
+        fireStationRepository.deleteStation(new FireStation("29 15th St", 2));
+        assertEquals(2, ageGroupRepository.countAgeGroupsByStation(2).getAdults());
+    }
+
+
+    @DisplayName("Should keep the same classification as a rebuilt one after random changes")
+    @Test
+    void shouldMatchRebuiltClassificationAfterRandomChanges() {
+
+        Random random = new Random(3);
+        String[] addresses = {"1509 Culver St", "29 15th St", "834 Binoc Ave", "644 Gershwin Cir"};
+        String[] names = {"John", "Tenley", "Roger", "Jonanathan", "Felicia", "Allison"};
+
+        for (int i = 0; i < 2000; i++) {
+            String name = names[random.nextInt(names.length)];
+            String address = addresses[random.nextInt(addresses.length)];
+            switch (random.nextInt(6)) {
+                case 0:
+                    personRepository.updatePerson(new Person(name, "Boyd", address, "Culver", 97451, "841-874-6512", name + "@email.com"));
+                    break;
+                case 1:
+                    Person person = personRepository.findPersonByFirstNameAndLastName(name, "Boyd");
+                    if (person != null) {
+                        personRepository.deletePerson(person);
+                    }
+                    break;
+                case 2:
+                    LocalDate birthdate = random.nextInt(10) == 0 ? null : TODAY.minusDays(random.nextInt(40 * 365));
+                    medicalRecordRepository.updateMedicalRecord(new MedicalRecord(name, "Boyd", birthdate, List.of(), List.of()));
+                    break;
+                case 3:
+                    MedicalRecord medicalRecord = medicalRecordRepository.findMedicalRecordByFirstNameAndLastName(name, "Boyd");
+                    if (medicalRecord != null) {
+                        medicalRecordRepository.deleteMedicalRecord(medicalRecord);
+                    }
+                    break;
+                case 4:
+                    fireStationRepository.addFireStation(new FireStation(address, 1 + random.nextInt(3)));
+                    break;
+                default:
+                    FireStation fireStation = fireStationRepository.getFireStationByAddress(address);
+                    if (fireStation != null) {
+                        fireStationRepository.deleteStation(fireStation);
+                    }
+                    break;
+            }
+            assertSameClassification(datasetHolder.latest(), addresses);
+        }
+    }
+
+
+    private void assertSameClassification(Dataset dataset, String[] addresses) {
+        AgeGroupIndex rebuilt = AgeGroupIndex.of(dataset.getPersonStore(), dataset.getFireStationStore(), dataset.getMedicalRecordStore());
+        int[] days = {AgeEngine.dateKey(TODAY), AgeEngine.dateKey(TODAY.plusYears(10))};
+        for (int station = 1; station <= 3; station++) {
+            for (int day : days) {
+                AgeGroups expected = rebuilt.countAgeGroupsByStation(station, day);
+                AgeGroups actual = dataset.getAgeGroupIndex().countAgeGroupsByStation(station, day);
+                assertEquals(expected.getChildren(), actual.getChildren());
+                assertEquals(expected.getAdults(), actual.getAdults());
+            }
+            List<Resident> expectedResidents = rebuilt.getResidentsByStation(station);
+            List<Resident> actualResidents = dataset.getAgeGroupIndex().getResidentsByStation(station);
+            assertEquals(expectedResidents.size(), actualResidents.size());
+            assertEquals(membersOf(expectedResidents), membersOf(actualResidents));
+        }
+        for (String address : addresses) {
+            List<Resident> residents = dataset.getAgeGroupIndex().getResidentsByAddress(address);
+            assertEquals(dataset.getPersonStore().findPersonsByAddress(address),
+                    residents.stream().map(Resident::getPerson).collect(Collectors.toList()));
+            for (Resident resident : residents) {
+                assertSame(dataset.getMedicalRecordStore().findMedicalRecordByFirstNameAndLastName(resident.getPerson().getFirstName(), resident.getPerson().getLastName()),
+                        resident.getMedicalRecord());
+            }
+        }
+    }
+
+
+    /**
+     * The members of a station with their medical records, whatever their order
+     */
+    private static Set<List<Object>> membersOf(List<Resident> residents) {
+        return residents.stream().map(resident -> Arrays.<Object>asList(resident.getPerson(), resident.getMedicalRecord())).collect(Collectors.toSet());
+    }
+
+
+    private static AgeEngine ageEngineAt(LocalDate date) {
+        return new AgeEngine(Clock.fixed(date.atStartOfDay(ZONE).toInstant(), ZONE));
+    }
+
+}
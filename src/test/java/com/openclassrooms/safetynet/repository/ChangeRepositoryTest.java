@@ -0,0 +1,116 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeRepositoryTest {
+
+    private DatasetHolder datasetHolder;
+    private PersonRepository personRepository;
+    private FireStationRepository fireStationRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private ChangeRepository changeRepository;
+    private Person person;
+
+
+    @BeforeEach
+    public void init() {
+        datasetHolder = new DatasetHolder();
+        personRepository = new PersonRepository(datasetHolder);
+        fireStationRepository = new FireStationRepository(datasetHolder);
+        medicalRecordRepository = new MedicalRecordRepository(datasetHolder);
+        changeRepository = new ChangeRepository(datasetHolder, personRepository, fireStationRepository, medicalRecordRepository, 3);
+        person = new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com");
+        datasetHolder.replace(Dataset.of(new ArrayList<>(List.of(person)), new ArrayList<>(), new ArrayList<>()));
+    }
+
+
+    @DisplayName("Should give the changes after a sequence in the order they were made")
+    @Test
+    void shouldFindChangesSince() {
+
+        Changes start = changeRepository.findChangesSince(0, null);
+        long epoch = Long.parseUnsignedLong(start.getEpoch(), 16);
+        FireStation fireStation = new FireStation("1509 Culver St", 3);
+        MedicalRecord medicalRecord = new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of(), List.of());
+        Person updatedPerson = new Person("John", "Boyd", "29 15th St", "Culver", 97451, "841-874-6512", "jaboyd@email.com");
+
+        Changes upToDate = changeRepository.findChangesSince(start.getLastSequence(), epoch);
+        fireStationRepository.addFireStation(fireStation);
+        medicalRecordRepository.addMedicalRecord(medicalRecord);
+        personRepository.updatePerson(updatedPerson);
+        Changes changes = changeRepository.findChangesSince(start.getLastSequence(), epoch);
+        Changes lastChange = changeRepository.findChangesSince(changes.getChanges().get(1).getSequence(), epoch);
+
+        assertTrue(start.isResync());
+        assertFalse(upToDate.isResync());
+        assertTrue(upToDate.getChanges().isEmpty());
+        assertFalse(changes.isResync());
+        assertEquals(List.of("fireStation", "medicalRecord", "person"),
+                changes.getChanges().stream().map(Change::getEntity).collect(Collectors.toList()));
+        assertEquals(Mutation.Type.UPDATE, changes.getChanges().get(2).getType());
+        assertSame(person, changes.getChanges().get(2).getPrevious());
+        assertSame(updatedPerson, changes.getChanges().get(2).getCurrent());
+        assertEquals(datasetHolder.latest().getVersion(), changes.getLastSequence());
+        assertEquals(List.of(changes.getChanges().get(2)), lastChange.getChanges());
+        assertEquals(changes.getLastSequence(), lastChange.getLastSequence());
+    }
+
+
+    @DisplayName("Should ask to resync once the changes after the sequence have left the ring")
+    @Test
+    void shouldAskToResyncAfterEviction() {
+
+        Changes start = changeRepository.findChangesSince(0, null);
+        for (int i = 0; i < 4; i++) {
+            fireStationRepository.addFireStation(new FireStation("address " + i, i));
+        }
+
+        Changes evicted = changeRepository.findChangesSince(start.getLastSequence(), null);
+        Changes kept = changeRepository.findChangesSince(start.getLastSequence() + 1, null);
+
+        assertTrue(evicted.isResync());
+        assertEquals(datasetHolder.latest().getVersion(), evicted.getLastSequence());
+        assertFalse(kept.isResync());
+        assertEquals(3, kept.getChanges().size());
+        assertTrue(changeRepository.findChangesSince(datasetHolder.latest().getVersion() + 1, null).isResync());
+    }
+
+
+    @DisplayName("Should ask the clients knowing an older epoch to resync once the data are reloaded")
+    @Test
+    void shouldAskToResyncAfterReload() {
+
+        personRepository.deletePerson(person);
+        Changes beforeReload = changeRepository.findChangesSince(0, null);
+        long epoch = Long.parseUnsignedLong(beforeReload.getEpoch(), 16);
+
+        fireStationRepository.setFireStations(List.of(new FireStation("1509 Culver St", 3)));
+        Changes afterReload = changeRepository.findChangesSince(beforeReload.getLastSequence(), epoch);
+        long newEpoch = Long.parseUnsignedLong(afterReload.getEpoch(), 16);
+        Changes upToDate = changeRepository.findChangesSince(afterReload.getLastSequence(), newEpoch);
+        personRepository.addPerson(person);
+        Changes changes = changeRepository.findChangesSince(afterReload.getLastSequence(), newEpoch);
+
+        assertTrue(afterReload.isResync());
+        assertNotEquals(epoch, newEpoch);
+        assertFalse(upToDate.isResync());
+        assertTrue(upToDate.getChanges().isEmpty());
+        assertFalse(changes.isResync());
+        assertEquals(1, changes.getChanges().size());
+        assertSame(person, changes.getChanges().get(0).getCurrent());
+        assertTrue(changeRepository.findChangesSince(beforeReload.getLastSequence(), null).isResync());
+    }
+
+}
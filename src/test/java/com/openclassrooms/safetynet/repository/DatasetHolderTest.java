@@ -0,0 +1,103 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetHolderTest {
+
+    private DatasetHolder datasetHolder;
+    private PersonRepository personRepository;
+    private FireStationRepository fireStationRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private Person person;
+    private MedicalRecord medicalRecord;
+
+
+    @BeforeEach
+    public void init() {
+        datasetHolder = new DatasetHolder();
+        personRepository = new PersonRepository(datasetHolder);
+        fireStationRepository = new FireStationRepository(datasetHolder);
+        medicalRecordRepository = new MedicalRecordRepository(datasetHolder);
+
+        person = new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com");
+        medicalRecord = new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of("aznol:350mg"), List.of());
+        datasetHolder.replace(Dataset.of(new ArrayList<>(List.of(person)), new ArrayList<>(List.of(new FireStation("1509 Culver St", 3))),
+                new ArrayList<>(List.of(medicalRecord))));
+    }
+
+
+    @DisplayName("Should publish a new version of the data for each change")
+    @Test
+    void shouldPublishNewVersionForEachChange() {
+
+        long version = datasetHolder.latest().getVersion();
+
+        personRepository.addPerson(new Person("Jacob", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6513", "drk@email.com"));
+        fireStationRepository.updateStationNumber(new FireStation("1509 Culver St", 4));
+        medicalRecordRepository.deleteMedicalRecord(medicalRecord);
+
+        assertEquals(version + 3, datasetHolder.latest().getVersion());
+        assertEquals(2, datasetHolder.latest().getPersonStore().getPersons().size());
+        assertEquals(4, datasetHolder.latest().getFireStationStore().getFireStationByAddress("1509 Culver St").getStation());
+        assertTrue(datasetHolder.latest().getMedicalRecordStore().getMedicalRecords().isEmpty());
+    }
+
+
+    @DisplayName("Should read the pinned version of the data until it is unpinned")
+    @Test
+    void shouldReadPinnedVersion() throws Exception {
+
+        Dataset pinned = datasetHolder.pin();
+        try {
+            // changes made by another thread while this thread reads
+            CompletableFuture.runAsync(() -> {
+                personRepository.deletePerson(person);
+                medicalRecordRepository.deleteMedicalRecord(medicalRecord);
+                fireStationRepository.deleteStation(new FireStation("1509 Culver St", 3));
+            }).get();
+
+            assertSame(pinned, datasetHolder.read());
+            assertEquals(person, personRepository.findPersonByFirstNameAndLastName("John", "Boyd"));
+            assertEquals(medicalRecord, medicalRecordRepository.findMedicalRecordByFirstNameAndLastName("John", "Boyd"));
+            assertEquals(3, fireStationRepository.getFireStationByAddress("1509 Culver St").getStation());
+            assertEquals(pinned.getVersion() + 3, datasetHolder.latest().getVersion());
+        } finally {
+            datasetHolder.unpin();
+        }
+
+        assertNull(personRepository.findPersonByFirstNameAndLastName("John", "Boyd"));
+        assertNull(medicalRecordRepository.findMedicalRecordByFirstNameAndLastName("John", "Boyd"));
+        assertNull(fireStationRepository.getFireStationByAddress("1509 Culver St"));
+    }
+
+
+    @DisplayName("Should apply a change to the latest version even when the writing thread has pinned a version")
+    @Test
+    void shouldWriteOnLatestVersion() throws Exception {
+
+        datasetHolder.pin();
+        try {
+            CompletableFuture.runAsync(() -> personRepository.addPerson(
+                    new Person("Jacob", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6513", "drk@email.com"))).get();
+            personRepository.addPerson(new Person("Tenley", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "tenz@email.com"));
+        } finally {
+            datasetHolder.unpin();
+        }
+
+        assertEquals(3, personRepository.getPersons().size());
+        assertNotNull(personRepository.findPersonByFirstNameAndLastName("Jacob", "Boyd"));
+    }
+
+}
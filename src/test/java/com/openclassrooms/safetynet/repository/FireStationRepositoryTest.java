@@ -87,11 +87,11 @@ class FireStationRepositoryTest {
 
         assertNotNull(result);
 
-        assertEquals(5, this.fireStationList.size());
+        assertEquals(5, this.fireStationRepository.getFireStations().size());
         assertEquals(5, result.getStation());
         assertEquals("third address", result.getAddress());
-        assertEquals(5, this.fireStationList.get(4).getStation());
-        assertEquals("third address", this.fireStationList.get(4).getAddress());
+        assertEquals(5, this.fireStationRepository.getFireStations().get(4).getStation());
+        assertEquals("third address", this.fireStationRepository.getFireStations().get(4).getAddress());
 
     }
 
@@ -132,8 +132,8 @@ class FireStationRepositoryTest {
     void deleteStation() {
         this.fireStationRepository.deleteStation(fireStation4);
 
-        assertEquals(3, this.fireStationList.size());
-        assertFalse(this.fireStationList.contains(fireStation4));
+        assertEquals(3, this.fireStationRepository.getFireStations().size());
+        assertFalse(this.fireStationRepository.getFireStations().contains(fireStation4));
     }
 
 
@@ -145,13 +145,28 @@ class FireStationRepositoryTest {
 
         this.fireStationRepository.deleteStations(fireStationsToDelete);
 
-        assertEquals(2, this.fireStationList.size());
-        assertFalse(this.fireStationList.contains(fireStation1));
-        assertFalse(this.fireStationList.contains(fireStation3));
+        assertEquals(2, this.fireStationRepository.getFireStations().size());
+        assertFalse(this.fireStationRepository.getFireStations().contains(fireStation1));
+        assertFalse(this.fireStationRepository.getFireStations().contains(fireStation3));
 
     }
 
 
+    @DisplayName("Should delete a fire station once when the delete is repeated")
+    @Test
+    void deleteStationOnce() {
+        List<Mutation<FireStation>> mutations = new ArrayList<>();
+        this.fireStationRepository.addMutationListener(mutations::add);
+
+        this.fireStationRepository.deleteStation(fireStation4);
+        this.fireStationRepository.deleteStations(List.of(fireStation1, fireStation4));
+        this.fireStationRepository.deleteStation(FireStation.builder().station(2).address("third address").build());
+
+        assertEquals(List.of(new Mutation<>(Mutation.Type.DELETE, fireStation4, null), new Mutation<>(Mutation.Type.DELETE, fireStation1, null)), mutations);
+        assertEquals(List.of(fireStation2, fireStation3), this.fireStationRepository.getFireStations());
+    }
+
+
     @DisplayName("Should update fire station")
     @Test
     void updateStationNumber() {
@@ -167,12 +182,65 @@ class FireStationRepositoryTest {
 
         assertEquals(10, result.getStation());
         assertEquals("first address", result.getAddress());
-        assertEquals(10, this.fireStationList.get(0).getStation());
-        assertEquals("first address", this.fireStationList.get(0).getAddress());
+        assertEquals(10, this.fireStationRepository.getFireStations().get(0).getStation());
+        assertEquals("first address", this.fireStationRepository.getFireStations().get(0).getAddress());
+
+    }
+
+
+    @DisplayName("Should move the address to the new station's number when the fire station is updated")
+    @Test
+    void getFireStationsByNumberAfterUpdate() {
+
+        FireStation fireStationToUpdate = FireStation.builder()
+                .address("fourth address")
+                .station(2)
+                .build();
+
+        this.fireStationRepository.updateStationNumber(fireStationToUpdate);
+
+        List<FireStation> stationOne = this.fireStationRepository.getFireStationsByNumber(1);
+        List<FireStation> stationTwo = this.fireStationRepository.getFireStationsByNumber(2);
+
+        assertEquals(List.of(fireStation1), stationOne);
+        assertEquals(2, stationTwo.size());
+        assertEquals("second address", stationTwo.get(0).getAddress());
+        assertEquals("fourth address", stationTwo.get(1).getAddress());
+        assertEquals(2, this.fireStationRepository.getFireStationByAddress("fourth address").getStation());
+
+    }
+
+
+    @DisplayName("Should not get deleted fire stations by number")
+    @Test
+    void getFireStationsByNumberAfterDelete() {
+
+        this.fireStationRepository.deleteStations(List.of(fireStation1, fireStation4));
+
+        List<FireStation> result = this.fireStationRepository.getFireStationsByNumber(1);
+
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+        assertNull(this.fireStationRepository.getFireStationByAddress("first address"));
 
     }
 
 
+    @DisplayName("Should get fire station by number and address whatever the case of the address")
+    @Test
+    void shouldGetFireStationByNumberAndAddressIgnoringCase() {
+
+        FireStation fireStationToRetrieve = FireStation.builder()
+                .station(3)
+                .address("Third Address")
+                .build();
+
+        FireStation result = this.fireStationRepository.getFireStationByNumberAndAddress(fireStationToRetrieve);
+
+        assertEquals(fireStation3, result);
+    }
+
+
     @DisplayName("Should get fire station by number and address")
     @Test
     void shouldGetFireStationByNumberAndAddress() {
@@ -203,4 +271,20 @@ class FireStationRepositoryTest {
         assertNull(result);
     }
 
-}
\ No newline at end of file
+
+
+    @DisplayName("Should index a fire station without address")
+    @Test
+    void shouldIndexFireStationWithoutAddress() {
+
+        FireStation fireStation = new FireStation(null, 3);
+
+        this.fireStationRepository.addFireStation(fireStation);
+
+        assertEquals(fireStation, this.fireStationRepository.getFireStationByAddress(null));
+        this.fireStationRepository.deleteStation(fireStation);
+        assertNull(this.fireStationRepository.getFireStationByAddress(null));
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.openclassrooms.safetynet.repository;
 
 import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -77,10 +78,10 @@ class MedicalRecordRepositoryTest {
         MedicalRecord result = this.medicalRecordRepository.addMedicalRecord(medicalRecordToAdd);
 
         assertNotNull(result);
-        assertEquals(3, this.medicalRecordList.size());
+        assertEquals(3, this.medicalRecordRepository.getMedicalRecords().size());
 
         assertEquals(medicalRecordToAdd, result);
-        assertEquals(medicalRecordToAdd, this.medicalRecordList.get(2));
+        assertEquals(medicalRecordToAdd, this.medicalRecordRepository.getMedicalRecords().get(2));
     }
 
 
@@ -90,8 +91,8 @@ class MedicalRecordRepositoryTest {
 
         this.medicalRecordRepository.deleteMedicalRecord(medicalRecord2);
 
-        assertEquals(1, this.medicalRecordList.size());
-        assertFalse(this.medicalRecordList.contains(medicalRecord2));
+        assertEquals(1, this.medicalRecordRepository.getMedicalRecords().size());
+        assertFalse(this.medicalRecordRepository.getMedicalRecords().contains(medicalRecord2));
     }
 
 
@@ -112,7 +113,7 @@ class MedicalRecordRepositoryTest {
         assertNotNull(result);
 
         assertEquals(medicalRecordToUpdate, result);
-        assertEquals(medicalRecordToUpdate, this.medicalRecordList.get(0));
+        assertEquals(medicalRecordToUpdate, this.medicalRecordRepository.getMedicalRecords().get(0));
     }
 
     @DisplayName("Should find a medical record by first and last name")
@@ -127,4 +128,34 @@ class MedicalRecordRepositoryTest {
 
     }
 
+
+    @DisplayName("Should find a medical record by first and last name whatever the case")
+    @Test
+    void findMedicalRecordByFirstNameAndLastNameIgnoringCase() {
+
+        MedicalRecord result = this.medicalRecordRepository.findMedicalRecordByFirstNameAndLastName("FIRSTNAME1", "LastName1");
+
+        assertEquals(medicalRecord1, result);
+
+    }
+
+
+    @DisplayName("Should find the medical records of several people")
+    @Test
+    void findMedicalRecordsByPersons() {
+
+        Person person1 = Person.builder().firstName("firstname1").lastName("lastname1").build();
+        Person person2 = Person.builder().firstName("firstname2").lastName("lastname2").build();
+        Person unknownPerson = Person.builder().firstName("firstname3").lastName("lastname3").build();
+
+        List<MedicalRecord> result = this.medicalRecordRepository.findMedicalRecordsByPersons(List.of(person2, unknownPerson, person1));
+
+        assertNotNull(result);
+        assertEquals(3, result.size());
+        assertEquals(medicalRecord2, result.get(0));
+        assertNull(result.get(1));
+        assertEquals(medicalRecord1, result.get(2));
+
+    }
+
 }
\ No newline at end of file
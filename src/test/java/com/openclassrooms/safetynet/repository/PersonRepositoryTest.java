@@ -1,5 +1,6 @@
 package com.openclassrooms.safetynet.repository;
 
+import com.openclassrooms.safetynet.model.FireStation;
 import com.openclassrooms.safetynet.model.Person;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -7,9 +8,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -79,6 +84,30 @@ class PersonRepositoryTest {
     }
 
 
+    @DisplayName("Should find a person by first and last name whatever the case")
+    @Test
+    void shouldFindPersonByFirstNameAndLastNameIgnoringCase() {
+
+        Person result = this.personRepository.findPersonByFirstNameAndLastName("FirstName2", "LASTNAME2");
+
+        assertNotNull(result);
+
+        assertEquals(person2, result);
+
+    }
+
+
+    @DisplayName("Should not find an unknown person by first and last name")
+    @Test
+    void shouldNotFindPersonByFirstNameAndLastName() {
+
+        Person result = this.personRepository.findPersonByFirstNameAndLastName("firstname1", "lastname2");
+
+        assertNull(result);
+
+    }
+
+
     @DisplayName("Should find people by address")
     @Test
     void ShouldFindPersonsByAddress() {
@@ -92,6 +121,273 @@ class PersonRepositoryTest {
     }
 
 
+    @DisplayName("Should find people living at one of the addresses")
+    @Test
+    void shouldFindPersonsByAddresses() {
+
+        List<Person> result = this.personRepository.findPersonsByAddresses(List.of("person address 2", "unknown address", "person address 1", "person address 2"));
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(person2, result.get(0));
+        assertEquals(person1, result.get(1));
+    }
+
+
+    @DisplayName("Should not find anybody at an unknown address")
+    @Test
+    void shouldNotFindPersonsByAddress() {
+
+        List<Person> result = this.personRepository.findPersonsByAddress("unknown address");
+
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+    }
+
+
+    @DisplayName("Should move a person to the new address when the address is updated")
+    @Test
+    void shouldFindPersonsByAddressAfterAddressUpdate() {
+
+        Person personToUpdate = Person.builder()
+                .firstName("firstname1")
+                .lastName("lastname1")
+                .address("person address 2")
+                .city("city")
+                .zip(59000)
+                .phone("001-001-001")
+                .email("person1@mail.com")
+                .build();
+
+        this.personRepository.updatePerson(personToUpdate);
+
+        assertTrue(this.personRepository.findPersonsByAddress("person address 1").isEmpty());
+        List<Person> result = this.personRepository.findPersonsByAddress("person address 2");
+        assertEquals(2, result.size());
+        assertTrue(result.contains(person2));
+        assertTrue(result.contains(personToUpdate));
+    }
+
+
+    @DisplayName("Should find the other members of a household and follow the changes of the household")
+    @Test
+    void shouldFindOtherFamilyMembers() {
+
+        Person child = Person.builder()
+                .firstName("child1")
+                .lastName("lastname1")
+                .address("person address 1")
+                .city("city")
+                .zip(59000)
+                .phone("001-001-001")
+                .email("person1@mail.com")
+                .build();
+        Person neighbour = Person.builder()
+                .firstName("neighbour")
+                .lastName("lastname3")
+                .address("person address 1")
+                .city("city")
+                .zip(59000)
+                .phone("001-001-004")
+                .email("neighbour@mail.com")
+                .build();
+        this.personRepository.addPerson(child);
+        this.personRepository.addPerson(neighbour);
+
+        List<Person> result = this.personRepository.findOtherFamilyMembers(child);
+
+        assertEquals(List.of(person1), result);
+        assertEquals(List.of(child), this.personRepository.findOtherFamilyMembers(person1));
+        assertTrue(this.personRepository.findOtherFamilyMembers(neighbour).isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> result.add(person2));
+
+        this.personRepository.updatePerson(Person.builder()
+                .firstName("firstname1")
+                .lastName("lastname1")
+                .address("person address 2")
+                .city("city")
+                .zip(59000)
+                .phone("001-001-001")
+                .email("person1@mail.com")
+                .build());
+
+        assertTrue(this.personRepository.findOtherFamilyMembers(child).isEmpty());
+        assertEquals(List.of(person1), result);
+    }
+
+
+    @DisplayName("Should find the distinct emails of a city until the last person with an email leaves the city")
+    @Test
+    void shouldFindEmailsByCity() {
+
+        Person sameEmail = Person.builder()
+                .firstName("firstname3")
+                .lastName("lastname1")
+                .address("person address 1")
+                .city("city")
+                .zip(59000)
+                .phone("001-001-003")
+                .email("person1@mail.com")
+                .build();
+        this.personRepository.addPerson(sameEmail);
+
+        List<String> result = this.personRepository.findEmailsByCity("city");
+
+        assertEquals(List.of("person1@mail.com", "person2@mail.com"), result);
+        assertThrows(UnsupportedOperationException.class, () -> result.add("other@mail.com"));
+        assertTrue(this.personRepository.findEmailsByCity("unknown").isEmpty());
+
+        this.personRepository.deletePerson(person1);
+        assertEquals(List.of("person1@mail.com", "person2@mail.com"), this.personRepository.findEmailsByCity("city"));
+
+        this.personRepository.updatePerson(Person.builder()
+                .firstName("firstname3")
+                .lastName("lastname1")
+                .address("person address 1")
+                .city("other city")
+                .zip(59000)
+                .phone("001-001-003")
+                .email("person3@mail.com")
+                .build());
+        assertEquals(List.of("person2@mail.com"), this.personRepository.findEmailsByCity("city"));
+        assertEquals(List.of("person3@mail.com"), this.personRepository.findEmailsByCity("other city"));
+
+        this.personRepository.deletePerson(person2);
+        assertTrue(this.personRepository.findEmailsByCity("city").isEmpty());
+        assertEquals(List.of("person1@mail.com", "person2@mail.com"), result);
+    }
+
+
+    @DisplayName("Should find the distinct phone numbers of a station and follow the changes of the people and stations")
+    @Test
+    void shouldFindPhonesByStationNumber() {
+
+        DatasetHolder datasetHolder = new DatasetHolder();
+        PersonRepository personRepository = new PersonRepository(datasetHolder);
+        FireStationRepository fireStationRepository = new FireStationRepository(datasetHolder);
+        personRepository.setPersons(personList);
+        fireStationRepository.setFireStations(new ArrayList<>(List.of(new FireStation("person address 1", 1), new FireStation("person address 2", 1))));
+        personRepository.addPerson(Person.builder()
+                .firstName("firstname3")
+                .lastName("lastname1")
+                .address("person address 1")
+                .city("city")
+                .zip(59000)
+                .phone("001-001-001")
+                .email("person3@mail.com")
+                .build());
+
+        List<String> result = personRepository.findPhonesByStationNumber(1);
+
+        assertEquals(List.of("001-001-001", "001-001-002"), result);
+        assertThrows(UnsupportedOperationException.class, () -> result.add("001-001-009"));
+
+        personRepository.deletePerson(person1);
+        assertEquals(List.of("001-001-001", "001-001-002"), personRepository.findPhonesByStationNumber(1));
+
+        fireStationRepository.updateStationNumber(new FireStation("person address 2", 2));
+        assertEquals(List.of("001-001-001"), personRepository.findPhonesByStationNumber(1));
+        assertEquals(List.of("001-001-002"), personRepository.findPhonesByStationNumber(2));
+
+        personRepository.updatePerson(Person.builder()
+                .firstName("firstname3")
+                .lastName("lastname1")
+                .address("person address 2")
+                .city("city")
+                .zip(59000)
+                .phone("001-001-003")
+                .email("person3@mail.com")
+                .build());
+        assertTrue(personRepository.findPhonesByStationNumber(1).isEmpty());
+        assertEquals(List.of("001-001-002", "001-001-003"), personRepository.findPhonesByStationNumber(2));
+        assertEquals(List.of("001-001-001", "001-001-002"), result);
+    }
+
+
+    @DisplayName("Should keep the same phone numbers as a rebuilt index after random changes")
+    @Test
+    void shouldMatchRebuiltPhonesAfterRandomChanges() {
+
+        DatasetHolder datasetHolder = new DatasetHolder();
+        PersonRepository personRepository = new PersonRepository(datasetHolder);
+        FireStationRepository fireStationRepository = new FireStationRepository(datasetHolder);
+        Random random = new Random(5);
+
+        for (int i = 0; i < 2000; i++) {
+            String firstName = "firstname" + random.nextInt(8);
+            String address = "person address " + random.nextInt(4);
+            switch (random.nextInt(4)) {
+                case 0:
+                    personRepository.updatePerson(Person.builder().firstName(firstName).lastName("lastname").address(address)
+                            .city("city").zip(59000).phone("001-001-00" + random.nextInt(5)).email("person@mail.com").build());
+                    break;
+                case 1:
+                    Person person = personRepository.findPersonByFirstNameAndLastName(firstName, "lastname");
+                    if (person != null) {
+                        personRepository.deletePerson(person);
+                    }
+                    break;
+                case 2:
+                    fireStationRepository.addFireStation(new FireStation(address, 1 + random.nextInt(3)));
+                    break;
+                default:
+                    FireStation fireStation = fireStationRepository.getFireStationByAddress(address);
+                    if (fireStation != null) {
+                        fireStationRepository.deleteStation(fireStation);
+                    }
+                    break;
+            }
+            Dataset dataset = datasetHolder.latest();
+            PhoneIndex rebuilt = PhoneIndex.of(dataset.getPersonStore(), dataset.getFireStationStore());
+            for (int station = 1; station <= 3; station++) {
+                assertEquals(new HashSet<>(rebuilt.getPhonesByStation(station)), new HashSet<>(personRepository.findPhonesByStationNumber(station)));
+                assertEquals(rebuilt.getPhonesByStation(station).size(), personRepository.findPhonesByStationNumber(station).size());
+            }
+        }
+    }
+
+
+    @DisplayName("Should read the people page by page and keep the cursor valid across the changes")
+    @Test
+    void shouldReadPersonsPageByPageAcrossChanges() {
+
+        Person person3 = Person.builder().firstName("firstname3").lastName("lastname3").address("person address 3")
+                .city("city").zip(59000).phone("001-001-003").email("person3@mail.com").build();
+
+        Page<Person> firstPage = personRepository.getPersonsPage(null, 1);
+        personRepository.deletePerson(person1);
+        personRepository.addPerson(person3);
+        Person updatedPerson2 = Person.builder().firstName("firstname2").lastName("lastname2").address("new address")
+                .city("city").zip(59100).phone("001-001-002").email("person2@mail.com").build();
+        personRepository.updatePerson(updatedPerson2);
+        Page<Person> secondPage = personRepository.getPersonsPage(Cursor.decode(firstPage.getNext().encode()), 10);
+        Page<Person> emptyPage = personRepository.getPersonsPage(secondPage.getNext(), 10);
+        personRepository.addPerson(person1);
+        Page<Person> lastPage = personRepository.getPersonsPage(emptyPage.getNext(), 10);
+
+        assertEquals(List.of(person1), firstPage.getElements());
+        assertTrue(firstPage.hasMore());
+        assertEquals(List.of(updatedPerson2, person3), secondPage.getElements());
+        assertFalse(secondPage.hasMore());
+        assertTrue(emptyPage.getElements().isEmpty());
+        assertEquals(secondPage.getNext().encode(), emptyPage.getNext().encode());
+        assertEquals(List.of(person1), lastPage.getElements());
+    }
+
+
+    @DisplayName("Should reject a cursor given before the people were reloaded")
+    @Test
+    void shouldRejectExpiredCursor() {
+
+        Cursor cursor = personRepository.getPersonsPage(null, 1).getNext();
+        personRepository.setPersons(personList);
+
+        assertThrows(IllegalArgumentException.class, () -> personRepository.getPersonsPage(cursor, 1));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode("AAAA"));
+    }
+
+
     @DisplayName("Should add a person")
     @Test
     void shouldAddPerson() {
@@ -109,10 +405,12 @@ class PersonRepositoryTest {
         Person result = this.personRepository.addPerson(personToAdd);
 
         assertNotNull(result);
-        assertEquals(3, this.personList.size());
+        assertEquals(3, this.personRepository.getPersons().size());
 
         assertEquals(personToAdd, result);
-        assertEquals(personToAdd, this.personList.get(2));
+        assertEquals(personToAdd, this.personRepository.getPersons().get(2));
+        assertEquals(personToAdd, this.personRepository.findPersonByFirstNameAndLastName("firstname3", "lastname3"));
+        assertEquals(List.of(personToAdd), this.personRepository.findPersonsByAddress("person address 3"));
 
     }
 
@@ -123,12 +421,45 @@ class PersonRepositoryTest {
 
         this.personRepository.deletePerson(person1);
 
-        assertEquals(1, this.personList.size());
-        assertFalse(this.personList.contains(person1));
+        assertEquals(1, this.personRepository.getPersons().size());
+        assertFalse(this.personRepository.getPersons().contains(person1));
+        assertNull(this.personRepository.findPersonByFirstNameAndLastName("firstname1", "lastname1"));
+        assertTrue(this.personRepository.findPersonsByAddress("person address 1").isEmpty());
 
     }
 
 
+    @DisplayName("Should delete a person once when the delete is repeated")
+    @Test
+    void shouldDeletePersonOnce() {
+
+        DatasetHolder datasetHolder = new DatasetHolder();
+        PersonRepository personRepository = new PersonRepository(datasetHolder);
+        FireStationRepository fireStationRepository = new FireStationRepository(datasetHolder);
+        personRepository.setPersons(personList);
+        fireStationRepository.setFireStations(new ArrayList<>(List.of(new FireStation("person address 1", 1))));
+        personRepository.addPerson(Person.builder()
+                .firstName("firstname3")
+                .lastName("lastname1")
+                .address("person address 1")
+                .city("city")
+                .zip(59000)
+                .phone("001-001-001")
+                .email("person1@mail.com")
+                .build());
+        List<Mutation<Person>> mutations = new ArrayList<>();
+        personRepository.addMutationListener(mutations::add);
+
+        personRepository.deletePerson(person1);
+        personRepository.deletePerson(person1);
+
+        assertEquals(1, mutations.size());
+        assertEquals(List.of("person1@mail.com", "person2@mail.com"), personRepository.findEmailsByCity("city"));
+        assertEquals(List.of("001-001-001"), personRepository.findPhonesByStationNumber(1));
+        assertEquals(2, personRepository.getPersons().size());
+    }
+
+
     @DisplayName("Should update a person")
     @Test
     void shouldUpdatePerson() {
@@ -148,8 +479,87 @@ class PersonRepositoryTest {
         assertNotNull(result);
 
         assertEquals("111-111-111", result.getPhone());
-        assertEquals("111-111-111", this.personList.get(0).getPhone());
+        assertEquals("111-111-111", this.personRepository.getPersons().get(0).getPhone());
+        assertEquals("111-111-111", this.personRepository.findPersonByFirstNameAndLastName("firstname1", "lastname1").getPhone());
+
+    }
+
+
+    @DisplayName("Should notify the listeners of each change")
+    @Test
+    void shouldNotifyMutationListeners() {
+
+        List<Mutation<Person>> mutations = new ArrayList<>();
+        this.personRepository.addMutationListener(mutations::add);
+        Person updatedPerson = new Person("firstname1", "lastname1", "person address 1", "city", 59000, "111-111-111", "person1@mail.com");
+
+        this.personRepository.updatePerson(updatedPerson);
+        this.personRepository.deletePerson(person2);
+        this.personRepository.setPersons(new ArrayList<>());
+
+        assertEquals(2, mutations.size());
+        assertEquals(new Mutation<>(Mutation.Type.UPDATE, person1, updatedPerson), mutations.get(0));
+        assertEquals(new Mutation<>(Mutation.Type.DELETE, person2, null), mutations.get(1));
+
+    }
+
+
+
+    @DisplayName("Should not apply a change the journal fails to write")
+    @Test
+    void shouldNotApplyChangeNotJournaled() {
+
+        List<Mutation<Person>> mutations = new ArrayList<>();
+        this.personRepository.addMutationListener(mutations::add);
+        this.personRepository.setMutationJournal(mutation -> {
+            throw new UncheckedIOException(new IOException("disk full"));
+        });
+        Person updatedPerson = new Person("firstname1", "lastname1", "person address 1", "city", 59000, "111-111-111", "person1@mail.com");
+
+        assertThrows(UncheckedIOException.class, () -> this.personRepository.updatePerson(updatedPerson));
+
+        assertEquals(person1, this.personRepository.findPersonByFirstNameAndLastName("firstname1", "lastname1"));
+        assertTrue(mutations.isEmpty());
+
+    }
+
+
+
+    @DisplayName("Should wait for the journal outside the writer lock")
+    @Test
+    void shouldAwaitJournalOutsideWriterLock() {
+
+        DatasetHolder datasetHolder = new DatasetHolder();
+        PersonRepository personRepository = new PersonRepository(datasetHolder);
+        List<Boolean> locked = new ArrayList<>();
+        personRepository.setMutationJournal(mutation -> {
+            locked.add(Thread.holdsLock(datasetHolder));
+            return () -> locked.add(Thread.holdsLock(datasetHolder));
+        });
+
+        personRepository.addPerson(person1);
+
+        assertEquals(List.of(true, false), locked);
+
+    }
+
+
+
+    @DisplayName("Should index a person without lastname nor address")
+    @Test
+    void shouldIndexPersonWithoutLastNameNorAddress() {
+
+        DatasetHolder datasetHolder = new DatasetHolder();
+        PersonRepository personRepository = new PersonRepository(datasetHolder);
+        Person person = Person.builder().firstName("firstname3").build();
+
+        personRepository.addPerson(person);
+
+        assertEquals(person, personRepository.findPersonByFirstNameAndLastName("firstname3", null));
+        assertEquals(List.of(person), personRepository.findPersonsByAddress(null));
+        personRepository.deletePerson(person);
+        assertNull(personRepository.findPersonByFirstNameAndLastName("firstname3", null));
 
     }
 
-}
\ No newline at end of file
+}
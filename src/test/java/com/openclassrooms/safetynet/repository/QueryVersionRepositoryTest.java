@@ -0,0 +1,119 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.utils.AgeEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryVersionRepositoryTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    private DatasetHolder datasetHolder;
+    private PersonRepository personRepository;
+    private FireStationRepository fireStationRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private QueryVersionRepository queryVersionRepository;
+
+
+    @BeforeEach
+    public void init() {
+        datasetHolder = new DatasetHolder();
+        personRepository = new PersonRepository(datasetHolder);
+        fireStationRepository = new FireStationRepository(datasetHolder);
+        medicalRecordRepository = new MedicalRecordRepository(datasetHolder);
+        queryVersionRepository = new QueryVersionRepository(datasetHolder, ageEngineAt(TODAY));
+
+        List<Person> persons = List.of(
+                new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"),
+                new Person("Jonanathan", "Marrack", "29 15th St", "Culver", 97451, "841-874-6513", "drk@email.com"),
+                new Person("Eric", "Cadigan", "951 LoneTree Rd", "Culver", 97451, "841-874-7458", "gramps@email.com"));
+        List<MedicalRecord> medicalRecords = List.of(
+                new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of(), List.of()),
+                new MedicalRecord("Jonanathan", "Marrack", LocalDate.of(1989, 1, 3), List.of(), List.of()));
+        List<FireStation> fireStations = List.of(new FireStation("1509 Culver St", 3), new FireStation("29 15th St", 2),
+                new FireStation("951 LoneTree Rd", 2));
+        datasetHolder.replace(Dataset.of(new ArrayList<>(persons), new ArrayList<>(fireStations), new ArrayList<>(medicalRecords)));
+    }
+
+
+    @DisplayName("Should change the versions of the queries reading a change only")
+    @Test
+    void shouldChangeVersionsOfQueriesReadingChange() {
+
+        String address = queryVersionRepository.getAddressVersion("1509 Culver St");
+        String otherAddress = queryVersionRepository.getAddressVersion("29 15th St");
+        String station = queryVersionRepository.getStationVersion(3);
+        String otherStation = queryVersionRepository.getStationVersion(2);
+        String lastName = queryVersionRepository.getLastNameVersion("Boyd");
+        String city = queryVersionRepository.getCityVersion("Culver");
+
+        medicalRecordRepository.updateMedicalRecord(new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of("aznol:350mg"), List.of()));
+
+        assertNotEquals(address, queryVersionRepository.getAddressVersion("1509 CULVER ST"));
+        assertNotEquals(station, queryVersionRepository.getStationVersion(3));
+        assertNotEquals(lastName, queryVersionRepository.getLastNameVersion("Boyd"));
+        assertEquals(otherAddress, queryVersionRepository.getAddressVersion("29 15th St"));
+        assertEquals(otherStation, queryVersionRepository.getStationVersion(2));
+        assertEquals(city, queryVersionRepository.getCityVersion("Culver"));
+
+        String flood = queryVersionRepository.getStationsVersion(List.of(2, 3));
+        personRepository.updatePerson(new Person("Eric", "Cadigan", "951 LoneTree Rd", "Culver", 97451, "841-874-0000", "gramps@email.com"));
+
+        assertNotEquals(otherStation, queryVersionRepository.getStationVersion(2));
+        assertNotEquals(flood, queryVersionRepository.getStationsVersion(List.of(2, 3)));
+        assertNotEquals(city, queryVersionRepository.getCityVersion("Culver"));
+        assertEquals(otherAddress, queryVersionRepository.getAddressVersion("29 15th St"));
+    }
+
+
+    @DisplayName("Should change the versions of both stations when an address is mapped to another station")
+    @Test
+    void shouldChangeVersionsOfStationsWhenAddressMoves() {
+
+        String station = queryVersionRepository.getStationPhonesVersion(3);
+        String otherStation = queryVersionRepository.getStationPhonesVersion(2);
+        String address = queryVersionRepository.getAddressVersion("29 15th St");
+
+        fireStationRepository.updateStationNumber(new FireStation("29 15th St", 3));
+
+        assertNotEquals(station, queryVersionRepository.getStationPhonesVersion(3));
+        assertNotEquals(otherStation, queryVersionRepository.getStationPhonesVersion(2));
+        assertNotEquals(address, queryVersionRepository.getAddressVersion("29 15th St"));
+    }
+
+
+    @DisplayName("Should change the versions when the data are reloaded or when the ages may have changed")
+    @Test
+    void shouldChangeVersionsWithEpochAndDay() {
+
+        String address = queryVersionRepository.getAddressVersion("1509 Culver St");
+        String phones = queryVersionRepository.getStationPhonesVersion(3);
+
+        assertNotEquals(address, new QueryVersionRepository(datasetHolder, ageEngineAt(TODAY.plusDays(1))).getAddressVersion("1509 Culver St"));
+        assertEquals(phones, new QueryVersionRepository(datasetHolder, ageEngineAt(TODAY.plusDays(1))).getStationPhonesVersion(3));
+
+        personRepository.setPersons(new ArrayList<>(datasetHolder.read().getPersonStore().getPersons()));
+
+        assertNotEquals(address, queryVersionRepository.getAddressVersion("1509 Culver St"));
+        assertNotEquals(phones, queryVersionRepository.getStationPhonesVersion(3));
+    }
+
+
+    private static AgeEngine ageEngineAt(LocalDate date) {
+        return new AgeEngine(Clock.fixed(date.atStartOfDay(ZONE).toInstant(), ZONE));
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.openclassrooms.safetynet.repository;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.Person;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryConcurrencyTest {
+
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int PERSONS_PER_WRITER = 500;
+
+
+    @DisplayName("Should keep the people and their indexes consistent under concurrent reads and writes")
+    @Test
+    void shouldHandleConcurrentPersonChanges() throws Exception {
+
+        PersonRepository personRepository = new PersonRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<Integer>> readers = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < PERSONS_PER_WRITER; i++) {
+                    personRepository.addPerson(createPerson(writer, i, "address " + (i % 10)));
+                    if (i % 5 == 0) {
+                        personRepository.updatePerson(createPerson(writer, i, "moved address " + (i % 10)));
+                    }
+                    if (i % 10 == 1) {
+                        personRepository.deletePerson(personRepository.findPersonByFirstNameAndLastName("firstname" + i, "writer" + writer));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            readers.add(executor.submit(() -> {
+                start.await();
+                int reads = 0;
+                while (writing.get()) {
+                    // a reader never fails and never sees an index out of sync with the list
+                    List<String> addresses = personRepository.getPersons().stream()
+                            .map(Person::getAddress)
+                            .distinct()
+                            .collect(Collectors.toList());
+                    for (Person person : personRepository.findPersonsByAddresses(addresses)) {
+                        assertTrue(addresses.contains(person.getAddress()));
+                    }
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        for (Future<Integer> reader : readers) {
+            assertTrue(reader.get() > 0);
+        }
+        executor.shutdown();
+
+        List<Person> persons = personRepository.getPersons();
+        assertEquals(WRITERS * (PERSONS_PER_WRITER - PERSONS_PER_WRITER / 10), persons.size());
+        assertEquals(persons.size(), Set.copyOf(persons).size());
+        for (Person person : persons) {
+            assertSame(person, personRepository.findPersonByFirstNameAndLastName(person.getFirstName(), person.getLastName()));
+            assertTrue(personRepository.findPersonsByAddress(person.getAddress()).contains(person));
+        }
+        int indexedPersons = 0;
+        for (int i = 0; i < 10; i++) {
+            indexedPersons += personRepository.findPersonsByAddress("address " + i).size();
+            indexedPersons += personRepository.findPersonsByAddress("moved address " + i).size();
+        }
+        assertEquals(persons.size(), indexedPersons);
+        assertNull(personRepository.findPersonByFirstNameAndLastName("firstname1", "writer0"));
+        assertEquals("moved address 0", personRepository.findPersonByFirstNameAndLastName("firstname0", "writer0").getAddress());
+    }
+
+
+    @DisplayName("Should not lose any fire station change made concurrently")
+    @Test
+    void shouldHandleConcurrentFireStationChanges() throws Exception {
+
+        FireStationRepository fireStationRepository = new FireStationRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    fireStationRepository.addFireStation(new FireStation("address " + writer + "-" + i, writer));
+                }
+                fireStationRepository.updateStationNumber(new FireStation("address " + writer + "-0", 100 + writer));
+                fireStationRepository.deleteStations(fireStationRepository.getFireStationsByNumber(writer).subList(0, 99));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(WRITERS * 101, fireStationRepository.getFireStations().size());
+        for (int w = 0; w < WRITERS; w++) {
+            assertEquals(100, fireStationRepository.getFireStationsByNumber(w).size());
+            assertEquals(List.of(new FireStation("address " + w + "-0", 100 + w)), fireStationRepository.getFireStationsByNumber(100 + w));
+        }
+    }
+
+
+    private static Person createPerson(int writer, int i, String address) {
+        return new Person("firstname" + i, "writer" + writer, address, "city", 59000, "001-001-001", "mail@mail.com");
+    }
+
+}
@@ -3,6 +3,7 @@ package com.openclassrooms.safetynet.service;
 import com.openclassrooms.safetynet.exception.MedicalRecordAlreadyExistException;
 import com.openclassrooms.safetynet.exception.MedicalRecordNotFoundException;
 import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
 import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -174,4 +175,26 @@ class MedicalRecordServiceTest {
 
     }
 
+
+    @DisplayName("Should get the medical records of several people")
+    @Test
+    void shouldFindMedicalRecordsByPersons() {
+
+        Person person = Person.builder()
+                .firstName("firstname")
+                .lastName("lastname")
+                .build();
+
+        when(this.medicalRecordRepository.findMedicalRecordsByPersons(List.of(person))).thenReturn(List.of(medicalRecord));
+
+        List<MedicalRecord> result = this.medicalRecordServiceImpl.findMedicalRecordsByPersons(List.of(person));
+
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals(medicalRecord, result.get(0));
+
+        verify(this.medicalRecordRepository, times(1)).findMedicalRecordsByPersons(anyList());
+
+    }
+
 }
\ No newline at end of file
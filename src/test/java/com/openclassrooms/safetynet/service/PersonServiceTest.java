@@ -5,7 +5,10 @@ import com.openclassrooms.safetynet.exception.*;
 import com.openclassrooms.safetynet.model.FireStation;
 import com.openclassrooms.safetynet.model.MedicalRecord;
 import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.AgeGroupRepository;
+import com.openclassrooms.safetynet.repository.AgeGroups;
 import com.openclassrooms.safetynet.repository.PersonRepository;
+import com.openclassrooms.safetynet.repository.Resident;
 import com.openclassrooms.safetynet.service.Mapper.PersonMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -34,6 +37,8 @@ class PersonServiceTest {
     FireStationService fireStationService;
     @Mock
     PersonMapper personMapper;
+    @Mock
+    AgeGroupRepository ageGroupRepository;
 
     @InjectMocks
     PersonServiceImpl personServiceImpl;
@@ -279,11 +284,10 @@ class PersonServiceTest {
                 .build();
 
         when(this.fireStationService.getFireStationByStationNumber(anyInt())).thenReturn(List.of(fireStation));
-        when(this.personRepository.getPersons()).thenReturn(List.of(person1, person2, child));
-        when(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(person1.getFirstName(), person1.getLastName())).thenReturn(medicalRecord1);
-        when(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(child.getFirstName(), child.getLastName())).thenReturn(childMedicalRecord);
-        when(this.personMapper.asPersonWithAddressAndPhoneDTO(person1, medicalRecord1)).thenReturn(person1DTO);
-        when(this.personMapper.asPersonWithAddressAndPhoneDTO(child, childMedicalRecord)).thenReturn(childDTO);
+        when(this.ageGroupRepository.findResidentsByStation(1)).thenReturn(List.of(new Resident(person1, medicalRecord1), new Resident(child, childMedicalRecord)));
+        when(this.personMapper.asPersonWithAddressAndPhoneDTO(person1, medicalRecord1, 0)).thenReturn(person1DTO);
+        when(this.personMapper.asPersonWithAddressAndPhoneDTO(child, childMedicalRecord, 0)).thenReturn(childDTO);
+        when(this.ageGroupRepository.countAgeGroupsByStation(1)).thenReturn(new AgeGroups(1, 1));
 
         PersonsConcernedByFireStationDTO result = this.personServiceImpl.findPeopleConcernedByFireStation(1);
 
@@ -295,9 +299,11 @@ class PersonServiceTest {
         assertEquals(1, result.getChildren().intValue());
 
         verify(this.fireStationService, times(1)).getFireStationByStationNumber(anyInt());
-        verify(this.personRepository, times(1)).getPersons();
-        verify(this.medicalRecordService, times(2)).findMedicalRecordByFirstNameAndLastName(anyString(), anyString());
-        verify(this.personMapper, times(2)).asPersonWithAddressAndPhoneDTO(any(Person.class), any(MedicalRecord.class));
+        verify(this.ageGroupRepository, times(1)).findResidentsByStation(1);
+        verify(this.personRepository, never()).findPersonsByAddresses(anyCollection());
+        verify(this.personMapper, times(1)).todayKey();
+        verify(this.personMapper, times(2)).asPersonWithAddressAndPhoneDTO(any(Person.class), any(MedicalRecord.class), anyInt());
+        verify(this.ageGroupRepository, times(1)).countAgeGroupsByStation(1);
 
     }
 
@@ -305,13 +311,6 @@ class PersonServiceTest {
     @Test
     void ShouldFindChildrenByAddress() throws MedicalRecordNotFoundException, PersonNotFoundException {
 
-        PersonWithAgeAndFamilyMembersDTO adultDTO = PersonWithAgeAndFamilyMembersDTO.builder()
-                .firstName("firstname1")
-                .lastName("lastname1")
-                .age(23)
-                .otherFamilyMembers(List.of(child))
-                .build();
-
         PersonWithAgeAndFamilyMembersDTO childDTO = PersonWithAgeAndFamilyMembersDTO.builder()
                 .firstName("firstnameChild1")
                 .lastName("lastname1")
@@ -328,11 +327,11 @@ class PersonServiceTest {
                 .build();
 
 
-        when(this.personRepository.findPersonsByAddress(anyString())).thenReturn(List.of(person1, child));
-        when(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(person1.getFirstName(), person1.getLastName())).thenReturn(medicalRecord1);
-        when(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(child.getFirstName(), child.getLastName())).thenReturn(childMedicalRecord);
-        when(this.personMapper.asPersonWithAgeDTO(medicalRecord1)).thenReturn(adultDTO);
-        when(this.personMapper.asPersonWithAgeDTO(childMedicalRecord)).thenReturn(childDTO);
+        Resident childResident = new Resident(child, childMedicalRecord);
+        when(this.ageGroupRepository.findResidentsByAddress(anyString())).thenReturn(List.of(new Resident(person1, medicalRecord1), childResident));
+        when(this.personMapper.todayKey()).thenReturn(20240601);
+        when(this.personMapper.asPersonWithAgeDTO(childMedicalRecord, 20240601)).thenReturn(childDTO);
+        when(this.personRepository.findOtherFamilyMembers(child)).thenReturn(List.of(person1));
 
 
         List<PersonWithAgeAndFamilyMembersDTO> result = this.personServiceImpl.findChildrenByAddress("person address 1");
@@ -340,13 +339,31 @@ class PersonServiceTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(childDTO, result.get(0));
+        assertEquals(List.of(person1), result.get(0).getOtherFamilyMembers());
+
+        verify(this.ageGroupRepository, times(1)).findResidentsByAddress(anyString());
+        verify(this.ageGroupRepository, never()).findChildrenByAddress(anyString());
+        verify(this.medicalRecordService, never()).findMedicalRecordsByPersons(anyList());
+        verify(this.personMapper, times(1)).asPersonWithAgeDTO(any(MedicalRecord.class), anyInt());
+        verify(this.personRepository, times(1)).findOtherFamilyMembers(child);
+
+    }
+
+    @DisplayName("Should not return children by address -> medical record not found")
+    @Test
+    void ShouldNotFindChildrenByAddressWithoutMedicalRecord() {
+
+        when(this.ageGroupRepository.findResidentsByAddress(anyString())).thenReturn(List.of(new Resident(person1, medicalRecord1), new Resident(child, null)));
+
+        Exception exception = assertThrows(MedicalRecordNotFoundException.class, () -> this.personServiceImpl.findChildrenByAddress("person address 1"));
 
-        verify(personRepository, times(1)).findPersonsByAddress(anyString());
-        verify(this.medicalRecordService, times(2)).findMedicalRecordByFirstNameAndLastName(anyString(), anyString());
-        verify(this.personMapper, times(2)).asPersonWithAgeDTO(any(MedicalRecord.class));
+        assertEquals("Medical record not found for firstnameChild1 lastname1", exception.getMessage());
+
+        verify(this.personMapper, never()).asPersonWithAgeDTO(any(MedicalRecord.class), anyInt());
 
     }
 
+
     @DisplayName("Should get all phone number of people concerned by a fire Station")
     @Test
     void ShouldFindPhoneNumberByFireStationNumber() throws FireStationNotFoundException {
@@ -357,7 +374,7 @@ class PersonServiceTest {
                 .build();
 
         when(this.fireStationService.getAddressesByStationNumber(any(Integer.class))).thenReturn(List.of("person address 1"));
-        when(this.personRepository.getPersons()).thenReturn(List.of(person1, person2, child));
+        when(this.personRepository.findPhonesByStationNumber(1)).thenReturn(List.of("001-001-001", "001-001-003"));
 
         List<String> result = this.personServiceImpl.findPhoneNumberByFireStationNumber(1);
 
@@ -367,7 +384,7 @@ class PersonServiceTest {
         assertEquals("001-001-003", result.get(1));
 
         verify(this.fireStationService, times(1)).getAddressesByStationNumber(any(Integer.class));
-        verify(this.personRepository, times(1)).getPersons();
+        verify(this.personRepository, times(1)).findPhonesByStationNumber(1);
     }
 
 
@@ -387,7 +404,7 @@ class PersonServiceTest {
         assertEquals("Fire stations not found with the number 1", exception.getMessage());
 
         verify(this.fireStationService, times(1)).getAddressesByStationNumber(any(Integer.class));
-        verify(this.personRepository, never()).getPersons();
+        verify(this.personRepository, never()).findPhonesByStationNumber(anyInt());
     }
 
 
@@ -412,10 +429,9 @@ class PersonServiceTest {
                 .build();
 
         when(this.personRepository.findPersonsByAddress(anyString())).thenReturn(List.of(person1, person3));
-        when(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName("firstname1", "lastname1")).thenReturn(medicalRecord1);
-        when(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName("firstname3", "lastname3")).thenReturn(medicalRecord3);
-        when(this.personMapper.asPersonWithMedicalRecordDTO(person1, medicalRecord1)).thenReturn(person1DTO);
-        when(this.personMapper.asPersonWithMedicalRecordDTO(person3, medicalRecord3)).thenReturn(person3DTO);
+        when(this.medicalRecordService.findMedicalRecordsByPersons(List.of(person1, person3))).thenReturn(List.of(medicalRecord1, medicalRecord3));
+        when(this.personMapper.asPersonWithMedicalRecordDTO(person1, medicalRecord1, 0)).thenReturn(person1DTO);
+        when(this.personMapper.asPersonWithMedicalRecordDTO(person3, medicalRecord3, 0)).thenReturn(person3DTO);
         when(this.fireStationService.getFireStationByAddress(anyString())).thenReturn(fireStation);
 
         FireDTO result = this.personServiceImpl.findAllPeopleInFireCase("person address 1");
@@ -427,8 +443,8 @@ class PersonServiceTest {
         assertEquals(1, result.getFireStationNumber());
 
         verify(this.personRepository, times(1)).findPersonsByAddress(anyString());
-        verify(this.medicalRecordService, times(2)).findMedicalRecordByFirstNameAndLastName(anyString(), anyString());
-        verify(this.personMapper, times(2)).asPersonWithMedicalRecordDTO(any(Person.class), any(MedicalRecord.class));
+        verify(this.medicalRecordService, times(1)).findMedicalRecordsByPersons(anyList());
+        verify(this.personMapper, times(2)).asPersonWithMedicalRecordDTO(any(Person.class), any(MedicalRecord.class), anyInt());
         verify(this.fireStationService, times(1)).getFireStationByAddress(anyString());
 
     }
@@ -446,8 +462,8 @@ class PersonServiceTest {
         assertEquals("nobody found at person address 1", exception.getMessage());
 
         verify(this.personRepository, times(1)).findPersonsByAddress(anyString());
-        verify(this.medicalRecordService, never()).findMedicalRecordByFirstNameAndLastName(anyString(), anyString());
-        verify(this.personMapper, never()).asPersonWithMedicalRecordDTO(any(Person.class), any(MedicalRecord.class));
+        verify(this.medicalRecordService, never()).findMedicalRecordsByPersons(anyList());
+        verify(this.personMapper, never()).asPersonWithMedicalRecordDTO(any(Person.class), any(MedicalRecord.class), anyInt());
         verify(this.fireStationService, never()).getFireStationByAddress(anyString());
 
     }
@@ -477,10 +493,9 @@ class PersonServiceTest {
         when(this.fireStationService.getAddressesByStationNumber(2)).thenReturn(List.of("person address 2"));
         when(this.personRepository.findPersonsByAddress("person address 1")).thenReturn(List.of(person1));
         when(this.personRepository.findPersonsByAddress("person address 2")).thenReturn(List.of(person2));
-        when(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(person1.getFirstName(), person1.getLastName())).thenReturn(medicalRecord1);
-        when(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName(person2.getFirstName(), person2.getLastName())).thenReturn(medicalRecord2);
-        when(this.personMapper.asPersonWithMedicalRecordDTO(person1, medicalRecord1)).thenReturn(person1DTO);
-        when(this.personMapper.asPersonWithMedicalRecordDTO(person2, medicalRecord2)).thenReturn(person2DTO);
+        when(this.medicalRecordService.findMedicalRecordsByPersons(List.of(person1, person2))).thenReturn(List.of(medicalRecord1, medicalRecord2));
+        when(this.personMapper.asPersonWithMedicalRecordDTO(person1, medicalRecord1, 0)).thenReturn(person1DTO);
+        when(this.personMapper.asPersonWithMedicalRecordDTO(person2, medicalRecord2, 0)).thenReturn(person2DTO);
 
         Map<String, List<PersonWithMedicalRecordDTO>> result = personServiceImpl.findAllPeopleInFloodCase(stationNumberList);
 
@@ -495,8 +510,8 @@ class PersonServiceTest {
 
         verify(this.fireStationService, times(2)).getAddressesByStationNumber(anyInt());
         verify(this.personRepository, times(2)).findPersonsByAddress(anyString());
-        verify(this.medicalRecordService, times(2)).findMedicalRecordByFirstNameAndLastName(anyString(), anyString());
-        verify(this.personMapper, times(2)).asPersonWithMedicalRecordDTO(any(Person.class), any(MedicalRecord.class));
+        verify(this.medicalRecordService, times(1)).findMedicalRecordsByPersons(anyList());
+        verify(this.personMapper, times(2)).asPersonWithMedicalRecordDTO(any(Person.class), any(MedicalRecord.class), anyInt());
 
     }
 
@@ -538,9 +553,9 @@ class PersonServiceTest {
                 .allergies(List.of("shellfish"))
                 .build();
 
-        when(this.personRepository.getPersons()).thenReturn(List.of(person1, person2));
+        when(this.personRepository.findPersonByFirstNameAndLastName("firstname2", "lastname2")).thenReturn(person2);
         when(this.medicalRecordService.findMedicalRecordByFirstNameAndLastName("firstname2", "lastname2")).thenReturn(medicalRecord2);
-        when(this.personMapper.asPersonInfoDTO(any(Person.class), any(MedicalRecord.class))).thenReturn(personInfoDTO2);
+        when(this.personMapper.asPersonInfoDTO(any(Person.class), any(MedicalRecord.class), anyInt())).thenReturn(personInfoDTO2);
 
         List<PersonInfoDTO> result = this.personServiceImpl.getPersonInfo("firstname2", "lastname2");
 
@@ -571,15 +586,15 @@ class PersonServiceTest {
                 .allergies(List.of("shellfish"))
                 .build();
 
-        when(this.personRepository.getPersons()).thenReturn(List.of(person1, person2));
+        when(this.personRepository.findPersonByFirstNameAndLastName("firstname3", "lastname3")).thenReturn(null);
 
         Exception exception = assertThrows(PersonNotFoundException.class, () -> this.personServiceImpl.getPersonInfo("firstname3", "lastname3"));
 
         assertEquals("Nobody found with firstname firstname3 and lastname lastname3", exception.getMessage());
 
-        verify(this.personRepository, times(1)).getPersons();
+        verify(this.personRepository, times(1)).findPersonByFirstNameAndLastName(anyString(), anyString());
         verify(this.medicalRecordService, never()).findMedicalRecordByFirstNameAndLastName(anyString(), anyString());
-        verify(this.personMapper, never()).asPersonInfoDTO(any(Person.class), any(MedicalRecord.class));
+        verify(this.personMapper, never()).asPersonInfoDTO(any(Person.class), any(MedicalRecord.class), anyInt());
 
     }
 
@@ -588,7 +603,7 @@ class PersonServiceTest {
     @Test
     void shouldGetMailsByCity() throws MailsNotFoundException {
 
-        when(this.personRepository.getPersons()).thenReturn(List.of(person1, person2));
+        when(this.personRepository.findEmailsByCity("city")).thenReturn(List.of("person1@mail.com", "person2@mail.com"));
 
         List<String> result = this.personServiceImpl.getMailsByCity("city");
 
@@ -597,7 +612,7 @@ class PersonServiceTest {
         assertEquals("person1@mail.com", result.get(0));
         assertEquals("person2@mail.com", result.get(1));
 
-        verify(this.personRepository, times(1)).getPersons();
+        verify(this.personRepository, times(1)).findEmailsByCity("city");
 
     }
 
@@ -606,13 +621,13 @@ class PersonServiceTest {
     @Test
     void shouldNotGetMailsByCity() {
 
-        when(this.personRepository.getPersons()).thenReturn(List.of());
+        when(this.personRepository.findEmailsByCity("city")).thenReturn(List.of());
 
         Exception exception = assertThrows(MailsNotFoundException.class, () -> this.personServiceImpl.getMailsByCity("city"));
 
         assertEquals("No email found for people living in city", exception.getMessage());
 
-        verify(this.personRepository, times(1)).getPersons();
+        verify(this.personRepository, times(1)).findEmailsByCity("city");
 
     }
 
@@ -0,0 +1,189 @@
+package com.openclassrooms.safetynet.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.Dataset;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import com.openclassrooms.safetynet.repository.FireStationRepository;
+import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.PersonRepository;
+import com.openclassrooms.safetynet.utils.AgeEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationEventBroadcasterTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DatasetHolder datasetHolder;
+    private AgeEngine ageEngine;
+    private PersonRepository personRepository;
+    private FireStationRepository fireStationRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private StationEventBroadcaster stationEventBroadcaster;
+    private Person john;
+
+
+    @BeforeEach
+    public void init() {
+        datasetHolder = new DatasetHolder();
+        personRepository = new PersonRepository(datasetHolder);
+        fireStationRepository = new FireStationRepository(datasetHolder);
+        medicalRecordRepository = new MedicalRecordRepository(datasetHolder);
+        ageEngine = new AgeEngine(Clock.fixed(LocalDate.of(2024, 6, 1).atStartOfDay(ZONE).toInstant(), ZONE));
+        stationEventBroadcaster = new StationEventBroadcaster(datasetHolder, personRepository, fireStationRepository, medicalRecordRepository,
+                ageEngine, objectMapper, 60000, 16, 60000);
+
+        john = new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com");
+        List<MedicalRecord> medicalRecords = List.of(
+                new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of(), List.of()),
+                new MedicalRecord("Roger", "Boyd", LocalDate.of(2017, 9, 6), List.of(), List.of()));
+        List<FireStation> fireStations = List.of(new FireStation("1509 Culver St", 3), new FireStation("29 15th St", 2));
+        datasetHolder.replace(Dataset.of(new ArrayList<>(List.of(john)), new ArrayList<>(fireStations), new ArrayList<>(medicalRecords)));
+    }
+
+
+    @AfterEach
+    public void close() {
+        stationEventBroadcaster.close();
+    }
+
+
+    @DisplayName("Should send a snapshot of the station, then the changes of its people and counts")
+    @Test
+    void shouldSendSnapshotThenChanges() throws Exception {
+
+        RecordingSink sink = new RecordingSink();
+        stationEventBroadcaster.subscribe(3, sink);
+
+        JsonNode snapshot = sink.next(StationEventBroadcaster.SNAPSHOT);
+        assertEquals(1, snapshot.get("added").size());
+        assertEquals("John", snapshot.get("added").get(0).get("firstName").asText());
+        assertEquals(1, snapshot.get("adults").asInt());
+
+        Person roger = new Person("Roger", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com");
+        personRepository.addPerson(roger);
+        JsonNode added = sink.next(StationEventBroadcaster.CHANGE);
+        assertEquals("Roger", added.get("added").get(0).get("firstName").asText());
+        assertEquals(0, added.get("removed").size());
+        assertEquals(1, added.get("children").asInt());
+
+        medicalRecordRepository.updateMedicalRecord(new MedicalRecord("Roger", "Boyd", LocalDate.of(1950, 1, 1), List.of(), List.of()));
+        JsonNode counted = sink.next(StationEventBroadcaster.CHANGE);
+        assertEquals(0, counted.get("added").size());
+        assertEquals(0, counted.get("children").asInt());
+        assertEquals(2, counted.get("adults").asInt());
+
+        personRepository.addPerson(new Person("Jonanathan", "Marrack", "29 15th St", "Culver", 97451, "841-874-6513", "drk@email.com"));
+        fireStationRepository.updateStationNumber(new FireStation("1509 Culver St", 2));
+        JsonNode removed = sink.next(StationEventBroadcaster.CHANGE);
+        assertEquals(2, removed.get("removed").size());
+        assertEquals(0, removed.get("adults").asInt());
+        assertTrue(sink.events.isEmpty());
+    }
+
+
+    @DisplayName("Should disconnect a subscriber which doesn't read its events")
+    @Test
+    void shouldDisconnectSlowSubscriber() throws Exception {
+
+        RecordingSink slowSink = new RecordingSink();
+        slowSink.blocked = true;
+        StationEventBroadcaster.Subscriber subscriber = stationEventBroadcaster.subscribe(3, slowSink);
+        slowSink.next(StationEventBroadcaster.SNAPSHOT);
+
+        for (int i = 0; i < 40; i++) {
+            medicalRecordRepository.updateMedicalRecord(new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6 + i % 20), List.of(), List.of()));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!subscriber.isClosed() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        slowSink.release.countDown();
+
+        assertTrue(slowSink.closed.poll(5, TimeUnit.SECONDS));
+        assertTrue(slowSink.events.size() <= 16);
+    }
+
+
+    @DisplayName("Should disconnect the subscribers whose client doesn't read, without delaying the others")
+    @Test
+    void shouldDisconnectStalledSubscribers() throws Exception {
+
+        StationEventBroadcaster broadcaster = new StationEventBroadcaster(datasetHolder, personRepository, fireStationRepository,
+                medicalRecordRepository, ageEngine, objectMapper, 60000, 16, 200);
+        try {
+            List<RecordingSink> stalledSinks = new ArrayList<>();
+            for (int i = 0; i <= Runtime.getRuntime().availableProcessors(); i++) {
+                RecordingSink stalledSink = new RecordingSink();
+                stalledSink.blocked = true;
+                broadcaster.subscribe(3, stalledSink);
+                stalledSinks.add(stalledSink);
+            }
+            RecordingSink sink = new RecordingSink();
+            broadcaster.subscribe(2, sink);
+
+            assertEquals(0, sink.next(StationEventBroadcaster.SNAPSHOT).get("added").size());
+            for (RecordingSink stalledSink : stalledSinks) {
+                assertTrue(stalledSink.closed.poll(5, TimeUnit.SECONDS));
+                assertEquals(1, stalledSink.events.size());
+            }
+        } finally {
+            broadcaster.close();
+        }
+    }
+
+
+    private class RecordingSink implements StationEventBroadcaster.EventSink {
+
+        private final BlockingQueue<String[]> events = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Boolean> closed = new LinkedBlockingQueue<>();
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocked;
+
+        @Override
+        public void send(String name, String data) throws IOException {
+            this.events.add(new String[]{name, data});
+            if (this.blocked) {
+                try {
+                    this.release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException("The send has been interrupted", e);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            this.closed.add(true);
+        }
+
+        private JsonNode next(String name) throws Exception {
+            String[] event = this.events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event);
+            assertEquals(name, event[0]);
+            return objectMapper.readTree(event[1]);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.openclassrooms.safetynet.utils;
+
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.service.Mapper.PersonMapperImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgeEngineTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+
+    @DisplayName("Should compute the same age as a period between the birthdate and today")
+    @Test
+    void shouldComputeSameAgeAsPeriod() {
+
+        LocalDate[] todays = {LocalDate.of(2024, 2, 28), LocalDate.of(2024, 2, 29), LocalDate.of(2025, 2, 28),
+                LocalDate.of(2025, 3, 1), LocalDate.of(2023, 12, 31), LocalDate.of(2024, 1, 1)};
+        for (LocalDate today : todays) {
+            AgeEngine ageEngine = new AgeEngine(Clock.fixed(today.atStartOfDay(ZONE).toInstant(), ZONE));
+            for (LocalDate birthdate = today.minusYears(20).minusDays(3); birthdate.isBefore(today.plusYears(2)); birthdate = birthdate.plusDays(1)) {
+                assertEquals(Period.between(birthdate, today).getYears(), ageEngine.ageOf(birthdate), birthdate + " " + today);
+            }
+        }
+    }
+
+
+    @DisplayName("Should return an age of 0 when the birthdate is unknown")
+    @Test
+    void shouldReturnZeroWithoutBirthdate() {
+
+        AgeEngine ageEngine = new AgeEngine();
+
+        assertEquals(0, ageEngine.ageOf((LocalDate) null));
+        assertEquals(AgeEngine.NO_DATE, AgeEngine.dateKey(null));
+        assertEquals(20240229, AgeEngine.dateKey(LocalDate.of(2024, 2, 29)));
+    }
+
+
+    @DisplayName("Should read today's date again once midnight is passed")
+    @Test
+    void shouldRollOverAtMidnight() {
+
+        MutableClock clock = new MutableClock(LocalDateTime.of(2024, 3, 5, 23, 59, 59).atZone(ZONE).toInstant());
+        AgeEngine ageEngine = new AgeEngine(clock);
+        LocalDate birthdate = LocalDate.of(2006, 3, 6);
+
+        assertEquals(LocalDate.of(2024, 3, 5), ageEngine.today());
+        assertEquals(17, ageEngine.ageOf(birthdate));
+        clock.instant = LocalDateTime.of(2024, 3, 6, 0, 0).atZone(ZONE).toInstant();
+        assertEquals(LocalDate.of(2024, 3, 6), ageEngine.today());
+        assertEquals(18, ageEngine.ageOf(birthdate));
+        assertEquals(20240306, ageEngine.todayKey());
+    }
+
+
+    @DisplayName("Should map the age of a medical record updated with another birthdate")
+    @Test
+    void shouldMapAgeOfUpdatedBirthdate() {
+
+        AgeEngine ageEngine = new AgeEngine(Clock.fixed(LocalDate.of(2024, 6, 1).atStartOfDay(ZONE).toInstant(), ZONE));
+        PersonMapperImpl personMapper = new PersonMapperImpl(ageEngine);
+        MedicalRecord medicalRecord = new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of(), List.of());
+
+        assertEquals(40, personMapper.asPersonWithAgeDTO(medicalRecord, personMapper.todayKey()).getAge());
+        medicalRecord.setBirthdate(LocalDate.of(2012, 2, 18));
+        assertEquals(12, personMapper.asPersonWithAgeDTO(medicalRecord, personMapper.todayKey()).getAge());
+    }
+
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return this.instant;
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.openclassrooms.safetynet.utils;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import com.openclassrooms.safetynet.repository.FireStationRepository;
+import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.PersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataGeneratorTest {
+
+    private static final LocalDate REFERENCE_DATE = LocalDate.of(2024, 1, 1);
+
+    private DatasetHolder datasetHolder;
+    private PersonRepository personRepository;
+    private FireStationRepository fireStationRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @TempDir
+    Path tempDir;
+
+
+    @BeforeEach
+    public void init() {
+        datasetHolder = new DatasetHolder();
+        personRepository = new PersonRepository(datasetHolder);
+        fireStationRepository = new FireStationRepository(datasetHolder);
+        medicalRecordRepository = new MedicalRecordRepository(datasetHolder);
+    }
+
+
+    @DisplayName("Should generate the same data from the same seed")
+    @Test
+    void shouldGenerateSameDataFromSameSeed() throws IOException {
+
+        byte[] data = generate(DataGenerator.builder().persons(500).seed(7));
+
+        assertArrayEquals(data, generate(DataGenerator.builder().persons(500).seed(7)));
+        assertFalse(Arrays.equals(data, generate(DataGenerator.builder().persons(500).seed(8))));
+    }
+
+
+    @DisplayName("Should generate a medical record for each person and a fire station for each address")
+    @Test
+    void shouldGenerateConsistentData() throws IOException {
+
+        load(generate(DataGenerator.builder().persons(2000).stations(5)));
+
+        List<Person> persons = personRepository.getPersons();
+        assertEquals(2000, persons.size());
+        assertEquals(2000, medicalRecordRepository.getMedicalRecords().size());
+        for (Person person : persons) {
+            assertNotNull(medicalRecordRepository.findMedicalRecordByFirstNameAndLastName(person.getFirstName(), person.getLastName()));
+            FireStation fireStation = fireStationRepository.getFireStationByAddress(person.getAddress());
+            assertNotNull(fireStation);
+            assertTrue(fireStation.getStation() >= 1 && fireStation.getStation() <= 5);
+        }
+        assertTrue(persons.stream().map(Person::getAddress).distinct().count() > 400);
+    }
+
+
+    @DisplayName("Should generate households of the configured sizes with the configured ratio of children")
+    @Test
+    void shouldGenerateHouseholds() throws IOException {
+
+        load(generate(DataGenerator.builder().persons(10000).minHouseholdSize(2).maxHouseholdSize(4).childRatio(0.4)));
+
+        Map<String, Long> households = personRepository.getPersons().stream()
+                .collect(Collectors.groupingBy(person -> person.getAddress() + "|" + person.getLastName(), Collectors.counting()));
+        assertTrue(households.values().stream().allMatch(size -> size <= 4));
+        assertTrue(households.values().stream().filter(size -> size < 2).count() <= 1);
+
+        long children = medicalRecordRepository.getMedicalRecords().stream()
+                .filter(medicalRecord -> Period.between(medicalRecord.getBirthdate(), REFERENCE_DATE).getYears() <= 18)
+                .count();
+        assertEquals(0.4, children / 10000.0, 0.03);
+    }
+
+
+    @DisplayName("Should make some addresses and stations hot when they are skewed")
+    @Test
+    void shouldGenerateHotAddressesAndStations() throws IOException {
+
+        load(generate(DataGenerator.builder().persons(10000).addresses(1000).addressSkew(1.2).stations(20).stationSkew(1.5)));
+
+        Map<String, Long> residents = personRepository.getPersons().stream()
+                .collect(Collectors.groupingBy(Person::getAddress, Collectors.counting()));
+        long hottest = residents.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        assertTrue(hottest > 50 * 10000 / 1000, "hottest address has " + hottest + " residents");
+
+        Map<Integer, Long> addressesByStation = fireStationRepository.getFireStations().stream()
+                .collect(Collectors.groupingBy(FireStation::getStation, Collectors.counting()));
+        assertEquals(1000, fireStationRepository.getFireStations().size());
+        assertTrue(addressesByStation.get(1) > 5 * 1000 / 20);
+    }
+
+
+    @DisplayName("Should write a data file which can be read in parallel")
+    @Test
+    void shouldWriteDataFile() throws Exception {
+
+        Path dataFile = tempDir.resolve("data.json");
+        assertTrue(DataGenerator.builder().persons(3000).referenceDate(REFERENCE_DATE).build().write(dataFile) > 0);
+
+        MutationLog mutationLog = new MutationLog(personRepository, fireStationRepository, medicalRecordRepository, "");
+        new DataLoader(datasetHolder, new SimpleMeterRegistry(), new DataSnapshot(datasetHolder, mutationLog, "", false), mutationLog,
+                dataFile.toString(), Long.MAX_VALUE, true, 4096).run();
+
+        assertEquals(3000, personRepository.getPersons().size());
+        Map<String, MedicalRecord> medicalRecords = medicalRecordRepository.getMedicalRecords().stream()
+                .collect(Collectors.toMap(medicalRecord -> medicalRecord.getFirstName() + " " + medicalRecord.getLastName(), Function.identity()));
+        assertEquals(3000, medicalRecords.size());
+    }
+
+
+    @DisplayName("Should draw uniform ranks without skew and the lowest ranks more often with a skew")
+    @Test
+    void shouldDrawZipfRanks() {
+
+        SplittableRandom random = new SplittableRandom(1);
+        int[] uniform = new int[10];
+        int[] skewed = new int[10];
+        for (int i = 0; i < 100000; i++) {
+            uniform[DataGenerator.zipf(random, 10, 0)]++;
+            skewed[DataGenerator.zipf(random, 10, 1)]++;
+        }
+
+        for (int count : uniform) {
+            assertEquals(10000.0, count, 500.0);
+        }
+        assertTrue(skewed[0] > 2 * skewed[9]);
+    }
+
+
+    @DisplayName("Should not generate data with invalid household sizes")
+    @Test
+    void shouldNotGenerateInvalidHouseholds() {
+
+        DataGenerator dataGenerator = DataGenerator.builder().minHouseholdSize(3).maxHouseholdSize(2).build();
+
+        assertThrows(IllegalArgumentException.class, () -> dataGenerator.write(new ByteArrayOutputStream()));
+    }
+
+
+    private byte[] generate(DataGenerator.DataGeneratorBuilder builder) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        builder.referenceDate(REFERENCE_DATE).build().write(output);
+        return output.toByteArray();
+    }
+
+
+    private void load(byte[] data) throws IOException {
+        MutationLog mutationLog = new MutationLog(personRepository, fireStationRepository, medicalRecordRepository, "");
+        new DataLoader(datasetHolder, new SimpleMeterRegistry(), new DataSnapshot(datasetHolder, mutationLog, "", false), mutationLog,
+                "", 0, false, 0).load(new ByteArrayInputStream(data));
+    }
+
+}
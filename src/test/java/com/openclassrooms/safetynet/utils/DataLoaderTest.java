@@ -0,0 +1,259 @@
+package com.openclassrooms.safetynet.utils;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import com.openclassrooms.safetynet.repository.FireStationRepository;
+import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.PersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataLoaderTest {
+
+    private static final String DATA = "{\n" +
+            "  \"persons\": [\n" +
+            "    { \"firstName\":\"John\", \"lastName\":\"Boyd\", \"address\":\"1509 Culver St\", \"city\":\"Culver\", \"zip\":\"97451\", \"phone\":\"841-874-6512\", \"email\":\"jaboyd@email.com\" },\n" +
+            "    { \"firstName\":\"Tenley\", \"lastName\":\"Boyd\", \"address\":\"1509 Culver St\", \"city\":\"Culver\", \"zip\":\"97451\", \"phone\":\"841-874-6512\", \"email\":\"tenz@email.com\" }\n" +
+            "  ],\n" +
+            "  \"unknown\": { \"ignored\": [1, 2, 3] },\n" +
+            "  \"firestations\": [\n" +
+            "    { \"address\":\"1509 Culver St\", \"station\":\"3\" }\n" +
+            "  ],\n" +
+            "  \"medicalrecords\": [\n" +
+            "    { \"firstName\":\"John\", \"lastName\":\"Boyd\", \"birthdate\":\"03/06/1984\", \"medications\":[\"aznol:350mg\"], \"allergies\":[\"nillacilan\"] },\n" +
+            "    { \"firstName\":\"Tenley\", \"lastName\":\"Boyd\", \"birthdate\":\"02/18/2012\", \"medications\":[], \"allergies\":[\"peanut\"] }\n" +
+            "  ]\n" +
+            "}";
+
+    private DatasetHolder datasetHolder;
+    private PersonRepository personRepository;
+    private FireStationRepository fireStationRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private DataLoader dataLoader;
+
+    @TempDir
+    Path tempDir;
+
+
+    @BeforeEach
+    public void init() {
+        datasetHolder = new DatasetHolder();
+        personRepository = new PersonRepository(datasetHolder);
+        fireStationRepository = new FireStationRepository(datasetHolder);
+        medicalRecordRepository = new MedicalRecordRepository(datasetHolder);
+        meterRegistry = new SimpleMeterRegistry();
+        dataLoader = createDataLoader("unknown/data.json", 0);
+    }
+
+
+    @DisplayName("Should load every section of the json data into the repositories")
+    @Test
+    void shouldLoadData() throws IOException {
+
+        dataLoader.load(toStream(DATA));
+
+        List<Person> persons = personRepository.getPersons();
+        assertEquals(2, persons.size());
+        assertEquals("John", persons.get(0).getFirstName());
+        assertEquals(97451, persons.get(0).getZip());
+        assertEquals("Tenley", persons.get(1).getFirstName());
+        assertEquals(2, personRepository.findPersonsByAddress("1509 Culver St").size());
+
+        List<FireStation> fireStations = fireStationRepository.getFireStations();
+        assertEquals(1, fireStations.size());
+        assertEquals(3, fireStationRepository.getFireStationByAddress("1509 Culver St").getStation());
+
+        MedicalRecord medicalRecord = medicalRecordRepository.findMedicalRecordByFirstNameAndLastName("tenley", "boyd");
+        assertNotNull(medicalRecord);
+        assertEquals(LocalDate.of(2012, 2, 18), medicalRecord.getBirthdate());
+        assertEquals(List.of("peanut"), medicalRecord.getAllergies());
+    }
+
+
+    @DisplayName("Should record the loading time")
+    @Test
+    void shouldRecordLoadingTime() throws IOException {
+
+        dataLoader.load(toStream(DATA));
+
+        assertEquals(1, meterRegistry.get("safetynet.data.load").timer().count());
+    }
+
+
+    @DisplayName("Should replace the previously loaded data")
+    @Test
+    void shouldReplaceData() throws IOException {
+
+        dataLoader.load(toStream(DATA));
+        dataLoader.load(toStream("{ \"persons\": [], \"firestations\": [], \"medicalrecords\": [] }"));
+
+        assertTrue(personRepository.getPersons().isEmpty());
+        assertTrue(fireStationRepository.getFireStations().isEmpty());
+        assertNull(medicalRecordRepository.findMedicalRecordByFirstNameAndLastName("John", "Boyd"));
+    }
+
+
+    @DisplayName("Should not load data which is not a json object")
+    @Test
+    void shouldNotLoadInvalidData() {
+
+        assertThrows(IOException.class, () -> dataLoader.load(toStream("[]")));
+    }
+
+
+    @DisplayName("Should load a data file through a memory-mapped file")
+    @Test
+    void shouldLoadMappedDataFile() throws Exception {
+
+        Path dataFile = tempDir.resolve("data.json");
+        Files.write(dataFile, DATA.getBytes(StandardCharsets.UTF_8));
+
+        createDataLoader(dataFile.toString(), 0).run();
+
+        assertEquals(2, personRepository.getPersons().size());
+        assertEquals(1, fireStationRepository.getFireStations().size());
+        assertEquals(2, medicalRecordRepository.getMedicalRecords().size());
+    }
+
+
+    @DisplayName("Should load a data file below the memory-mapping threshold")
+    @Test
+    void shouldLoadDataFile() throws Exception {
+
+        Path dataFile = tempDir.resolve("data.json");
+        Files.write(dataFile, DATA.getBytes(StandardCharsets.UTF_8));
+
+        createDataLoader(dataFile.toString(), Long.MAX_VALUE).run();
+
+        assertEquals(2, personRepository.getPersons().size());
+    }
+
+
+    @DisplayName("Should load data.json from the classpath when the data file doesn't exist")
+    @Test
+    void shouldLoadClasspathDataFile() throws Exception {
+
+        dataLoader.run();
+
+        assertFalse(personRepository.getPersons().isEmpty());
+        assertNotNull(personRepository.findPersonByFirstNameAndLastName("John", "Boyd"));
+    }
+
+
+    @DisplayName("Should read a memory-mapped file across several windows")
+    @Test
+    void shouldReadMappedFileAcrossWindows() throws IOException {
+
+        Path dataFile = tempDir.resolve("data.json");
+        byte[] data = DATA.getBytes(StandardCharsets.UTF_8);
+        Files.write(dataFile, data);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream inputStream = new MappedFileInputStream(dataFile, 7)) {
+            inputStream.transferTo(result);
+        }
+
+        assertArrayEquals(data, result.toByteArray());
+    }
+
+
+    @DisplayName("Should load the same data in parallel as sequentially")
+    @Test
+    void shouldLoadSameDataInParallel() throws Exception {
+
+        Path dataFile = tempDir.resolve("data.json");
+        Files.write(dataFile, generateData(500).getBytes(StandardCharsets.UTF_8));
+
+        createDataLoader(dataFile.toString(), Long.MAX_VALUE).run();
+        List<Person> persons = personRepository.getPersons();
+        List<FireStation> fireStations = fireStationRepository.getFireStations();
+        List<MedicalRecord> medicalRecords = medicalRecordRepository.getMedicalRecords();
+        List<Person> residents = personRepository.findPersonsByAddress("7 Culver St");
+
+        createDataLoader(dataFile.toString(), 0, true, 256).run();
+
+        assertEquals(500, personRepository.getPersons().size());
+        assertEquals(persons, personRepository.getPersons());
+        assertEquals(fireStations, fireStationRepository.getFireStations());
+        assertEquals(medicalRecords, medicalRecordRepository.getMedicalRecords());
+        assertEquals(persons.get(42), personRepository.findPersonByFirstNameAndLastName("first42", "LAST42"));
+        assertEquals(50, residents.size());
+        assertEquals(residents, personRepository.findPersonsByAddress("7 Culver St"));
+        assertEquals(List.of(fireStations.get(7)), fireStationRepository.getFireStationsByNumber(7));
+        assertEquals(medicalRecords.get(99), medicalRecordRepository.findMedicalRecordByFirstNameAndLastName("First99", "Last99"));
+        assertEquals(2, meterRegistry.get("safetynet.data.load").timer().count());
+    }
+
+
+    @DisplayName("Should split the sections of a data file into chunks of whole records")
+    @Test
+    void shouldSplitDataFile() throws IOException {
+
+        Path dataFile = tempDir.resolve("data.json");
+        Files.write(dataFile, DATA.getBytes(StandardCharsets.UTF_8));
+
+        Map<String, List<DataFileSplitter.Chunk>> sections = DataFileSplitter.split(dataFile, 1);
+
+        assertEquals(List.of("persons", "firestations", "medicalrecords"), List.copyOf(sections.keySet()));
+        assertEquals(2, sections.get("persons").size());
+        assertEquals(1, sections.get("firestations").size());
+        DataFileSplitter.Chunk firstPerson = sections.get("persons").get(0);
+        String chunk = DATA.substring((int) firstPerson.getStart(), (int) firstPerson.getEnd()).trim();
+        assertTrue(chunk.startsWith("{ \"firstName\":\"John\""));
+        assertTrue(chunk.endsWith("},"));
+    }
+
+
+    private DataLoader createDataLoader(String dataFile, long mmapThreshold) {
+        return createDataLoader(dataFile, mmapThreshold, false, 0);
+    }
+
+
+    private DataLoader createDataLoader(String dataFile, long mmapThreshold, boolean parallel, long chunkSize) {
+        MutationLog mutationLog = new MutationLog(personRepository, fireStationRepository, medicalRecordRepository, "");
+        return new DataLoader(datasetHolder, meterRegistry,
+                new DataSnapshot(datasetHolder, mutationLog, "", false),
+                mutationLog,
+                dataFile, mmapThreshold, parallel, chunkSize);
+    }
+
+
+    private static String generateData(int count) {
+        StringBuilder persons = new StringBuilder();
+        StringBuilder fireStations = new StringBuilder();
+        StringBuilder medicalRecords = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String separator = i == 0 ? "" : ",\n";
+            persons.append(separator).append(String.format("{ \"firstName\":\"First%d\", \"lastName\":\"Last%d\", \"address\":\"%d Culver St\", \"city\":\"Culver\", \"zip\":\"97451\", \"phone\":\"841-874-%04d\", \"email\":\"p%d@email.com\" }", i, i, i % 10, i, i));
+            fireStations.append(separator).append(String.format("{ \"address\":\"%d Culver St\", \"station\":\"%d\" }", i, i));
+            medicalRecords.append(separator).append(String.format("{ \"firstName\":\"First%d\", \"lastName\":\"Last%d\", \"birthdate\":\"03/06/1984\", \"medications\":[\"aznol:%dmg\"], \"allergies\":[\"a[],{}\\\"\"] }", i, i, i));
+        }
+        return "{\n\"persons\": [\n" + persons + "\n],\n\"firestations\": [\n" + fireStations
+                + "\n],\n\"unknown\": { \"ignored\": [1, 2, 3] },\n\"medicalrecords\": [\n" + medicalRecords + "\n]\n}";
+    }
+
+
+    private static InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.openclassrooms.safetynet.utils;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import com.openclassrooms.safetynet.repository.FireStationRepository;
+import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.PersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataSnapshotTest {
+
+    private DatasetHolder datasetHolder;
+    private PersonRepository personRepository;
+    private FireStationRepository fireStationRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private MutationLog mutationLog;
+    private Person person1;
+    private Person person2;
+    private FireStation fireStation;
+    private MedicalRecord medicalRecord1;
+    private MedicalRecord medicalRecord2;
+
+    @TempDir
+    Path tempDir;
+
+
+    @BeforeEach
+    public void init() {
+        datasetHolder = new DatasetHolder();
+        personRepository = new PersonRepository(datasetHolder);
+        fireStationRepository = new FireStationRepository(datasetHolder);
+        medicalRecordRepository = new MedicalRecordRepository(datasetHolder);
+        mutationLog = new MutationLog(personRepository, fireStationRepository, medicalRecordRepository, "");
+
+        person1 = new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com");
+        person2 = new Person("Zoé", "Boyd", "1509 Culver St", "Culver", 97451, null, "zoe@email.com");
+        fireStation = new FireStation("1509 Culver St", 3);
+        medicalRecord1 = new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of("aznol:350mg", "hydrapermazol:100mg"), List.of("nillacilan"));
+        medicalRecord2 = new MedicalRecord("Zoé", "Boyd", null, List.of(), null);
+
+        personRepository.setPersons(new ArrayList<>(List.of(person1, person2)));
+        fireStationRepository.setFireStations(new ArrayList<>(List.of(fireStation)));
+        medicalRecordRepository.setMedicalRecords(new ArrayList<>(List.of(medicalRecord1, medicalRecord2)));
+    }
+
+
+    @DisplayName("Should restore the saved content of the repositories")
+    @Test
+    void shouldSaveAndRestoreSnapshot() throws IOException {
+
+        DataSnapshot dataSnapshot = createDataSnapshot(tempDir.resolve("data.snapshot").toString());
+
+        dataSnapshot.save();
+        personRepository.setPersons(new ArrayList<>());
+        fireStationRepository.setFireStations(new ArrayList<>());
+        medicalRecordRepository.setMedicalRecords(new ArrayList<>());
+        dataSnapshot.restore();
+
+        assertEquals(List.of(person1, person2), personRepository.getPersons());
+        assertEquals(List.of(fireStation), fireStationRepository.getFireStations());
+        assertEquals(List.of(medicalRecord1, medicalRecord2), medicalRecordRepository.getMedicalRecords());
+        assertEquals(person2, personRepository.findPersonByFirstNameAndLastName("zoé", "boyd"));
+        assertEquals(fireStation, fireStationRepository.getFireStationByAddress("1509 Culver St"));
+        assertEquals(medicalRecord1, medicalRecordRepository.findMedicalRecordByFirstNameAndLastName("John", "Boyd"));
+    }
+
+
+    @DisplayName("Should wait for the writer holding the lock of the data before saving the snapshot")
+    @Test
+    void shouldSaveSnapshotBetweenChanges() throws Exception {
+
+        DataSnapshot dataSnapshot = createDataSnapshot(tempDir.resolve("data.snapshot").toString());
+        Thread saver = new Thread(() -> {
+            try {
+                dataSnapshot.save();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        synchronized (datasetHolder) {
+            saver.start();
+            saver.join(200);
+            assertTrue(saver.isAlive());
+            assertFalse(Files.exists(tempDir.resolve("data.snapshot")));
+        }
+        saver.join();
+
+        assertTrue(Files.exists(tempDir.resolve("data.snapshot")));
+    }
+
+
+    @DisplayName("Should not restore a file which is not a snapshot")
+    @Test
+    void shouldNotRestoreInvalidSnapshot() {
+
+        DataSnapshot dataSnapshot = createDataSnapshot("");
+
+        assertThrows(IOException.class, () -> dataSnapshot.read(new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8))));
+        assertEquals(2, personRepository.getPersons().size());
+    }
+
+
+    @DisplayName("Should use a snapshot only if it is more recent than the data file")
+    @Test
+    void shouldUseSnapshotMoreRecentThanDataFile() throws IOException {
+
+        Path dataFile = tempDir.resolve("data.json");
+        Files.write(dataFile, "{}".getBytes(StandardCharsets.UTF_8));
+        Path snapshotFile = tempDir.resolve("data.snapshot");
+        DataSnapshot dataSnapshot = createDataSnapshot(snapshotFile.toString());
+
+        assertFalse(dataSnapshot.isNewerThan(dataFile));
+        dataSnapshot.save();
+        Files.setLastModifiedTime(dataFile, FileTime.fromMillis(0));
+        assertTrue(dataSnapshot.isNewerThan(dataFile));
+        assertTrue(dataSnapshot.isNewerThan(tempDir.resolve("unknown.json")));
+        Files.setLastModifiedTime(dataFile, FileTime.fromMillis(Files.getLastModifiedTime(snapshotFile).toMillis() + 1000));
+        assertFalse(dataSnapshot.isNewerThan(dataFile));
+        assertFalse(createDataSnapshot("").isNewerThan(dataFile));
+    }
+
+
+    @DisplayName("Should restore a snapshot at startup instead of reading the data file")
+    @Test
+    void shouldLoadSnapshotAtStartup() throws Exception {
+
+        Path dataFile = tempDir.resolve("data.json");
+        Files.write(dataFile, "{ \"persons\": [] }".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(dataFile, FileTime.fromMillis(0));
+        DataSnapshot dataSnapshot = createDataSnapshot(tempDir.resolve("data.snapshot").toString());
+        dataSnapshot.save();
+        personRepository.setPersons(new ArrayList<>());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        new DataLoader(datasetHolder, meterRegistry, dataSnapshot, mutationLog,
+                dataFile.toString(), 0, false, 0).run();
+
+        assertEquals(List.of(person1, person2), personRepository.getPersons());
+        assertEquals(1, meterRegistry.get("safetynet.data.load").timer().count());
+    }
+
+
+    @DisplayName("Should save a snapshot at shutdown only when it is enabled")
+    @Test
+    void shouldSaveSnapshotOnShutdown() {
+
+        Path snapshotFile = tempDir.resolve("data.snapshot");
+
+        new DataSnapshot(datasetHolder, mutationLog, snapshotFile.toString(), false).saveOnShutdown();
+        assertFalse(Files.exists(snapshotFile));
+        new DataSnapshot(datasetHolder, mutationLog, snapshotFile.toString(), true).saveOnShutdown();
+        assertTrue(Files.exists(snapshotFile));
+    }
+
+
+    private DataSnapshot createDataSnapshot(String file) {
+        return new DataSnapshot(datasetHolder, mutationLog, file, false);
+    }
+
+}
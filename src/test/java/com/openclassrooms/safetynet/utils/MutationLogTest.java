@@ -0,0 +1,216 @@
+package com.openclassrooms.safetynet.utils;
+
+import com.openclassrooms.safetynet.model.FireStation;
+import com.openclassrooms.safetynet.model.MedicalRecord;
+import com.openclassrooms.safetynet.model.Person;
+import com.openclassrooms.safetynet.repository.DatasetHolder;
+import com.openclassrooms.safetynet.repository.FireStationRepository;
+import com.openclassrooms.safetynet.repository.MedicalRecordRepository;
+import com.openclassrooms.safetynet.repository.Mutation;
+import com.openclassrooms.safetynet.repository.PersonRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationLogTest {
+
+    private PersonRepository personRepository;
+    private FireStationRepository fireStationRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private MutationLog mutationLog;
+    private Path logFile;
+    private final List<MutationLog> replayLogs = new ArrayList<>();
+
+    @TempDir
+    Path tempDir;
+
+
+    @BeforeEach
+    public void init() {
+        personRepository = new PersonRepository();
+        fireStationRepository = new FireStationRepository();
+        medicalRecordRepository = new MedicalRecordRepository();
+        logFile = tempDir.resolve("data.log");
+        mutationLog = new MutationLog(personRepository, fireStationRepository, medicalRecordRepository, logFile.toString());
+    }
+
+
+    @AfterEach
+    public void close() {
+        mutationLog.close();
+        replayLogs.forEach(MutationLog::close);
+    }
+
+
+    @DisplayName("Should replay the changes made to the repositories")
+    @Test
+    void shouldReplayChanges() throws IOException {
+
+        personRepository.addPerson(new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"));
+        personRepository.addPerson(new Person("Jacob", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6513", "drk@email.com"));
+        personRepository.updatePerson(new Person("John", "Boyd", "29 15th St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"));
+        personRepository.deletePerson(personRepository.findPersonByFirstNameAndLastName("Jacob", "Boyd"));
+        fireStationRepository.addFireStation(new FireStation("1509 Culver St", 3));
+        fireStationRepository.addFireStation(new FireStation("29 15th St", 2));
+        fireStationRepository.updateStationNumber(new FireStation("1509 Culver St", 4));
+        fireStationRepository.deleteStation(fireStationRepository.getFireStationByAddress("29 15th St"));
+        medicalRecordRepository.addMedicalRecord(new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of("aznol:350mg"), List.of()));
+        medicalRecordRepository.updateMedicalRecord(new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of(), List.of("peanut")));
+
+        PersonRepository replayedPersons = new PersonRepository();
+        FireStationRepository replayedFireStations = new FireStationRepository();
+        MedicalRecordRepository replayedMedicalRecords = new MedicalRecordRepository();
+        assertEquals(10, createReplayLog(replayedPersons, replayedFireStations, replayedMedicalRecords).replay());
+
+        assertEquals(personRepository.getPersons(), replayedPersons.getPersons());
+        assertEquals("29 15th St", replayedPersons.findPersonByFirstNameAndLastName("John", "Boyd").getAddress());
+        assertEquals(fireStationRepository.getFireStations(), replayedFireStations.getFireStations());
+        assertEquals(4, replayedFireStations.getFireStationByAddress("1509 Culver St").getStation());
+        assertEquals(medicalRecordRepository.getMedicalRecords(), replayedMedicalRecords.getMedicalRecords());
+    }
+
+
+    @DisplayName("Should skip the replayed deletes of records the data no longer contains")
+    @Test
+    void shouldSkipReplayedDeleteOfMissingRecord() throws IOException {
+
+        fireStationRepository.setFireStations(new ArrayList<>(List.of(new FireStation("1509 Culver St", 2))));
+        fireStationRepository.deleteStation(new FireStation("1509 Culver St", 2));
+        mutationLog.close();
+
+        DatasetHolder datasetHolder = new DatasetHolder();
+        PersonRepository replayedPersons = new PersonRepository(datasetHolder);
+        FireStationRepository replayedFireStations = new FireStationRepository(datasetHolder);
+        replayedPersons.setPersons(new ArrayList<>(List.of(new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"))));
+        replayedFireStations.setFireStations(new ArrayList<>(List.of(new FireStation("1509 Culver St", 1))));
+        List<Mutation<FireStation>> mutations = new ArrayList<>();
+        replayedFireStations.addMutationListener(mutations::add);
+
+        assertEquals(1, createReplayLog(replayedPersons, replayedFireStations, new MedicalRecordRepository()).replay());
+
+        assertTrue(mutations.isEmpty());
+        assertEquals(List.of(new FireStation("1509 Culver St", 1)), replayedFireStations.getFireStations());
+        assertEquals(List.of("841-874-6512"), replayedPersons.findPhonesByStationNumber(1));
+    }
+
+
+    @DisplayName("Should not log the changes made while the log is replayed")
+    @Test
+    void shouldNotLogReplayedChanges() throws IOException {
+
+        personRepository.addPerson(new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"));
+        long size = Files.size(logFile);
+        mutationLog.close();
+
+        PersonRepository replayedPersons = new PersonRepository();
+        MutationLog replayLog = createReplayLog(replayedPersons, new FireStationRepository(), new MedicalRecordRepository());
+        replayLog.replay();
+        replayLog.replay();
+
+        assertEquals(1, replayedPersons.getPersons().size());
+        assertEquals(size, Files.size(logFile));
+    }
+
+
+    @DisplayName("Should ignore and remove a record partially written at the end of the log")
+    @Test
+    void shouldIgnoreTornRecord() throws IOException {
+
+        personRepository.addPerson(new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"));
+        long size = Files.size(logFile);
+        personRepository.addPerson(new Person("Jacob", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6513", "drk@email.com"));
+        mutationLog.close();
+        byte[] content = Files.readAllBytes(logFile);
+        Files.write(logFile, Arrays.copyOf(content, content.length - 5), StandardOpenOption.TRUNCATE_EXISTING);
+
+        PersonRepository replayedPersons = new PersonRepository();
+        MutationLog replayLog = createReplayLog(replayedPersons, new FireStationRepository(), new MedicalRecordRepository());
+
+        assertEquals(1, replayLog.replay());
+        assertEquals(size, Files.size(logFile));
+        replayedPersons.addPerson(new Person("Tenley", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "tenz@email.com"));
+        replayLog.close();
+        PersonRepository secondReplayedPersons = new PersonRepository();
+        assertEquals(2, createReplayLog(secondReplayedPersons, new FireStationRepository(), new MedicalRecordRepository()).replay());
+        assertNotNull(secondReplayedPersons.findPersonByFirstNameAndLastName("Tenley", "Boyd"));
+    }
+
+
+    @DisplayName("Should empty the log when a snapshot is saved")
+    @Test
+    void shouldEmptyLogOnCheckpoint() throws IOException {
+
+        personRepository.addPerson(new Person("John", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6512", "jaboyd@email.com"));
+
+        assertEquals(42, mutationLog.checkpoint(() -> 42));
+        assertEquals(0, Files.size(logFile));
+        personRepository.addPerson(new Person("Jacob", "Boyd", "1509 Culver St", "Culver", 97451, "841-874-6513", "drk@email.com"));
+        PersonRepository replayedPersons = new PersonRepository();
+        assertEquals(1, createReplayLog(replayedPersons, new FireStationRepository(), new MedicalRecordRepository()).replay());
+        assertEquals("Jacob", replayedPersons.getPersons().get(0).getFirstName());
+    }
+
+
+    @DisplayName("Should log the changes made concurrently")
+    @Test
+    void shouldLogConcurrentChanges() throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            FireStation fireStation = new FireStation(i + " Culver St", i % 5);
+            futures.add(executor.submit(() -> fireStationRepository.addFireStation(fireStation)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        FireStationRepository replayedFireStations = new FireStationRepository();
+        assertEquals(200, createReplayLog(new PersonRepository(), replayedFireStations, new MedicalRecordRepository()).replay());
+        assertEquals(fireStationRepository.getFireStations(), replayedFireStations.getFireStations());
+    }
+
+
+    @DisplayName("Should not write any log when no log file is configured")
+    @Test
+    void shouldNotLogWhenDisabled() throws IOException {
+
+        MutationLog disabledLog = createReplayLog(personRepository, fireStationRepository, medicalRecordRepository, "");
+        mutationLog.close();
+        Files.deleteIfExists(logFile);
+
+        assertEquals(0, disabledLog.replay());
+        assertEquals(7, disabledLog.checkpoint(() -> 7));
+        assertFalse(Files.exists(logFile));
+    }
+
+
+    private MutationLog createReplayLog(PersonRepository persons, FireStationRepository fireStations, MedicalRecordRepository medicalRecords) {
+        return createReplayLog(persons, fireStations, medicalRecords, logFile.toString());
+    }
+
+
+    private MutationLog createReplayLog(PersonRepository persons, FireStationRepository fireStations, MedicalRecordRepository medicalRecords, String file) {
+        MutationLog replayLog = new MutationLog(persons, fireStations, medicalRecords, file);
+        replayLogs.add(replayLog);
+        return replayLog;
+    }
+
+}